@@ -17,40 +17,35 @@
 package simblock.block;
 
 import simblock.node.Node;
+import simblock.simulator.SimulationContext;
+import simblock.transaction.Mempool;
 
 /**
- * The representation of a block.
+ * The representation of a block. Its height, minter, time, transactions and size are stored in
+ * the {@link BlockRegistry} of the simulation, of which the block is a view.
  */
 public class Block {
   /**
-   * The current height of the block.
+   * The registry holding the block.
    */
-  private final int height;
+  private final BlockRegistry registry;
 
   /**
-   * The parent {@link Block}.
+   * Block unique id, its index in the registry.
    */
-  private final Block parent;
+  private final int id;
 
   /**
-   * The {@link Node} that minted the block.
+   * The parent {@link Block}, null for the genesis block and for blocks pruned below the
+   * finality depth.
    */
-  private final Node minter;
+  private Block parent;
 
   /**
-   * Minting timestamp, absolute time since the beginning of the simulation.
+   * The ancestor {@link Block} at the skip height of this block, used to look up ancestors in a
+   * logarithmic number of steps.
    */
-  private final long time;
-
-  /**
-   * Block unique id.
-   */
-  private final int id;
-
-  /**
-   * Latest known block id.
-   */
-  private static int latestId = 0;
+  private Block skip;
 
   /**
    * Instantiates a new Block.
@@ -60,12 +55,44 @@ public class Block {
    * @param time   the time
    */
   public Block(Block parent, Node minter, long time) {
-    this.height = parent == null ? 0 : parent.getHeight() + 1;
+    SimulationContext context = minter.getContext();
+    int height = parent == null ? 0 : parent.getHeight() + 1;
+    int numOfTransactions =
+        context.getBlockFilling().getNumOfTransactions(parent, minter, time);
+    int[] transactions = null;
+    Mempool mempool = minter.getMempool();
+    if (mempool != null) {
+      // Only the transactions the minter has can fill the block
+      mempool.sync(time, parent);
+      transactions = mempool.select(numOfTransactions);
+      numOfTransactions = transactions.length;
+    }
+    long size = numOfTransactions * context.getParameters().getTransactionSize();
+    this.registry = context.getBlockRegistry();
+    this.id = this.registry.register(height, minter, time, numOfTransactions, transactions,
+        size);
+    if (transactions != null) {
+      for (int index : transactions) {
+        context.getTransactionLog().include(index, this.id);
+      }
+    }
     this.parent = parent;
-    this.minter = minter;
-    this.time = time;
-    this.id = latestId;
-    latestId++;
+    this.skip = parent == null ? null : parent.getBlockWithHeight(getSkipHeight(height));
+    minter.getContext().getBlockTree().add(this);
+  }
+
+  /**
+   * Instantiates a view of a registered block without ancestors, for blocks below the finality
+   * depth.
+   *
+   * @param registry - the registry holding the block
+   * @param id       - the block id
+   */
+  Block(BlockRegistry registry, int id) {
+    this.registry = registry;
+    this.id = id;
+    this.parent = null;
+    this.skip = null;
   }
 
   /**
@@ -74,13 +101,13 @@ public class Block {
    * @return the int
    */
   public int getHeight() {
-    return this.height;
+    return this.registry.getHeight(this.id);
   }
 
   /**
    * Get parent block.
    *
-   * @return the block
+   * @return the block, null for the genesis block and for blocks below the finality depth
    */
   public Block getParent() {
     return this.parent;
@@ -91,9 +118,8 @@ public class Block {
    *
    * @return the node
    */
-  @SuppressWarnings("unused")
   public Node getMinter() {
-    return this.minter;
+    return this.registry.getMinter(this.id);
   }
 
   /**
@@ -103,7 +129,25 @@ public class Block {
    */
   //TODO what format
   public long getTime() {
-    return this.time;
+    return this.registry.getTime(this.id);
+  }
+
+  /**
+   * Gets the number of transactions of the block.
+   *
+   * @return the number of transactions
+   */
+  public int getNumOfTransactions() {
+    return this.registry.getNumOfTransactions(this.id);
+  }
+
+  /**
+   * Gets the size of the block.
+   *
+   * @return the size in bytes
+   */
+  public long getSize() {
+    return this.registry.getSize(this.id);
   }
 
   /**
@@ -128,17 +172,38 @@ public class Block {
   }
 
   /**
-   * Recursively searches for the block at the provided height.
+   * Searches for the ancestor of the block at the provided height, following skip pointers as in
+   * Bitcoin Core so that it takes a logarithmic number of steps. Ancestors below the finality
+   * depth come from the archive of the {@link BlockTree}, as blocks equal to the original ones
+   * by id.
    *
    * @param height the height
-   * @return the block with the provided height
+   * @return the block with the provided height, or null if there is no block with that height in
+   *     the chain of this block
    */
   public Block getBlockWithHeight(int height) {
-    if (this.height == height) {
-      return this;
-    } else {
-      return this.parent.getBlockWithHeight(height);
+    if (height > this.getHeight() || height < 0) {
+      return null;
+    }
+    Block walk = this;
+    int heightWalk = this.getHeight();
+    while (heightWalk > height) {
+      int heightSkip = getSkipHeight(heightWalk);
+      int heightSkipPrev = getSkipHeight(heightWalk - 1);
+      // Only follow the skip pointer if the parent's skip pointer does not take us closer
+      if (walk.skip != null && (heightSkip == height || (heightSkip > height
+          && !(heightSkipPrev < heightSkip - 2 && heightSkipPrev >= height)))) {
+        walk = walk.skip;
+        heightWalk = heightSkip;
+      } else if (walk.parent != null) {
+        walk = walk.parent;
+        heightWalk--;
+      } else {
+        // The ancestors of a pruned block are final
+        return this.getMinter().getContext().getBlockTree().getFinalBlock(height);
+      }
     }
+    return walk;
   }
 
   /**
@@ -150,10 +215,54 @@ public class Block {
   public boolean isOnSameChainAs(Block block) {
     if (block == null) {
       return false;
-    } else if (this.height <= block.height) {
-      return this.equals(block.getBlockWithHeight(this.height));
+    } else if (this.getHeight() <= block.getHeight()) {
+      return this.isSameBlockAs(block.getBlockWithHeight(this.getHeight()));
     } else {
-      return this.getBlockWithHeight(block.height).equals(block);
+      return block.isSameBlockAs(this.getBlockWithHeight(block.getHeight()));
+    }
+  }
+
+  /**
+   * Checks if the provided block is this block or its copy in the archive of final blocks.
+   *
+   * @param block the block to be checked
+   * @return true if the blocks have the same id
+   */
+  public boolean isSameBlockAs(Block block) {
+    return block != null && block.id == this.id;
+  }
+
+  /**
+   * Drops the ancestors of a final block so that they can be collected.
+   */
+  void prune() {
+    this.parent = null;
+    this.skip = null;
+  }
+
+  /**
+   * Clears the lowest set bit of a number.
+   *
+   * @param n - the number
+   * @return the number without its lowest set bit
+   */
+  private static int invertLowestOne(int n) {
+    return n & (n - 1);
+  }
+
+  /**
+   * Computes the height the skip pointer of a block at the provided height points to. Any height
+   * lower than the provided one works, the choice only decides how fast ancestors are found.
+   *
+   * @param height - the height of the block
+   * @return the height of its skip ancestor
+   */
+  private static int getSkipHeight(int height) {
+    if (height < 2) {
+      return 0;
     }
+    // At most 110 steps to go back up to 2^18 blocks
+    return (height & 1) != 0 ? invertLowestOne(invertLowestOne(height - 1)) + 1
+        : invertLowestOne(height);
   }
 }
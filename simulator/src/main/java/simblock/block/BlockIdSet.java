@@ -0,0 +1,213 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.block;
+
+import java.util.Arrays;
+
+/**
+ * The type BlockIdSet is a set of blocks known by their dense ids, stored as a bitset. The bits
+ * only cover a window of words from the lowest to the highest id in the set, which slides up as
+ * low ids are removed, so a set of recent blocks stays a few words long however many blocks the
+ * simulation has minted. Membership tests and updates do not allocate.
+ */
+public final class BlockIdSet {
+  /**
+   * The number of bits of an id selecting the bit in a word.
+   */
+  private static final int BITS = 6;
+
+  /**
+   * The words of an empty set that never held an id.
+   */
+  private static final long[] NO_WORDS = new long[0];
+
+  /**
+   * The words of the window, bit i of word w holding the id (firstWord + w) * 64 + i.
+   */
+  private long[] words = NO_WORDS;
+
+  /**
+   * The index of the first word of the window among all words.
+   */
+  private int firstWord = 0;
+
+  /**
+   * The number of ids in the set.
+   */
+  private int size = 0;
+
+  /**
+   * Gets the number of ids in the set.
+   *
+   * @return the number of ids
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Whether the set is empty.
+   *
+   * @return true if the set holds no id
+   */
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  /**
+   * Whether the set holds an id.
+   *
+   * @param id the block id
+   * @return true if the set holds the id
+   */
+  public boolean contains(int id) {
+    int index = (id >>> BITS) - this.firstWord;
+    return index >= 0 && index < this.words.length && (this.words[index] & 1L << id) != 0;
+  }
+
+  /**
+   * Adds an id to the set.
+   *
+   * @param id the block id
+   * @return true if the set did not hold the id
+   */
+  public boolean add(int id) {
+    int word = id >>> BITS;
+    if (this.size == 0) {
+      // Every word is 0, move the window to the id
+      this.firstWord = word;
+    }
+    if (word < this.firstWord) {
+      // Extend the window down
+      int shift = this.firstWord - word;
+      long[] words = new long[Math.max(this.words.length + shift, this.words.length * 2)];
+      System.arraycopy(this.words, 0, words, shift, this.words.length);
+      this.words = words;
+      this.firstWord = word;
+    } else if (word - this.firstWord >= this.words.length) {
+      // Slide the window past its leading empty words, and extend it up if that is not enough
+      this.slide();
+      if (word - this.firstWord >= this.words.length) {
+        this.words = Arrays.copyOf(
+            this.words, Math.max(word - this.firstWord + 1, this.words.length * 2));
+      }
+    }
+    int index = word - this.firstWord;
+    if ((this.words[index] & 1L << id) != 0) {
+      return false;
+    }
+    this.words[index] |= 1L << id;
+    this.size++;
+    return true;
+  }
+
+  /**
+   * Removes an id from the set.
+   *
+   * @param id the block id
+   * @return true if the set held the id
+   */
+  public boolean remove(int id) {
+    if (!this.contains(id)) {
+      return false;
+    }
+    this.words[(id >>> BITS) - this.firstWord] &= ~(1L << id);
+    this.size--;
+    return true;
+  }
+
+  /**
+   * Adds all the ids of another set to this one.
+   *
+   * @param other the other set
+   */
+  public void addAll(BlockIdSet other) {
+    for (int id = other.nextId(0); id >= 0; id = other.nextId(id + 1)) {
+      this.add(id);
+    }
+  }
+
+  /**
+   * Gets the lowest id of the set that is not lower than an id, to iterate over the set with
+   * {@code for (int id = set.nextId(0); id >= 0; id = set.nextId(id + 1))}.
+   *
+   * @param fromId the id to start from
+   * @return the id, or -1 if there is none
+   */
+  public int nextId(int fromId) {
+    int index = Math.max((fromId >>> BITS) - this.firstWord, 0);
+    if (index >= this.words.length) {
+      return -1;
+    }
+    long word = this.words[index];
+    if ((fromId >>> BITS) - this.firstWord == index) {
+      word &= -1L << fromId;
+    }
+    while (word == 0) {
+      if (++index == this.words.length) {
+        return -1;
+      }
+      word = this.words[index];
+    }
+    return (this.firstWord + index) * Long.SIZE + Long.numberOfTrailingZeros(word);
+  }
+
+  /**
+   * Copies the set, trimming its window to the ids it holds.
+   *
+   * @return the copy
+   */
+  public BlockIdSet copy() {
+    BlockIdSet copy = new BlockIdSet();
+    copy.restore(this);
+    return copy;
+  }
+
+  /**
+   * Restores the ids of a copy returned by {@link #copy()}, which is left unchanged.
+   *
+   * @param saved the copy
+   */
+  public void restore(BlockIdSet saved) {
+    int first = 0;
+    int last = saved.words.length;
+    while (first < last && saved.words[first] == 0) {
+      first++;
+    }
+    while (last > first && saved.words[last - 1] == 0) {
+      last--;
+    }
+    this.words = first == last ? NO_WORDS : Arrays.copyOfRange(saved.words, first, last);
+    this.firstWord = saved.firstWord + first;
+    this.size = saved.size;
+  }
+
+  /**
+   * Moves the start of the window to its first word that is not empty.
+   */
+  private void slide() {
+    int first = 0;
+    while (first < this.words.length && this.words[first] == 0) {
+      first++;
+    }
+    if (first > 0) {
+      System.arraycopy(this.words, first, this.words, 0, this.words.length - first);
+      Arrays.fill(this.words, this.words.length - first, this.words.length, 0);
+      this.firstWord += first;
+    }
+  }
+}
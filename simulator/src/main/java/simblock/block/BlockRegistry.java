@@ -0,0 +1,190 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.block;
+
+import java.util.Arrays;
+import simblock.node.Node;
+
+/**
+ * The type BlockRegistry assigns the dense ids of the blocks of a simulation and stores their
+ * height, minter, time, number of transactions and size in primitive arrays indexed by id. A
+ * {@link Block} is a view of its entry, so the entry outlives the block once it has been pruned.
+ *
+ * <p>Blocks are registered when they are minted, which no engine does concurrently with other
+ * tasks, so the registry can be read from any logical process.
+ */
+public class BlockRegistry {
+  /**
+   * The initial number of blocks the arrays can hold.
+   */
+  private static final int INITIAL_CAPACITY = 1024;
+
+  /**
+   * The transactions of a block without simulated transactions.
+   */
+  private static final int[] NO_TRANSACTIONS = new int[0];
+
+  /**
+   * The number of registered blocks, which is also the id of the next block.
+   */
+  private int size = 0;
+
+  /**
+   * The heights of the blocks.
+   */
+  private int[] heights = new int[INITIAL_CAPACITY];
+
+  /**
+   * The node IDs of the minters of the blocks.
+   */
+  private int[] minterIds = new int[INITIAL_CAPACITY];
+
+  /**
+   * The minting times of the blocks.
+   */
+  private long[] times = new long[INITIAL_CAPACITY];
+
+  /**
+   * The numbers of transactions of the blocks.
+   */
+  private int[] numOfTransactions = new int[INITIAL_CAPACITY];
+
+  /**
+   * The indexes of the transactions of the blocks in the transaction log, null if transactions
+   * are not simulated.
+   */
+  private int[][] transactions = new int[INITIAL_CAPACITY][];
+
+  /**
+   * The sizes of the blocks in bytes.
+   */
+  private long[] sizes = new long[INITIAL_CAPACITY];
+
+  /**
+   * The minters, indexed by node ID.
+   */
+  private Node[] minters = new Node[0];
+
+  /**
+   * Registers a new block.
+   *
+   * @param height            the height
+   * @param minter            the minter
+   * @param time              the minting time
+   * @param numOfTransactions the number of transactions
+   * @param transactions      the indexes of the transactions in the transaction log, null if
+   *                          transactions are not simulated
+   * @param size              the size in bytes
+   * @return the id of the block
+   */
+  public int register(int height, Node minter, long time, int numOfTransactions,
+      int[] transactions, long size) {
+    if (this.size == this.heights.length) {
+      int capacity = this.size * 2;
+      this.heights = Arrays.copyOf(this.heights, capacity);
+      this.minterIds = Arrays.copyOf(this.minterIds, capacity);
+      this.times = Arrays.copyOf(this.times, capacity);
+      this.numOfTransactions = Arrays.copyOf(this.numOfTransactions, capacity);
+      this.transactions = Arrays.copyOf(this.transactions, capacity);
+      this.sizes = Arrays.copyOf(this.sizes, capacity);
+    }
+    int minterId = minter.getNodeID();
+    if (minterId >= this.minters.length) {
+      this.minters = Arrays.copyOf(this.minters, Math.max(minterId + 1, this.minters.length * 2));
+    }
+    this.minters[minterId] = minter;
+
+    int id = this.size++;
+    this.heights[id] = height;
+    this.minterIds[id] = minterId;
+    this.times[id] = time;
+    this.numOfTransactions[id] = numOfTransactions;
+    this.transactions[id] = transactions;
+    this.sizes[id] = size;
+    return id;
+  }
+
+  /**
+   * Gets the number of registered blocks.
+   *
+   * @return the number of blocks
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Gets the height of a block.
+   *
+   * @param id the id of the block
+   * @return the height
+   */
+  public int getHeight(int id) {
+    return this.heights[id];
+  }
+
+  /**
+   * Gets the minter of a block.
+   *
+   * @param id the id of the block
+   * @return the minter
+   */
+  public Node getMinter(int id) {
+    return this.minters[this.minterIds[id]];
+  }
+
+  /**
+   * Gets the minting time of a block.
+   *
+   * @param id the id of the block
+   * @return the time
+   */
+  public long getTime(int id) {
+    return this.times[id];
+  }
+
+  /**
+   * Gets the number of transactions of a block.
+   *
+   * @param id the id of the block
+   * @return the number of transactions
+   */
+  public int getNumOfTransactions(int id) {
+    return this.numOfTransactions[id];
+  }
+
+  /**
+   * Gets the transactions of a block.
+   *
+   * @param id the id of the block
+   * @return the indexes of the transactions in the transaction log, none if transactions are not
+   *     simulated
+   */
+  public int[] getTransactions(int id) {
+    return this.transactions[id] == null ? NO_TRANSACTIONS : this.transactions[id];
+  }
+
+  /**
+   * Gets the size of a block.
+   *
+   * @param id the id of the block
+   * @return the size in bytes
+   */
+  public long getSize(int id) {
+    return this.sizes[id];
+  }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.block;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The type BlockTree indexes every block minted in a simulation by its ID, shared by all nodes.
+ * It answers lowest common ancestor and branch queries, which nodes use to find the blocks a
+ * reorg orphans. Ancestors are found through the skip pointers of the blocks, so the fork point
+ * of two chains is found in a number of steps logarithmic in their height.
+ *
+ * <p>With a finality depth, the blocks of the chain of a new block that are deeper than that
+ * depth become final. The highest one is the checkpoint. Final blocks below it are dropped from
+ * the tree and lose their ancestors, as are the forks branching off below it, so that they can be
+ * collected once no node refers to them. Only their ids are kept, in an archive indexed by
+ * height, from which {@link Block#getBlockWithHeight(int)} returns views of the {@link
+ * BlockRegistry}.
+ *
+ * <p>Blocks are added and pruned when they are minted, which no engine does concurrently with
+ * other tasks, so the index can be queried from any logical process.
+ */
+public class BlockTree {
+  /**
+   * The blocks and their children, indexed by block ID, null for pruned blocks.
+   */
+  private final ArrayList<Entry> entries = new ArrayList<>();
+
+  /**
+   * The registry holding the blocks.
+   */
+  private final BlockRegistry registry;
+
+  /**
+   * The depth below which blocks are final, 0 if blocks are never pruned.
+   */
+  private final int finalityDepth;
+
+  /**
+   * The highest final block, null if no block is final.
+   */
+  private Block checkpoint = null;
+
+  /**
+   * The ids of the final blocks, indexed by height.
+   */
+  private int[] finalIds = new int[0];
+
+  /**
+   * Instantiates a new block tree.
+   *
+   * @param registry      the registry holding the blocks
+   * @param finalityDepth the depth below which blocks are final, 0 if blocks are never pruned
+   */
+  public BlockTree(BlockRegistry registry, int finalityDepth) {
+    this.registry = registry;
+    this.finalityDepth = finalityDepth;
+  }
+
+  /**
+   * Adds a newly minted block to the tree, and makes the blocks of its chain deeper than the
+   * finality depth final. Blocks minted on a pruned fork are not added.
+   *
+   * @param block the block
+   */
+  public void add(Block block) {
+    Block parent = block.getParent();
+    if (parent != null && !this.contains(parent)) {
+      return;
+    }
+    while (this.entries.size() <= block.getId()) {
+      this.entries.add(null);
+    }
+    this.entries.set(block.getId(), new Entry(block));
+    if (parent != null) {
+      this.entry(parent).children.add(block);
+    }
+
+    int checkpointHeight = block.getHeight() - this.finalityDepth;
+    if (this.finalityDepth > 0 && checkpointHeight > this.getCheckpointHeight()) {
+      this.makeFinal(block.getBlockWithHeight(checkpointHeight));
+    }
+  }
+
+  /**
+   * Gets a view of the final block at the provided height from the archive. The view has the id,
+   * height, time, minter and size of the block but no ancestors.
+   *
+   * @param height the height
+   * @return the block, or null if no block with that height is final
+   */
+  public Block getFinalBlock(int height) {
+    if (height < 0 || height > this.getCheckpointHeight()) {
+      return null;
+    }
+    return new Block(this.registry, this.finalIds[height]);
+  }
+
+  /**
+   * Gets the block with the provided ID, or a view of it from the {@link BlockRegistry} if it has
+   * been pruned from the tree.
+   *
+   * @param id the ID of a registered block
+   * @return the block
+   */
+  public Block resolve(int id) {
+    Entry entry = id < this.entries.size() ? this.entries.get(id) : null;
+    return entry != null ? entry.block : new Block(this.registry, id);
+  }
+
+  /**
+   * Gets the lowest common ancestor of two blocks, the block where their chains fork.
+   *
+   * @param a a block
+   * @param b another block
+   * @return the lowest common ancestor, which is one of the blocks if it is on the chain of the
+   *     other, or null if either block is null or the chains do not meet
+   */
+  public Block getCommonAncestor(Block a, Block b) {
+    if (a == null || b == null) {
+      return null;
+    }
+    // The chains agree up to the fork point and differ above it. Forks are usually short, so
+    // search down from the lower tip in growing steps, then bisect the last step
+    int differs = Math.min(a.getHeight(), b.getHeight()) + 1;
+    int agrees = -1;
+    for (int step = 1; agrees < 0 && differs > 0; step *= 2) {
+      int height = Math.max(differs - step, 0);
+      if (isSameAncestor(a, b, height)) {
+        agrees = height;
+      } else {
+        differs = height;
+      }
+    }
+    if (agrees < 0) {
+      return null;
+    }
+    while (differs - agrees > 1) {
+      int height = (agrees + differs) >>> 1;
+      if (isSameAncestor(a, b, height)) {
+        agrees = height;
+      } else {
+        differs = height;
+      }
+    }
+    return a.getBlockWithHeight(agrees);
+  }
+
+  /**
+   * Gets the blocks on the branch from a block down to, but excluding, one of its ancestors,
+   * typically the lowest common ancestor with another block.
+   *
+   * @param tip      the block at the top of the branch
+   * @param ancestor the ancestor at the bottom of the branch, or null to include the genesis
+   *                 block
+   * @return the blocks, from the tip down
+   */
+  public List<Block> getBranch(Block tip, Block ancestor) {
+    int bottom = ancestor == null ? -1 : ancestor.getHeight();
+    List<Block> branch = new ArrayList<>();
+    Block block = tip;
+    while (block != null && block.getHeight() > bottom) {
+      branch.add(block);
+      // Only final blocks have lost their parent, the blocks below them are read from the archive
+      block = block.getParent() != null ? block.getParent()
+          : block.getBlockWithHeight(block.getHeight() - 1);
+    }
+    return branch;
+  }
+
+  /**
+   * Whether a block is in the tree, i.e. it has not been pruned.
+   *
+   * @param block - the block
+   * @return true if the block is in the tree
+   */
+  private boolean contains(Block block) {
+    return block.getId() < this.entries.size() && this.entry(block) != null;
+  }
+
+  /**
+   * Gets the height of the highest final block.
+   *
+   * @return the height, -1 if no block is final
+   */
+  private int getCheckpointHeight() {
+    return this.checkpoint == null ? -1 : this.checkpoint.getHeight();
+  }
+
+  /**
+   * Makes a block and its ancestors final. The final blocks are archived, and all but the new
+   * checkpoint are dropped from the tree with the forks branching off them, and lose their
+   * ancestors.
+   *
+   * @param block - the new checkpoint, a descendant of the current one
+   */
+  private void makeFinal(Block block) {
+    int height = block.getHeight();
+    if (height >= this.finalIds.length) {
+      int capacity = Math.max(height + 1, this.finalIds.length * 2);
+      this.finalIds = Arrays.copyOf(this.finalIds, capacity);
+    }
+    // Archive the blocks becoming final, from the new checkpoint down to the current one
+    Block walk = block;
+    Block next = null;
+    while (walk != null && walk.getHeight() >= this.getCheckpointHeight()) {
+      Block parent = walk.getParent();
+      if (walk.getHeight() > this.getCheckpointHeight()) {
+        this.finalIds[walk.getHeight()] = walk.getId();
+      }
+      if (next != null) {
+        this.prune(walk, next);
+      }
+      next = walk;
+      walk = parent;
+    }
+    this.checkpoint = block;
+  }
+
+  /**
+   * Drops a final block below the checkpoint from the tree, with the forks branching off it.
+   *
+   * @param block - the final block
+   * @param next  - its child that is final as well
+   */
+  private void prune(Block block, Block next) {
+    Deque<Block> pruned = new ArrayDeque<>();
+    for (Block child : this.entry(block).children) {
+      if (child != next) {
+        pruned.push(child);
+      }
+    }
+    while (!pruned.isEmpty()) {
+      Block fork = pruned.pop();
+      pruned.addAll(this.entry(fork).children);
+      this.entries.set(fork.getId(), null);
+    }
+    this.entries.set(block.getId(), null);
+    block.prune();
+  }
+
+  /**
+   * Whether two blocks have the same ancestor at a height.
+   *
+   * @param a      - a block
+   * @param b      - another block
+   * @param height - the height, not above either block
+   * @return true if the ancestors are the same block
+   */
+  private static boolean isSameAncestor(Block a, Block b, int height) {
+    return a.getBlockWithHeight(height).isSameBlockAs(b.getBlockWithHeight(height));
+  }
+
+  /**
+   * Gets the entry of a block.
+   *
+   * @param block - the block
+   * @return the entry
+   */
+  private Entry entry(Block block) {
+    return this.entries.get(block.getId());
+  }
+
+  /**
+   * A block in the tree.
+   */
+  private static class Entry {
+    /**
+     * The block.
+     */
+    private final Block block;
+
+    /**
+     * The blocks minted on top of the block.
+     */
+    private final List<Block> children = new ArrayList<>();
+
+    /**
+     * Instantiates a new entry.
+     *
+     * @param block - the block
+     */
+    private Entry(Block block) {
+      this.block = block;
+    }
+  }
+}
@@ -16,14 +16,17 @@
 
 package simblock.block;
 
-import java.math.BigDecimal;
-import java.math.BigInteger;
-
 /**
  * The type Coinage tracks the age of coins.
  */
 public class Coinage implements Cloneable {
-  private BigInteger coins;
+  /**
+   * The scale of fixed-point reward rates: a rate of {@code REWARD_SCALE} rewards a coinage of 1
+   * with 1 coin.
+   */
+  public static final long REWARD_SCALE = 1_000_000_000L;
+
+  private long coins;
   private long age;
 
   /**
@@ -32,7 +35,7 @@ public class Coinage implements Cloneable {
    * @param coins the coins
    * @param age   the age
    */
-  public Coinage(BigInteger coins, long age) {
+  public Coinage(long coins, long age) {
     this.coins = coins;
     this.age = age;
   }
@@ -42,7 +45,7 @@ public class Coinage implements Cloneable {
    *
    * @return the coins
    */
-  public BigInteger getCoins() {
+  public long getCoins() {
     return this.coins;
   }
 
@@ -72,12 +75,11 @@ public class Coinage implements Cloneable {
   /**
    * Reward gained for consensus maintenance.
    *
-   * @param reward the reward
+   * @param rewardRate the reward per unit of coinage, as a fixed-point number scaled by {@link
+   *                   #REWARD_SCALE}
    */
-  public void reward(double reward) {
-    this.coins = this.coins.add(
-        new BigDecimal(this.getCoinage()).multiply(new BigDecimal(reward)).toBigInteger()
-    );
+  public void reward(long rewardRate) {
+    this.coins = Math.addExact(this.coins, getReward(this.getCoinage(), rewardRate));
   }
 
   /**
@@ -86,8 +88,36 @@ public class Coinage implements Cloneable {
    * @return the coinage
    */
   //TODO what is coin age
-  public BigInteger getCoinage() {
-    return this.getCoins().multiply(BigInteger.valueOf(this.getAge()));
+  public long getCoinage() {
+    return Math.multiplyExact(this.getCoins(), this.getAge());
+  }
+
+  /**
+   * Converts a reward per unit of coinage to a fixed-point reward rate, rounded to the nearest
+   * multiple of 1 / {@link #REWARD_SCALE}.
+   *
+   * @param reward the reward per unit of coinage
+   * @return the reward rate
+   */
+  public static long toRewardRate(double reward) {
+    return Math.round(reward * REWARD_SCALE);
+  }
+
+  /**
+   * Computes the reward for a coinage exactly, rounded down to a whole coin.
+   *
+   * @param coinage    the non-negative coinage
+   * @param rewardRate the non-negative reward rate, scaled by {@link #REWARD_SCALE}
+   * @return the reward
+   */
+  public static long getReward(long coinage, long rewardRate) {
+    // With coinage = q * SCALE + r and rate = a * SCALE + b, the reward is
+    // q * rate + r * a + floor(r * b / SCALE), where r * b cannot overflow
+    long quotient = coinage / REWARD_SCALE;
+    long remainder = coinage % REWARD_SCALE;
+    return Math.addExact(Math.multiplyExact(quotient, rewardRate), Math.addExact(
+        Math.multiplyExact(remainder, rewardRate / REWARD_SCALE),
+        remainder * (rewardRate % REWARD_SCALE) / REWARD_SCALE));
   }
 
   @Override
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.block;
+
+/**
+ * The type CoinageTable is an immutable table of the coins of every node at a block, indexed by
+ * node ID, stored in primitive columns. Ages are not stored: every coin ages by one at each
+ * block, so the table stores the height at which the age of each node was last reset and derives
+ * the age from the height of the block. The total coinage at a height h is then h times the total
+ * coins minus the sum of coins times reset heights, two sums kept up to date in constant time.
+ *
+ * <p>The table is a persistent trie of {@link #WIDTH}-wide arrays: updating a node copies only
+ * the arrays on the path to it and shares the rest with the previous table, so each block only
+ * stores its difference with its parent.
+ *
+ * <p>Bulk operations over the nodes run as loops over the columns of the leaves. They take a
+ * range of node IDs, so that disjoint ranges can be processed by different threads.
+ */
+public final class CoinageTable {
+  /**
+   * The number of bits of a node ID used at each level of the trie.
+   */
+  private static final int BITS = 5;
+
+  /**
+   * The number of children of an inner array and of entries of a leaf.
+   */
+  private static final int WIDTH = 1 << BITS;
+
+  /**
+   * The number of nodes the table can hold.
+   */
+  private final int size;
+
+  /**
+   * The number of bits of a node ID above the leaf level.
+   */
+  private final int shift;
+
+  /**
+   * The root of the trie, a {@link Leaf} if the shift is 0 and an array of children otherwise.
+   */
+  private final Object root;
+
+  /**
+   * The sum of the coins of every node.
+   */
+  private final long totalCoins;
+
+  /**
+   * The sum of the coins of every node multiplied by their reset height.
+   */
+  private final long totalResetCoins;
+
+  /**
+   * Instantiates a new table.
+   *
+   * @param size            - the number of nodes the table can hold
+   * @param shift           - the number of bits of a node ID above the leaf level
+   * @param root            - the root of the trie
+   * @param totalCoins      - the sum of the coins of every node
+   * @param totalResetCoins - the sum of the coins of every node multiplied by their reset height
+   */
+  private CoinageTable(
+      int size, int shift, Object root, long totalCoins, long totalResetCoins) {
+    this.size = size;
+    this.shift = shift;
+    this.root = root;
+    this.totalCoins = totalCoins;
+    this.totalResetCoins = totalResetCoins;
+  }
+
+  /**
+   * Builds the table of the genesis block.
+   *
+   * @param coins       the coins of every node, indexed by node ID, 0 for unused IDs
+   * @param resetHeight the height at which the ages of all nodes were reset
+   * @return the table
+   */
+  public static CoinageTable of(long[] coins, long resetHeight) {
+    int shift = 0;
+    while ((long) WIDTH << shift < coins.length) {
+      shift += BITS;
+    }
+    long totalCoins = 0;
+    for (long nodeCoins : coins) {
+      totalCoins = Math.addExact(totalCoins, nodeCoins);
+    }
+    return new CoinageTable(coins.length, shift, build(coins, resetHeight, 0, shift),
+        totalCoins, Math.multiplyExact(totalCoins, resetHeight));
+  }
+
+  /**
+   * Gets the number of node IDs in the table, one more than the highest node ID.
+   *
+   * @return the number of node IDs
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Gets the coins of a node.
+   *
+   * @param id the node ID
+   * @return the coins
+   */
+  public long getCoins(int id) {
+    return this.leaf(id).coins[id & (WIDTH - 1)];
+  }
+
+  /**
+   * Gets the height at which the age of a node was last reset.
+   *
+   * @param id the node ID
+   * @return the height
+   */
+  public long getResetHeight(int id) {
+    return this.leaf(id).resetHeights[id & (WIDTH - 1)];
+  }
+
+  /**
+   * Gets the coinage of a node at a height, its coins multiplied by their age.
+   *
+   * @param id     the node ID
+   * @param height the height
+   * @return the coinage
+   */
+  public Coinage getCoinage(int id, long height) {
+    return new Coinage(this.getCoins(id), height - this.getResetHeight(id));
+  }
+
+  /**
+   * Gets the total coinage of all nodes at a height.
+   *
+   * @param height the height
+   * @return the total coinage
+   */
+  public long getTotalCoinage(long height) {
+    return Math.subtractExact(Math.multiplyExact(this.totalCoins, height), this.totalResetCoins);
+  }
+
+  /**
+   * Gets the total coins of all nodes.
+   *
+   * @return the total coins
+   */
+  public long getTotalCoins() {
+    return this.totalCoins;
+  }
+
+  /**
+   * Computes the share of a stake held by the nodes in a range of IDs at a height, their coinage
+   * divided by the stake. Shares of the total coinage are the stake distribution, and shares of
+   * the difficulty are the probabilities that the nodes mint the next block in a millisecond.
+   *
+   * @param height the height
+   * @param stake  the stake
+   * @param from   the first node ID, inclusive
+   * @param to     the last node ID, exclusive
+   * @param shares the array receiving the share of each node at the index of its ID
+   */
+  public void getStakeShares(long height, double stake, int from, int to, double[] shares) {
+    for (int first = from & -WIDTH; first < to; first += WIDTH) {
+      Leaf leaf = this.leaf(first);
+      for (int id = Math.max(first, from), end = Math.min(first + WIDTH, to); id < end; id++) {
+        shares[id] = leaf.coins[id - first] * (height - leaf.resetHeights[id - first]) / stake;
+      }
+    }
+  }
+
+  /**
+   * Returns a table where a node has new coins and its age was reset at a height. This table is
+   * left unchanged.
+   *
+   * @param id          the node ID
+   * @param coins       the new coins of the node
+   * @param resetHeight the height at which its age was reset
+   * @return the new table
+   */
+  public CoinageTable with(int id, long coins, long resetHeight) {
+    if (id < 0 || id >= this.size) {
+      throw new IndexOutOfBoundsException("Unknown node ID: " + id);
+    }
+    long oldCoins = this.getCoins(id);
+    long oldResetHeight = this.getResetHeight(id);
+    long totalCoins = Math.addExact(this.totalCoins - oldCoins, coins);
+    long totalResetCoins = Math.addExact(this.totalResetCoins - oldCoins * oldResetHeight,
+        Math.multiplyExact(coins, resetHeight));
+    return new CoinageTable(this.size, this.shift,
+        set(this.root, this.shift, id, coins, resetHeight), totalCoins, totalResetCoins);
+  }
+
+  /**
+   * Finds the leaf holding a node.
+   *
+   * @param id - the node ID
+   * @return the leaf
+   */
+  private Leaf leaf(int id) {
+    Object node = this.root;
+    for (int level = this.shift; level > 0; level -= BITS) {
+      node = ((Object[]) node)[(id >>> level) & (WIDTH - 1)];
+    }
+    return (Leaf) node;
+  }
+
+  /**
+   * Copies the path to a node and updates its leaf.
+   *
+   * @param node        - the subtree holding the node
+   * @param level       - the shift of the subtree
+   * @param id          - the node ID
+   * @param coins       - the new coins of the node
+   * @param resetHeight - the height at which its age was reset
+   * @return the new subtree
+   */
+  private static Object set(Object node, int level, int id, long coins, long resetHeight) {
+    if (level == 0) {
+      Leaf leaf = ((Leaf) node).copy();
+      leaf.coins[id & (WIDTH - 1)] = coins;
+      leaf.resetHeights[id & (WIDTH - 1)] = resetHeight;
+      return leaf;
+    }
+    Object[] children = ((Object[]) node).clone();
+    int index = (id >>> level) & (WIDTH - 1);
+    children[index] = set(children[index], level - BITS, id, coins, resetHeight);
+    return children;
+  }
+
+  /**
+   * Builds a subtree of a new table.
+   *
+   * @param coins       - the coins of every node, indexed by node ID
+   * @param resetHeight - the height at which the ages of all nodes were reset
+   * @param first       - the first node ID of the subtree
+   * @param level       - the shift of the subtree
+   * @return the subtree, or null if it only holds unused IDs
+   */
+  private static Object build(long[] coins, long resetHeight, int first, int level) {
+    if (first >= coins.length) {
+      return null;
+    } else if (level == 0) {
+      Leaf leaf = new Leaf();
+      for (int i = 0; i < WIDTH; i++) {
+        leaf.coins[i] = first + i < coins.length ? coins[first + i] : 0;
+        leaf.resetHeights[i] = resetHeight;
+      }
+      return leaf;
+    }
+    Object[] children = new Object[WIDTH];
+    for (int i = 0; i < WIDTH; i++) {
+      children[i] = build(coins, resetHeight, first + (i << level), level - BITS);
+    }
+    return children;
+  }
+
+  /**
+   * The coins and reset heights of {@link #WIDTH} consecutive nodes.
+   */
+  private static final class Leaf {
+    /**
+     * The coins of the nodes.
+     */
+    private final long[] coins;
+
+    /**
+     * The heights at which the ages of the nodes were reset.
+     */
+    private final long[] resetHeights;
+
+    /**
+     * Instantiates a new empty leaf.
+     */
+    private Leaf() {
+      this(new long[WIDTH], new long[WIDTH]);
+    }
+
+    /**
+     * Instantiates a new leaf.
+     *
+     * @param coins        - the coins of the nodes
+     * @param resetHeights - the heights at which the ages of the nodes were reset
+     */
+    private Leaf(long[] coins, long[] resetHeights) {
+      this.coins = coins;
+      this.resetHeights = resetHeights;
+    }
+
+    /**
+     * Copies the leaf.
+     *
+     * @return the copy
+     */
+    private Leaf copy() {
+      return new Leaf(this.coins.clone(), this.resetHeights.clone());
+    }
+  }
+}
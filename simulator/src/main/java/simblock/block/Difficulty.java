@@ -0,0 +1,192 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.block;
+
+import java.math.BigInteger;
+
+/**
+ * The type Difficulty is an immutable amount of work, such as the difficulty of a
+ * Proof of Work block or the total difficulty of its chain. Realistic difficulties fit in a
+ * long, which is used as long as possible; a {@link BigInteger} is only used once an operation
+ * overflows.
+ */
+public final class Difficulty implements Comparable<Difficulty> {
+  /**
+   * The difficulty 0.
+   */
+  public static final Difficulty ZERO = new Difficulty(0, null);
+
+  /**
+   * The value, if it fits in a long.
+   */
+  private final long value;
+
+  /**
+   * The value if it does not fit in a long, null otherwise.
+   */
+  private final BigInteger bigValue;
+
+  /**
+   * Instantiates a new difficulty.
+   *
+   * @param value    - the value, if it fits in a long
+   * @param bigValue - the value if it does not fit in a long, null otherwise
+   */
+  private Difficulty(long value, BigInteger bigValue) {
+    this.value = value;
+    this.bigValue = bigValue;
+  }
+
+  /**
+   * Gets the difficulty with the provided value.
+   *
+   * @param value the value
+   * @return the difficulty
+   */
+  public static Difficulty valueOf(long value) {
+    return value == 0 ? ZERO : new Difficulty(value, null);
+  }
+
+  /**
+   * Gets the difficulty with the provided value.
+   *
+   * @param value the value
+   * @return the difficulty
+   */
+  public static Difficulty valueOf(BigInteger value) {
+    if (value.bitLength() < Long.SIZE) {
+      return valueOf(value.longValue());
+    }
+    return new Difficulty(0, value);
+  }
+
+  /**
+   * Adds a difficulty to this one.
+   *
+   * @param other the difficulty to add
+   * @return the sum
+   */
+  public Difficulty add(Difficulty other) {
+    if (this.bigValue == null && other.bigValue == null) {
+      try {
+        return valueOf(Math.addExact(this.value, other.value));
+      } catch (ArithmeticException e) {
+        // Overflows, fall back to a BigInteger
+      }
+    }
+    return valueOf(this.toBigInteger().add(other.toBigInteger()));
+  }
+
+  /**
+   * Multiplies this difficulty by a number.
+   *
+   * @param factor the number
+   * @return the product
+   */
+  public Difficulty multiply(long factor) {
+    if (this.bigValue == null) {
+      try {
+        return valueOf(Math.multiplyExact(this.value, factor));
+      } catch (ArithmeticException e) {
+        // Overflows, fall back to a BigInteger
+      }
+    }
+    return valueOf(this.toBigInteger().multiply(BigInteger.valueOf(factor)));
+  }
+
+  /**
+   * Multiplies this difficulty by a fraction, rounding toward zero. The product is computed
+   * without going through a {@link BigInteger} as long as the result fits in a long.
+   *
+   * @param numerator   the non-negative numerator
+   * @param denominator the positive denominator
+   * @return the product
+   */
+  public Difficulty multiply(long numerator, long denominator) {
+    if (this.bigValue == null) {
+      // Divide first: v * n / d = (v / d) * n + (v % d) * n / d, where (v % d) * n < d * n
+      try {
+        return valueOf(Math.addExact(Math.multiplyExact(this.value / denominator, numerator),
+            Math.multiplyExact(this.value % denominator, numerator) / denominator));
+      } catch (ArithmeticException e) {
+        // Overflows, fall back to a BigInteger
+      }
+    }
+    return valueOf(this.toBigInteger().multiply(BigInteger.valueOf(numerator))
+        .divide(BigInteger.valueOf(denominator)));
+  }
+
+  /**
+   * Divides this difficulty by a number, rounding toward zero.
+   *
+   * @param divisor the non-zero number
+   * @return the quotient
+   */
+  public Difficulty divide(long divisor) {
+    if (this.bigValue == null && !(this.value == Long.MIN_VALUE && divisor == -1)) {
+      return valueOf(this.value / divisor);
+    }
+    return valueOf(this.toBigInteger().divide(BigInteger.valueOf(divisor)));
+  }
+
+  /**
+   * Converts the difficulty to a double.
+   *
+   * @return the nearest double
+   */
+  public double doubleValue() {
+    return this.bigValue == null ? (double) this.value : this.bigValue.doubleValue();
+  }
+
+  /**
+   * Converts the difficulty to a {@link BigInteger}.
+   *
+   * @return the value
+   */
+  public BigInteger toBigInteger() {
+    return this.bigValue == null ? BigInteger.valueOf(this.value) : this.bigValue;
+  }
+
+  @Override
+  public int compareTo(Difficulty other) {
+    if (this.bigValue == null && other.bigValue == null) {
+      return Long.compare(this.value, other.value);
+    }
+    return this.toBigInteger().compareTo(other.toBigInteger());
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    // The representation of a value is unique
+    if (!(object instanceof Difficulty)) {
+      return false;
+    }
+    Difficulty other = (Difficulty) object;
+    return this.bigValue == null ? other.bigValue == null && this.value == other.value
+        : this.bigValue.equals(other.bigValue);
+  }
+
+  @Override
+  public int hashCode() {
+    return this.bigValue == null ? Long.hashCode(this.value) : this.bigValue.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return this.bigValue == null ? Long.toString(this.value) : this.bigValue.toString();
+  }
+}
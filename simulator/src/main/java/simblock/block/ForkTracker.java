@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.block;
+
+import java.util.Arrays;
+
+/**
+ * The type ForkTracker keeps the orphan statistics of a simulation up to date as nodes switch
+ * chains. Each node reports the blocks it newly considers orphans and those it no longer does,
+ * and the tracker counts, for every block, the nodes holding it as an orphan. The statistics can
+ * thus be read at any time during the run, at a cost proportional to the length of each reorg.
+ *
+ * <p>Nodes may be simulated in parallel, so reports are deferred by the timer and applied in task
+ * order.
+ */
+public class ForkTracker {
+  /**
+   * The number of nodes holding each block as an orphan, indexed by block id.
+   */
+  private int[] orphanCounts = new int[1024];
+
+  /**
+   * The blocks held as an orphan by at least one node.
+   */
+  private final BlockIdSet orphans = new BlockIdSet();
+
+  /**
+   * The sum over the nodes of the number of orphans each one holds.
+   */
+  private long numNodeOrphans = 0;
+
+  /**
+   * The number of reports that orphaned at least one block.
+   */
+  private long numReorgs = 0;
+
+  /**
+   * The largest number of blocks orphaned by one report.
+   */
+  private int maxReorgLength = 0;
+
+  /**
+   * Applies the report of a node that switched chains.
+   *
+   * @param orphaned   the ids of the blocks the node newly holds as orphans
+   * @param unorphaned the ids of the blocks the node no longer holds as orphans
+   */
+  public void reorg(int[] orphaned, int[] unorphaned) {
+    for (int id : orphaned) {
+      if (id >= this.orphanCounts.length) {
+        this.orphanCounts = Arrays.copyOf(
+            this.orphanCounts, Math.max(id + 1, this.orphanCounts.length * 2));
+      }
+      if (this.orphanCounts[id]++ == 0) {
+        this.orphans.add(id);
+      }
+    }
+    for (int id : unorphaned) {
+      if (--this.orphanCounts[id] == 0) {
+        this.orphans.remove(id);
+      }
+    }
+    this.numNodeOrphans += orphaned.length - unorphaned.length;
+    if (orphaned.length > 0) {
+      this.numReorgs++;
+      this.maxReorgLength = Math.max(this.maxReorgLength, orphaned.length);
+    }
+  }
+
+  /**
+   * Gets the blocks held as an orphan by at least one node.
+   *
+   * @return the ids of the blocks, not to be modified
+   */
+  public BlockIdSet getOrphans() {
+    return this.orphans;
+  }
+
+  /**
+   * Gets the number of nodes holding a block as an orphan.
+   *
+   * @param id the id of the block
+   * @return the number of nodes
+   */
+  public int getOrphanCount(int id) {
+    return id < this.orphanCounts.length ? this.orphanCounts[id] : 0;
+  }
+
+  /**
+   * Gets the sum over the nodes of the number of orphans each one holds.
+   *
+   * @return the number of orphans
+   */
+  public long getNumNodeOrphans() {
+    return this.numNodeOrphans;
+  }
+
+  /**
+   * Gets the number of times a node orphaned blocks, switching chains or learning of a fork.
+   *
+   * @return the number of reorgs
+   */
+  public long getNumReorgs() {
+    return this.numReorgs;
+  }
+
+  /**
+   * Gets the largest number of blocks a node orphaned at once.
+   *
+   * @return the number of blocks
+   */
+  public int getMaxReorgLength() {
+    return this.maxReorgLength;
+  }
+}
@@ -16,21 +16,29 @@
 
 package simblock.block;
 
-import static simblock.simulator.Simulator.getSimulatedNodes;
-import static simblock.simulator.Simulator.getTargetInterval;
-
-import java.math.BigInteger;
 import simblock.node.Node;
+import simblock.settings.SimulationParameters;
+import simblock.simulator.Simulator;
 
 
 /**
- * The type Proof of work block.
+ * The type Proof of work block. The next difficulty is retargeted from the state of the parent
+ * alone, so minting a block takes constant time whatever its height.
  */
 public class ProofOfWorkBlock extends Block {
-  private final BigInteger difficulty;
-  private final BigInteger totalDifficulty;
-  private final BigInteger nextDifficulty;
-  private static BigInteger genesisNextDifficulty;
+  /**
+   * The maximum factor by which a retarget changes the difficulty, as in Bitcoin.
+   */
+  private static final long MAX_ADJUSTMENT_FACTOR = 4;
+
+  private final Difficulty difficulty;
+  private final Difficulty totalDifficulty;
+  private final Difficulty nextDifficulty;
+
+  /**
+   * The time of the block that closed the last retargeting window at or below this block.
+   */
+  private final long windowStartTime;
 
   /**
    * Instantiates a new Proof of work block.
@@ -40,19 +48,36 @@ public class ProofOfWorkBlock extends Block {
    * @param time       the time
    * @param difficulty the difficulty
    */
-  public ProofOfWorkBlock(ProofOfWorkBlock parent, Node minter, long time, BigInteger difficulty) {
+  public ProofOfWorkBlock(ProofOfWorkBlock parent, Node minter, long time, Difficulty difficulty) {
     super(parent, minter, time);
     this.difficulty = difficulty;
 
     if (parent == null) {
-      this.totalDifficulty = BigInteger.ZERO.add(difficulty);
-      this.nextDifficulty = ProofOfWorkBlock.genesisNextDifficulty;
+      this.totalDifficulty = difficulty;
+      this.nextDifficulty = genesisNextDifficulty(minter.getContext().getSimulator());
+      this.windowStartTime = time;
+      return;
+    }
+    this.totalDifficulty = parent.getTotalDifficulty().add(difficulty);
+
+    SimulationParameters parameters = minter.getContext().getParameters();
+    int window = parameters.getDifficultyAdjustmentWindow();
+    long targetInterval = minter.getContext().getSimulator().getTargetInterval();
+    if (window > 0 && parameters.isDifficultyAdjustedPerBlock()) {
+      // Exponential moving average of the intervals, which needs no window of past times
+      long targetSpan = window * targetInterval;
+      long span = targetSpan + (time - parent.getTime()) - targetInterval;
+      this.nextDifficulty = retarget(parent.getNextDifficulty(), targetSpan, span);
+      this.windowStartTime = parent.windowStartTime;
+    } else if (window > 0 && this.getHeight() % window == 0) {
+      // This block closes a window, whose span is measured from the block closing the last one
+      this.nextDifficulty = retarget(parent.getNextDifficulty(), window * targetInterval,
+          time - parent.windowStartTime);
+      this.windowStartTime = time;
     } else {
-      this.totalDifficulty = parent.getTotalDifficulty().add(difficulty);
-      // TODO: difficulty adjustment
       this.nextDifficulty = parent.getNextDifficulty();
+      this.windowStartTime = parent.windowStartTime;
     }
-
   }
 
   /**
@@ -60,7 +85,7 @@ public class ProofOfWorkBlock extends Block {
    *
    * @return the difficulty
    */
-  public BigInteger getDifficulty() {
+  public Difficulty getDifficulty() {
     return this.difficulty;
   }
 
@@ -69,7 +94,7 @@ public class ProofOfWorkBlock extends Block {
    *
    * @return the total difficulty
    */
-  public BigInteger getTotalDifficulty() {
+  public Difficulty getTotalDifficulty() {
     return this.totalDifficulty;
   }
 
@@ -78,10 +103,40 @@ public class ProofOfWorkBlock extends Block {
    *
    * @return the next difficulty
    */
-  public BigInteger getNextDifficulty() {
+  public Difficulty getNextDifficulty() {
     return this.nextDifficulty;
   }
 
+  /**
+   * Scales a difficulty so that blocks mined in a span of time would have been mined in the
+   * target span, changing it by at most {@link #MAX_ADJUSTMENT_FACTOR}.
+   *
+   * @param difficulty - the current difficulty
+   * @param targetSpan - the target span
+   * @param span       - the actual span
+   * @return the new difficulty
+   */
+  private static Difficulty retarget(Difficulty difficulty, long targetSpan, long span) {
+    long clampedSpan = Math.min(span, targetSpan * MAX_ADJUSTMENT_FACTOR);
+    clampedSpan = Math.max(clampedSpan, Math.max(targetSpan / MAX_ADJUSTMENT_FACTOR, 1));
+    return difficulty.multiply(targetSpan, clampedSpan);
+  }
+
+  /**
+   * Gets the total mining power and adjusts the difficulty of the block after the genesis block
+   * accordingly.
+   *
+   * @param simulator the simulator holding the simulated nodes
+   * @return the next difficulty of the genesis block
+   */
+  private static Difficulty genesisNextDifficulty(Simulator simulator) {
+    long totalMiningPower = 0;
+    for (Node node : simulator.getSimulatedNodes()) {
+      totalMiningPower += node.getMiningPower();
+    }
+    return Difficulty.valueOf(totalMiningPower).multiply(simulator.getTargetInterval());
+  }
+
   /**
    * Generates the genesis block, gets the total mining power and adjusts the difficulty of the
    * next block accordingly.
@@ -90,11 +145,6 @@ public class ProofOfWorkBlock extends Block {
    * @return the genesis block
    */
   public static ProofOfWorkBlock genesisBlock(Node minter) {
-    long totalMiningPower = 0;
-    for (Node node : getSimulatedNodes()) {
-      totalMiningPower += node.getMiningPower();
-    }
-    genesisNextDifficulty = BigInteger.valueOf(totalMiningPower * getTargetInterval());
-    return new ProofOfWorkBlock(null, minter, 0, BigInteger.ZERO);
+    return new ProofOfWorkBlock(null, minter, 0, Difficulty.ZERO);
   }
 }
@@ -16,27 +16,21 @@
 
 package simblock.block;
 
-import static simblock.settings.SimulationConfiguration.AVERAGE_COINS;
-import static simblock.settings.SimulationConfiguration.STAKING_REWARD;
-import static simblock.settings.SimulationConfiguration.STDEV_OF_COINS;
-import static simblock.simulator.Main.random;
-import static simblock.simulator.Simulator.getSimulatedNodes;
-import static simblock.simulator.Simulator.getTargetInterval;
 
-import java.math.BigInteger;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Random;
 import simblock.node.Node;
+import simblock.settings.SimulationParameters;
+import simblock.simulator.Simulator;
 
 /**
  * The type Sample proof of stake block.
  */
 public class SamplePoSBlock extends Block {
-  private final Map<Node, Coinage> coinages;
-  private static Map<Node, Coinage> genesisCoinages;
-  private final BigInteger difficulty;
-  private final BigInteger totalDifficulty;
-  private final BigInteger nextDifficulty;
+  private final CoinageTable coinages;
+  private final Difficulty difficulty;
+  private final Difficulty totalDifficulty;
+  private final Difficulty nextDifficulty;
+  private volatile double[] mintingProbabilities;
 
   /**
    * Instantiates a new Sample proof of stake block.
@@ -47,49 +41,74 @@ public class SamplePoSBlock extends Block {
    * @param difficulty the difficulty
    */
   public SamplePoSBlock(
-      SamplePoSBlock parent, Node minter, long time, BigInteger difficulty
+      SamplePoSBlock parent, Node minter, long time, Difficulty difficulty
   ) {
     super(parent, minter, time);
+    Simulator simulator = minter.getContext().getSimulator();
+    SimulationParameters parameters = minter.getContext().getParameters();
 
-    this.coinages = new HashMap<>();
     if (parent == null) {
-      for (Node node : getSimulatedNodes()) {
-        this.coinages.put(node, genesisCoinages.get(node).clone());
+      // Every node starts with coins of age 1
+      Random random = minter.getContext().getRandom();
+      int maxNodeId = 0;
+      for (Node node : simulator.getSimulatedNodes()) {
+        maxNodeId = Math.max(maxNodeId, node.getNodeID());
       }
-    } else {
-      for (Node node : getSimulatedNodes()) {
-        this.coinages.put(node, parent.getCoinage(node).clone());
-        this.coinages.get(node).increaseAge();
+      long[] coins = new long[maxNodeId + 1];
+      for (Node node : simulator.getSimulatedNodes()) {
+        coins[node.getNodeID()] = genCoins(parameters, random);
       }
-      this.coinages.get(minter).reward(STAKING_REWARD);
-      this.coinages.get(minter).resetAge();
-    }
-
-    BigInteger totalCoinage = BigInteger.ZERO;
-    for (Node node : getSimulatedNodes()) {
-      totalCoinage = totalCoinage.add(this.coinages.get(node).getCoinage());
+      this.coinages = CoinageTable.of(coins, this.getHeight() - 1);
+    } else {
+      // The minter is rewarded in proportion to its coinage, then its age is reset
+      Coinage coinage = parent.coinages.getCoinage(minter.getNodeID(), this.getHeight());
+      coinage.reward(Coinage.toRewardRate(parameters.getStakingReward()));
+      this.coinages = parent.coinages.with(
+          minter.getNodeID(), coinage.getCoins(), this.getHeight());
     }
 
     this.difficulty = difficulty;
     if (parent == null) {
-      this.totalDifficulty = BigInteger.ZERO.add(difficulty);
+      this.totalDifficulty = difficulty;
     } else {
       this.totalDifficulty = parent.getTotalDifficulty().add(difficulty);
     }
-    this.nextDifficulty = totalCoinage.multiply(
-            BigInteger.valueOf(getTargetInterval())).divide(BigInteger.valueOf(1000)
-    );
+    this.nextDifficulty = Difficulty.valueOf(this.coinages.getTotalCoinage(this.getHeight()))
+        .multiply(simulator.getTargetInterval()).divide(1000);
   }
 
   /**
    * Gets coinage.
    *
    * @param node the node
-   * @return the coinage
+   * @return the coinage of the node at this block
    */
   //TODO Coinage is related to proof of stake obviously
   public Coinage getCoinage(Node node) {
-    return this.coinages.get(node);
+    return this.coinages.getCoinage(node.getNodeID(), this.getHeight());
+  }
+
+  /**
+   * Gets the probability that a node mints the next block in a millisecond. The probabilities of
+   * all nodes are computed together the first time one is needed.
+   *
+   * @param node the node
+   * @return the probability
+   */
+  public double getMintingProbability(Node node) {
+    double[] probabilities = this.mintingProbabilities;
+    if (probabilities == null) {
+      synchronized (this) {
+        probabilities = this.mintingProbabilities;
+        if (probabilities == null) {
+          probabilities = new double[this.coinages.size()];
+          this.coinages.getStakeShares(this.getHeight(), this.nextDifficulty.doubleValue(),
+              0, probabilities.length, probabilities);
+          this.mintingProbabilities = probabilities;
+        }
+      }
+    }
+    return probabilities[node.getNodeID()];
   }
 
   /**
@@ -97,7 +116,7 @@ public class SamplePoSBlock extends Block {
    *
    * @return the difficulty
    */
-  public BigInteger getDifficulty() {
+  public Difficulty getDifficulty() {
     return this.difficulty;
   }
 
@@ -106,7 +125,7 @@ public class SamplePoSBlock extends Block {
    *
    * @return the total difficulty
    */
-  public BigInteger getTotalDifficulty() {
+  public Difficulty getTotalDifficulty() {
     return this.totalDifficulty;
   }
 
@@ -115,14 +134,13 @@ public class SamplePoSBlock extends Block {
    *
    * @return the next difficulty
    */
-  public BigInteger getNextDifficulty() {
+  public Difficulty getNextDifficulty() {
     return this.nextDifficulty;
   }
 
-  private static Coinage genCoinage() {
+  private static long genCoins(SimulationParameters parameters, Random random) {
     double r = random.nextGaussian();
-    BigInteger coins = BigInteger.valueOf(Math.max((int) (r * STDEV_OF_COINS + AVERAGE_COINS), 0));
-    return new Coinage(coins, 1);
+    return Math.max((int) (r * parameters.getStdevOfCoins() + parameters.getAverageCoins()), 0);
   }
 
   /**
@@ -132,10 +150,6 @@ public class SamplePoSBlock extends Block {
    * @return the sample proof of stake block
    */
   public static SamplePoSBlock genesisBlock(Node minter) {
-    genesisCoinages = new HashMap<>();
-    for (Node node : getSimulatedNodes()) {
-      genesisCoinages.put(node, genCoinage());
-    }
-    return new SamplePoSBlock(null, minter, 0, BigInteger.ZERO);
+    return new SamplePoSBlock(null, minter, 0, Difficulty.ZERO);
   }
 }
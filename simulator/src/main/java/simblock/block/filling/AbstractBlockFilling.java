@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simblock.block.filling;
+
+import simblock.block.Block;
+import simblock.node.Node;
+import simblock.simulator.SimulationContext;
+
+/**
+ * The type AbstractBlockFilling is the policy deciding how many transactions a minter puts in a
+ * new block. Every transaction is TRANSACTION_SIZE bytes, so it also decides the size of the
+ * block, and a block holds at most BLOCK_SIZE bytes.
+ */
+public abstract class AbstractBlockFilling {
+  /**
+   * The context of the simulation.
+   */
+  private final SimulationContext context;
+
+  /**
+   * Instantiates a new block filling policy.
+   *
+   * @param context the context of the simulation
+   */
+  public AbstractBlockFilling(SimulationContext context) {
+    this.context = context;
+  }
+
+  /**
+   * Gets the context of the simulation.
+   *
+   * @return the context
+   */
+  protected SimulationContext getContext() {
+    return this.context;
+  }
+
+  /**
+   * Gets the number of transactions that fit in a block.
+   *
+   * @return the number of transactions
+   */
+  public int getMaxNumOfTransactions() {
+    return (int) (this.context.getParameters().getBlockSize()
+        / this.context.getParameters().getTransactionSize());
+  }
+
+  /**
+   * Decides the number of transactions of a new block.
+   *
+   * @param parent the parent of the block, null for a genesis block
+   * @param minter the minter of the block
+   * @param time   the minting time
+   * @return the number of transactions
+   */
+  public abstract int getNumOfTransactions(Block parent, Node minter, long time);
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simblock.block.filling;
+
+import simblock.block.Block;
+import simblock.node.Node;
+import simblock.simulator.SimulationContext;
+
+/**
+ * The type RandomBlockFilling fills every block with a number of transactions drawn uniformly
+ * between none and as many as fit in BLOCK_SIZE, so that a single simulation covers the whole
+ * range of block sizes. The draws are made by the minter.
+ */
+@SuppressWarnings("unused")
+public class RandomBlockFilling extends AbstractBlockFilling {
+  /**
+   * Instantiates a new random block filling policy.
+   *
+   * @param context the context of the simulation
+   */
+  public RandomBlockFilling(SimulationContext context) {
+    super(context);
+  }
+
+  @Override
+  public int getNumOfTransactions(Block parent, Node minter, long time) {
+    return minter.getRandom().nextInt(this.getMaxNumOfTransactions() + 1);
+  }
+}
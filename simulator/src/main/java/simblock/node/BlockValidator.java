@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.node;
+
+import java.util.ArrayDeque;
+import simblock.block.Block;
+import simblock.settings.SimulationParameters;
+import simblock.task.ValidationTask;
+
+/**
+ * The type BlockValidator models the CPU a node spends validating the blocks it receives. A
+ * block takes {@link simblock.settings.SimulationConfiguration#VALIDATION_TIME_PER_BLOCK} plus a
+ * time per transaction and per kilobyte to validate. The node validates up to
+ * {@link simblock.settings.SimulationConfiguration#VALIDATION_CORES} blocks at the same time, and
+ * further blocks wait in a queue in arrival order. A block that takes no time to validate is
+ * handled at once.
+ */
+class BlockValidator {
+  /**
+   * The validating node.
+   */
+  private final Node node;
+
+  /**
+   * The number of verification cores.
+   */
+  private final int cores;
+
+  /**
+   * The blocks waiting for a free core, in arrival order.
+   */
+  private final ArrayDeque<Block> queue = new ArrayDeque<>();
+
+  /**
+   * The number of cores validating a block.
+   */
+  private int busyCores = 0;
+
+  /**
+   * Instantiates a new idle validator.
+   *
+   * @param node  - the validating node
+   * @param cores - the number of verification cores
+   */
+  BlockValidator(Node node, int cores) {
+    this.node = node;
+    this.cores = cores;
+  }
+
+  /**
+   * Copies the state of a validator.
+   *
+   * @return the copy
+   */
+  BlockValidator copy() {
+    BlockValidator copy = new BlockValidator(this.node, this.cores);
+    copy.restore(this);
+    return copy;
+  }
+
+  /**
+   * Restores the state of a copy returned by {@link #copy()}, which is left unchanged.
+   *
+   * @param saved the copy
+   */
+  void restore(BlockValidator saved) {
+    this.queue.clear();
+    this.queue.addAll(saved.queue);
+    this.busyCores = saved.busyCores;
+  }
+
+  /**
+   * Gets the time a block takes to validate.
+   *
+   * @param block the block
+   * @return the time in milliseconds
+   */
+  long getValidationTime(Block block) {
+    SimulationParameters parameters = this.node.getContext().getParameters();
+    return (long) Math.ceil(parameters.getValidationTimePerBlock()
+        + parameters.getValidationTimePerTransaction() * block.getNumOfTransactions()
+        + parameters.getValidationTimePerKb() * block.getSize() / 1000);
+  }
+
+  /**
+   * Validates a received block, or queues it if every core is busy. The node handles the block
+   * once it has been validated.
+   *
+   * @param block the block
+   */
+  void submit(Block block) {
+    if (this.getValidationTime(block) <= 0) {
+      this.node.receiveValidatedBlock(block);
+    } else if (this.busyCores < this.cores) {
+      this.start(block);
+    } else {
+      this.queue.addLast(block);
+    }
+  }
+
+  /**
+   * Frees the core that validated a block and starts validating the next queued block.
+   */
+  void complete() {
+    this.busyCores--;
+    if (!this.queue.isEmpty()) {
+      this.start(this.queue.pollFirst());
+    }
+  }
+
+  /**
+   * Starts validating a block on a free core.
+   *
+   * @param block - the block
+   */
+  private void start(Block block) {
+    this.busyCores++;
+    this.node.getContext().getTimer().putTask(
+        new ValidationTask(this.node, block, this.getValidationTime(block)));
+  }
+}
@@ -16,39 +16,41 @@
 
 package simblock.node;
 
-import static simblock.settings.SimulationConfiguration.BLOCK_SIZE;
 import static simblock.settings.SimulationConfiguration.CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CHURN_NODE;
 import static simblock.settings.SimulationConfiguration.CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CONTROL_NODE;
-import static simblock.settings.SimulationConfiguration.CBR_FAILURE_RATE_FOR_CHURN_NODE;
-import static simblock.settings.SimulationConfiguration.CBR_FAILURE_RATE_FOR_CONTROL_NODE;
-import static simblock.settings.SimulationConfiguration.COMPACT_BLOCK_SIZE;
-import static simblock.simulator.Main.OUT_JSON_FILE;
-import static simblock.simulator.Network.getBandwidth;
-import static simblock.simulator.Simulator.arriveBlock;
-import static simblock.simulator.Timer.getCurrentTime;
-import static simblock.simulator.Timer.putTask;
-import static simblock.simulator.Timer.removeTask;
-import static simblock.simulator.Main.random;
 
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.List;
 
 import simblock.block.Block;
+import simblock.block.BlockIdSet;
+import simblock.block.BlockTree;
+import simblock.block.ForkTracker;
 import simblock.node.consensus.AbstractConsensusAlgo;
 import simblock.node.routing.AbstractRoutingTable;
+import simblock.settings.SimulationParameters;
+import simblock.simulator.SimulationContext;
 import simblock.task.AbstractMessageTask;
 import simblock.task.AbstractMintingTask;
 import simblock.task.BlockMessageTask;
 import simblock.task.CmpctBlockMessageTask;
 import simblock.task.GetBlockTxnMessageTask;
 import simblock.task.InvMessageTask;
+import simblock.task.MessageHandler;
 import simblock.task.RecMessageTask;
+import simblock.transaction.Mempool;
 
 /**
- * A class representing a node in the network.
+ * A class representing a node in the network. It handles the messages it receives as their
+ * {@link MessageHandler}.
  */
-public class Node {
+public class Node implements MessageHandler {
+  /**
+   * The context of the simulation the node belongs to.
+   */
+  private final SimulationContext context;
+
   /**
    * Unique node ID.
    */
@@ -64,6 +66,12 @@ public class Node {
    */
   private final long miningPower;
 
+  /**
+   * The random number generator of the node, seeded from the simulation seed so that the draws
+   * of a node do not depend on the order in which nodes are simulated.
+   */
+  private final NodeRandom random;
+
   /**
    * A nodes routing table.
    */
@@ -90,9 +98,15 @@ public class Node {
   private Block block;
 
   /**
-   * Orphaned blocks known to node.
+   * The transactions received by the node and not yet confirmed, null if transactions are not
+   * simulated.
    */
-  private final Set<Block> orphans = new HashSet<>();
+  private final Mempool mempool;
+
+  /**
+   * The ids of the orphaned blocks known to node.
+   */
+  private final BlockIdSet orphans = new BlockIdSet();
 
   /**
    * The current minting task
@@ -100,24 +114,24 @@ public class Node {
   private AbstractMintingTask mintingTask = null;
 
   /**
-   * In the process of sending blocks.
+   * The scheduler of the uploads of the blocks requested from the node.
    */
-  // TODO verify
-  private boolean sendingBlock = false;
+  private final UploadScheduler uploadScheduler;
 
-  // TODO
-  private final ArrayList<AbstractMessageTask> messageQue = new ArrayList<>();
-  // TODO
-  private final Set<Block> downloadingBlocks = new HashSet<>();
+  /**
+   * The validator of the blocks received by the node.
+   */
+  private final BlockValidator blockValidator;
 
   /**
-   * Processing time of tasks expressed in milliseconds.
+   * The ids of the blocks being downloaded by the node.
    */
-  private final long processingTime = 2;
+  private final BlockIdSet downloadingBlocks = new BlockIdSet();
 
   /**
    * Instantiates a new Node.
    *
+   * @param context           the context of the simulation
    * @param nodeID            the node id
    * @param numConnection     the number of connections a node can have
    * @param region            the region
@@ -128,13 +142,21 @@ public class Node {
    * @param isChurnNode       whether the node causes churn
    */
   public Node(
-      int nodeID, int numConnection, int region, long miningPower, String routingTableName,
-      String consensusAlgoName, boolean useCBR, boolean isChurnNode) {
+      SimulationContext context, int nodeID, int numConnection, int region, long miningPower,
+      String routingTableName, String consensusAlgoName, boolean useCBR, boolean isChurnNode) {
+    this.context = context;
     this.nodeID = nodeID;
     this.region = region;
     this.miningPower = miningPower;
     this.useCBR = useCBR;
     this.isChurnNode = isChurnNode;
+    this.random = new NodeRandom(context.getRandom().nextLong());
+    this.mempool = context.getTransactionLog() == null ? null
+        : new Mempool(this, context.getTransactionLog());
+    SimulationParameters parameters = context.getParameters();
+    this.uploadScheduler = new UploadScheduler(this, parameters.getMaxConcurrentUploads(),
+        parameters.getMessageProcessingTime(), parameters.isReleaseUploadOnSend());
+    this.blockValidator = new BlockValidator(this, parameters.getValidationCores());
 
     try {
       this.routingTable = (AbstractRoutingTable) Class.forName(routingTableName).getConstructor(
@@ -147,6 +169,15 @@ public class Node {
     }
   }
 
+  /**
+   * Gets the context of the simulation the node belongs to.
+   *
+   * @return the context
+   */
+  public SimulationContext getContext() {
+    return this.context;
+  }
+
   /**
    * Gets the node id.
    *
@@ -165,6 +196,15 @@ public class Node {
     return this.region;
   }
 
+  /**
+   * Gets the random number generator of the node.
+   *
+   * @return the random number generator
+   */
+  public NodeRandom getRandom() {
+    return this.random;
+  }
+
   /**
    * Gets mining power.
    *
@@ -174,6 +214,15 @@ public class Node {
     return this.miningPower;
   }
 
+  /**
+   * Gets the transactions received by the node and not yet confirmed.
+   *
+   * @return the mempool, null if transactions are not simulated
+   */
+  public Mempool getMempool() {
+    return this.mempool;
+  }
+
   /**
    * Gets the consensus algorithm.
    *
@@ -205,12 +254,38 @@ public class Node {
   /**
    * Gets all orphans known to node.
    *
-   * @return the orphans
+   * @return the ids of the orphans
    */
-  public Set<Block> getOrphans() {
+  public BlockIdSet getOrphans() {
     return this.orphans;
   }
 
+  /**
+   * Saves the state of the node that changes when it handles tasks.
+   *
+   * @return the state
+   */
+  public NodeState saveState() {
+    return new NodeState(
+        this.block, this.orphans.copy(), this.mintingTask, this.uploadScheduler.copy(),
+        this.blockValidator.copy(), this.downloadingBlocks.copy(), this.random);
+  }
+
+  /**
+   * Restores a state returned by {@link #saveState()}.
+   *
+   * @param state the state
+   */
+  public void restoreState(NodeState state) {
+    this.block = state.getBlock();
+    this.orphans.restore(state.getOrphans());
+    this.mintingTask = state.getMintingTask();
+    this.uploadScheduler.restore(state.getUploadScheduler());
+    this.blockValidator.restore(state.getBlockValidator());
+    this.downloadingBlocks.restore(state.getDownloadingBlocks());
+    state.restoreRandom(this.random);
+  }
+
   /**
    * Gets the number of connections a node can have.
    *
@@ -286,14 +361,14 @@ public class Node {
   public void addToChain(Block newBlock) {
     // If the node has been minting
     if (this.mintingTask != null) {
-      removeTask(this.mintingTask);
+      this.context.getTimer().removeTask(this.mintingTask);
       this.mintingTask = null;
     }
     // Update the current block
     this.block = newBlock;
     printAddBlock(newBlock);
     // Observe and handle new block arrival
-    arriveBlock(newBlock, this);
+    this.context.getSimulator().arriveBlock(newBlock, this);
   }
 
   /**
@@ -302,36 +377,44 @@ public class Node {
    * @param newBlock the block to be logged
    */
   private void printAddBlock(Block newBlock) {
-    OUT_JSON_FILE.print("{");
-    OUT_JSON_FILE.print("\"kind\":\"add-block\",");
-    OUT_JSON_FILE.print("\"content\":{");
-    OUT_JSON_FILE.print("\"timestamp\":" + getCurrentTime() + ",");
-    OUT_JSON_FILE.print("\"node-id\":" + this.getNodeID() + ",");
-    OUT_JSON_FILE.print("\"block-id\":" + newBlock.getId());
-    OUT_JSON_FILE.print("}");
-    OUT_JSON_FILE.print("},");
-    OUT_JSON_FILE.flush();
+    this.context.getEventSink().addBlock(
+        this.context.getTimer().getCurrentTime(), this.getNodeID(), newBlock.getId());
   }
 
   /**
-   * Add orphans.
+   * Add orphans. The blocks of the chain of the orphan block above the fork point with the chain
+   * of the valid block become orphans, and the blocks of the chain of the valid block above the
+   * fork point are no longer orphans. The changes are reported to the {@link ForkTracker}.
    *
    * @param orphanBlock the orphan block
    * @param validBlock  the valid block
    */
-  // TODO check this out later
   public void addOrphans(Block orphanBlock, Block validBlock) {
-    if (orphanBlock != validBlock) {
-      this.orphans.add(orphanBlock);
-      this.orphans.remove(validBlock);
-      if (validBlock == null || orphanBlock.getHeight() > validBlock.getHeight()) {
-        this.addOrphans(orphanBlock.getParent(), validBlock);
-      } else if (orphanBlock.getHeight() == validBlock.getHeight()) {
-        this.addOrphans(orphanBlock.getParent(), validBlock.getParent());
-      } else {
-        this.addOrphans(orphanBlock, validBlock.getParent());
+    BlockTree blockTree = this.context.getBlockTree();
+    Block forkPoint = blockTree.getCommonAncestor(orphanBlock, validBlock);
+    List<Block> orphanBranch = blockTree.getBranch(orphanBlock, forkPoint);
+    List<Block> validBranch = blockTree.getBranch(validBlock, forkPoint);
+    int[] orphaned = new int[orphanBranch.size()];
+    int numOrphaned = 0;
+    for (Block block : orphanBranch) {
+      if (this.orphans.add(block.getId())) {
+        orphaned[numOrphaned++] = block.getId();
       }
     }
+    int[] unorphaned = new int[validBranch.size()];
+    int numUnorphaned = 0;
+    for (Block block : validBranch) {
+      if (this.orphans.remove(block.getId())) {
+        unorphaned[numUnorphaned++] = block.getId();
+      }
+    }
+    if (numOrphaned > 0 || numUnorphaned > 0) {
+      int[] orphanedIds = Arrays.copyOf(orphaned, numOrphaned);
+      int[] unorphanedIds = Arrays.copyOf(unorphaned, numUnorphaned);
+      // Nodes may be simulated in parallel, report the changes in task order
+      ForkTracker forkTracker = this.context.getForkTracker();
+      this.context.getTimer().defer(() -> forkTracker.reorg(orphanedIds, unorphanedIds));
+    }
   }
 
   /**
@@ -341,7 +424,7 @@ public class Node {
     AbstractMintingTask task = this.consensusAlgo.minting();
     this.mintingTask = task;
     if (task != null) {
-      putTask(task);
+      this.context.getTimer().putTask(task);
     }
   }
 
@@ -353,7 +436,7 @@ public class Node {
   public void sendInv(Block block) {
     for (Node to : this.routingTable.getNeighbors()) {
       AbstractMessageTask task = new InvMessageTask(this, to, block);
-      putTask(task);
+      this.context.getTimer().putTask(task);
     }
   }
 
@@ -363,6 +446,16 @@ public class Node {
    * @param block the block
    */
   public void receiveBlock(Block block) {
+    this.receiveBlock(block, true);
+  }
+
+  /**
+   * Receive block.
+   *
+   * @param block     - the block
+   * @param advertise - whether to advertise the block if it extends the chain of the node
+   */
+  private void receiveBlock(Block block, boolean advertise) {
     if (this.consensusAlgo.isReceivedBlockValid(block, this.block)) {
       if (this.block != null && !this.block.isOnSameChainAs(block)) {
         // If orphan mark orphan
@@ -373,129 +466,173 @@ public class Node {
       // Generates a new minting task
       this.minting();
       // Advertise received block
-      this.sendInv(block);
-    } else if (!this.orphans.contains(block) && !block.isOnSameChainAs(this.block)) {
+      if (advertise) {
+        this.sendInv(block);
+      }
+    } else if (!this.orphans.contains(block.getId()) && !block.isOnSameChainAs(this.block)) {
       // TODO better understand - what if orphan is not valid?
       // If the block was not valid but was an unknown orphan and is not on the same
       // chain as the
       // current block
       this.addOrphans(block, this.block);
-      arriveBlock(block, this);
+      this.context.getSimulator().arriveBlock(block, this);
     }
   }
 
   /**
-   * Receive message.
+   * Receive message, passing it to the handler of its type.
    *
    * @param message the message
    */
   public void receiveMessage(AbstractMessageTask message) {
-    Node from = message.getFrom();
-
-    if (message instanceof InvMessageTask) {
-      Block block = ((InvMessageTask) message).getBlock();
-      if (!this.orphans.contains(block) && !this.downloadingBlocks.contains(block)) {
-        if (this.consensusAlgo.isReceivedBlockValid(block, this.block)) {
-          AbstractMessageTask task = new RecMessageTask(this, from, block);
-          putTask(task);
-          downloadingBlocks.add(block);
-        } else if (!block.isOnSameChainAs(this.block)) {
-          // get new orphan block
-          AbstractMessageTask task = new RecMessageTask(this, from, block);
-          putTask(task);
-          downloadingBlocks.add(block);
-        }
-      }
-    }
+    message.dispatch(this);
+  }
 
-    if (message instanceof RecMessageTask) {
-      this.messageQue.add((RecMessageTask) message);
-      if (!sendingBlock) {
-        this.sendNextBlockMessage();
+  @Override
+  public void handleInv(InvMessageTask message) {
+    Block block = message.getBlock();
+    if (!this.orphans.contains(block.getId()) && !this.downloadingBlocks.contains(block.getId())) {
+      if (this.consensusAlgo.isReceivedBlockValid(block, this.block)) {
+        AbstractMessageTask task = new RecMessageTask(this, message.getFrom(), block);
+        this.context.getTimer().putTask(task);
+        this.downloadingBlocks.add(block.getId());
+      } else if (!block.isOnSameChainAs(this.block)) {
+        // get new orphan block
+        AbstractMessageTask task = new RecMessageTask(this, message.getFrom(), block);
+        this.context.getTimer().putTask(task);
+        this.downloadingBlocks.add(block.getId());
       }
     }
+  }
 
-    if (message instanceof GetBlockTxnMessageTask) {
-      this.messageQue.add((GetBlockTxnMessageTask) message);
-      if (!sendingBlock) {
-        this.sendNextBlockMessage();
-      }
+  @Override
+  public void handleRec(RecMessageTask message) {
+    Node to = message.getFrom();
+    Block block = message.getBlock();
+    // If use compact block relay.
+    if (to.useCBR && this.useCBR) {
+      // Send compact block message.
+      this.uploadScheduler.request(to, () -> getCompactBlockSize(block),
+          delay -> new CmpctBlockMessageTask(this, to, block, delay));
+    } else {
+      // Else use lagacy protocol.
+      this.uploadScheduler.request(to, block::getSize,
+          delay -> new BlockMessageTask(this, to, block, delay));
     }
+  }
 
-    if (message instanceof CmpctBlockMessageTask) {
-      Block block = ((CmpctBlockMessageTask) message).getBlock();
-      float CBRfailureRate = this.isChurnNode ? CBR_FAILURE_RATE_FOR_CHURN_NODE : CBR_FAILURE_RATE_FOR_CONTROL_NODE;
-      boolean success = random.nextDouble() > CBRfailureRate ? true : false;
-      if (success) {
-        downloadingBlocks.remove(block);
-        this.receiveBlock(block);
-      } else {
-        AbstractMessageTask task = new GetBlockTxnMessageTask(this, from, block);
-        putTask(task);
-      }
+  @Override
+  public void handleGetBlockTxn(GetBlockTxnMessageTask message) {
+    Node to = message.getFrom();
+    Block block = message.getBlock();
+    int missing = message.getNumOfMissingTransactions();
+    long transactionSize = this.context.getParameters().getTransactionSize();
+    // Send the missing transactions, or the part of the block CBR failed to rebuild
+    this.uploadScheduler.request(to,
+        () -> missing < 0 ? getFailedBlockSize(block) : missing * transactionSize,
+        delay -> new BlockMessageTask(this, to, block, delay));
+  }
+
+  @Override
+  public void handleCmpctBlock(CmpctBlockMessageTask message) {
+    Block block = message.getBlock();
+    int missing = -1;
+    boolean success;
+    if (this.mempool != null) {
+      // Reconstruct the block from the transactions of the mempool
+      this.mempool.sync(this.context.getTimer().getCurrentTime(), this.block);
+      missing = this.mempool.countMissing(block);
+      success = missing == 0;
+    } else {
+      SimulationParameters parameters = this.context.getParameters();
+      float CBRfailureRate = this.isChurnNode ? parameters.getCbrFailureRateForChurnNode()
+          : parameters.getCbrFailureRateForControlNode();
+      success = this.random.nextDouble() > CBRfailureRate ? true : false;
     }
+    if (success) {
+      this.validateBlock(block);
+    } else {
+      AbstractMessageTask task = new GetBlockTxnMessageTask(
+          this, message.getFrom(), block, missing);
+      this.context.getTimer().putTask(task);
+    }
+  }
 
-    if (message instanceof BlockMessageTask) {
-      Block block = ((BlockMessageTask) message).getBlock();
-      downloadingBlocks.remove(block);
-      this.receiveBlock(block);
+  @Override
+  public void handleBlock(BlockMessageTask message) {
+    this.validateBlock(message.getBlock());
+  }
+
+  /**
+   * Validates a block downloaded from another node. With relay before validation, a block that
+   * would extend the chain of the node is advertised at once, and not again once validated.
+   *
+   * @param block - the block
+   */
+  private void validateBlock(Block block) {
+    if (this.context.getParameters().isRelayBeforeValidation()
+        && this.consensusAlgo.isReceivedBlockValid(block, this.block)) {
+      this.sendInv(block);
     }
+    this.blockValidator.submit(block);
+  }
+
+  /**
+   * Handles a block once one of the verification cores has validated it, and starts validating
+   * the next queued block.
+   *
+   * @param block the block
+   */
+  public void completeValidation(Block block) {
+    this.receiveValidatedBlock(block);
+    this.blockValidator.complete();
+  }
+
+  /**
+   * Handles a validated block downloaded from another node.
+   *
+   * @param block - the block
+   */
+  void receiveValidatedBlock(Block block) {
+    this.downloadingBlocks.remove(block.getId());
+    this.receiveBlock(block, !this.context.getParameters().isRelayBeforeValidation());
   }
 
   /**
    * Gets block size when the node fails compact block relay.
+   *
+   * @param block - the block
+   * @return the size of the missing part of the block in bytes
    */
-  private long getFailedBlockSize() {
+  private long getFailedBlockSize(Block block) {
+    long blockSize = block.getSize();
     if (this.isChurnNode) {
-      int index = random.nextInt(CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CHURN_NODE.length);
-      return (long) (BLOCK_SIZE * CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CHURN_NODE[index]);
+      int index = this.random.nextInt(CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CHURN_NODE.length);
+      return (long) (blockSize * CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CHURN_NODE[index]);
     } else {
-      int index = random.nextInt(CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CONTROL_NODE.length);
-      return (long) (BLOCK_SIZE * CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CONTROL_NODE[index]);
+      int index = this.random.nextInt(
+          CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CONTROL_NODE.length);
+      return (long) (blockSize * CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CONTROL_NODE[index]);
     }
   }
 
   /**
-   * Send next block message.
-   */
-  // send a block to the sender of the next queued recMessage
-  public void sendNextBlockMessage() {
-    if (this.messageQue.size() > 0) {
-      Node to = this.messageQue.get(0).getFrom();
-      long bandwidth = getBandwidth(this.getRegion(), to.getRegion());
-
-      AbstractMessageTask messageTask;
-
-      if (this.messageQue.get(0) instanceof RecMessageTask) {
-        Block block = ((RecMessageTask) this.messageQue.get(0)).getBlock();
-        // If use compact block relay.
-        if (this.messageQue.get(0).getFrom().useCBR && this.useCBR) {
-          // Convert bytes to bits and divide by the bandwidth expressed as bit per
-          // millisecond, add
-          // processing time.
-          long delay = COMPACT_BLOCK_SIZE * 8 / (bandwidth / 1000) + processingTime;
-
-          // Send compact block message.
-          messageTask = new CmpctBlockMessageTask(this, to, block, delay);
-        } else {
-          // Else use lagacy protocol.
-          long delay = BLOCK_SIZE * 8 / (bandwidth / 1000) + processingTime;
-          messageTask = new BlockMessageTask(this, to, block, delay);
-        }
-      } else if (this.messageQue.get(0) instanceof GetBlockTxnMessageTask) {
-        // Else from requests missing transactions.
-        Block block = ((GetBlockTxnMessageTask) this.messageQue.get(0)).getBlock();
-        long delay = getFailedBlockSize() * 8 / (bandwidth / 1000) + processingTime;
-        messageTask = new BlockMessageTask(this, to, block, delay);
-      } else {
-        throw new UnsupportedOperationException();
-      }
+   * Gets the size of the compact block of a block, COMPACT_BLOCK_SIZE for a block of BLOCK_SIZE
+   * and in proportion to its size otherwise.
+   *
+   * @param block - the block
+   * @return the size of the compact block in bytes
+   */
+  private long getCompactBlockSize(Block block) {
+    SimulationParameters parameters = this.context.getParameters();
+    return parameters.getCompactBlockSize() * block.getSize() / parameters.getBlockSize();
+  }
 
-      sendingBlock = true;
-      this.messageQue.remove(0);
-      putTask(messageTask);
-    } else {
-      sendingBlock = false;
-    }
+  /**
+   * Sends the block messages of the uploads that have finished, frees the released upload slots
+   * and starts uploading the next queued block requests.
+   */
+  public void completeUploads() {
+    this.uploadScheduler.complete();
   }
 }
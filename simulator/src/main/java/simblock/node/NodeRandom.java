@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simblock.node;
+
+import java.util.Random;
+
+/**
+ * The type NodeRandom is the random number generator of a node. It produces the same numbers as
+ * {@link Random} for the same seed, but its state can be saved and restored, so that the
+ * optimistic engine can undo the draws of a node.
+ */
+public class NodeRandom extends Random {
+  private static final long serialVersionUID = 1L;
+  private static final long MULTIPLIER = 0x5DEECE66DL;
+  private static final long ADDEND = 0xBL;
+  private static final long MASK = (1L << 48) - 1;
+
+  /**
+   * The state of the linear congruential generator.
+   */
+  private long seed;
+
+  /**
+   * The second of the pair of gaussian numbers generated together.
+   */
+  private double nextNextGaussian;
+
+  /**
+   * Whether the second gaussian number has not been returned yet.
+   */
+  private boolean haveNextNextGaussian;
+
+  /**
+   * Instantiates a new NodeRandom.
+   *
+   * @param seed the initial seed
+   */
+  public NodeRandom(long seed) {
+    super(seed);
+  }
+
+  @Override
+  public synchronized void setSeed(long seed) {
+    this.seed = (seed ^ MULTIPLIER) & MASK;
+    this.haveNextNextGaussian = false;
+  }
+
+  @Override
+  protected int next(int bits) {
+    this.seed = (this.seed * MULTIPLIER + ADDEND) & MASK;
+    return (int) (this.seed >>> (48 - bits));
+  }
+
+  @Override
+  public synchronized double nextGaussian() {
+    // See Knuth, TAOCP, Vol. 2, 3rd edition, Section 3.4.1 Algorithm C.
+    if (this.haveNextNextGaussian) {
+      this.haveNextNextGaussian = false;
+      return this.nextNextGaussian;
+    }
+    double v1;
+    double v2;
+    double s;
+    do {
+      v1 = 2 * this.nextDouble() - 1;
+      v2 = 2 * this.nextDouble() - 1;
+      s = v1 * v1 + v2 * v2;
+    } while (s >= 1 || s == 0);
+    double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+    this.nextNextGaussian = v2 * multiplier;
+    this.haveNextNextGaussian = true;
+    return v1 * multiplier;
+  }
+
+  /**
+   * Gets the state of the linear congruential generator.
+   *
+   * @return the seed
+   */
+  long getSeed() {
+    return this.seed;
+  }
+
+  /**
+   * Gets the pending gaussian number.
+   *
+   * @return the gaussian number or NaN if there is none
+   */
+  double getNextNextGaussian() {
+    return this.haveNextNextGaussian ? this.nextNextGaussian : Double.NaN;
+  }
+
+  /**
+   * Restores a saved state.
+   *
+   * @param seed             the state of the linear congruential generator
+   * @param nextNextGaussian the pending gaussian number or NaN if there is none
+   */
+  void restore(long seed, double nextNextGaussian) {
+    this.seed = seed;
+    this.haveNextNextGaussian = !Double.isNaN(nextNextGaussian);
+    this.nextNextGaussian = nextNextGaussian;
+  }
+}
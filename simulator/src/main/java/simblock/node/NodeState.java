@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simblock.node;
+
+import simblock.block.Block;
+import simblock.block.BlockIdSet;
+import simblock.task.AbstractMintingTask;
+
+/**
+ * The type NodeState is a checkpoint of the part of the state of a {@link Node} that changes
+ * when the node handles a task, used by the optimistic engine to undo tasks.
+ */
+public class NodeState {
+  private final Block block;
+  private final BlockIdSet orphans;
+  private final AbstractMintingTask mintingTask;
+  private final UploadScheduler uploadScheduler;
+  private final BlockValidator blockValidator;
+  private final BlockIdSet downloadingBlocks;
+  private final long seed;
+  private final double nextNextGaussian;
+
+  /**
+   * Saves the state of a node.
+   *
+   * @param block             - the current block
+   * @param orphans           - a copy of the orphans
+   * @param mintingTask       - the current minting task
+   * @param uploadScheduler   - a copy of the upload scheduler
+   * @param blockValidator    - a copy of the block validator
+   * @param downloadingBlocks - a copy of the blocks being downloaded
+   * @param random            - the random number generator
+   */
+  NodeState(
+      Block block, BlockIdSet orphans, AbstractMintingTask mintingTask,
+      UploadScheduler uploadScheduler, BlockValidator blockValidator,
+      BlockIdSet downloadingBlocks, NodeRandom random) {
+    this.block = block;
+    this.orphans = orphans;
+    this.mintingTask = mintingTask;
+    this.uploadScheduler = uploadScheduler;
+    this.blockValidator = blockValidator;
+    this.downloadingBlocks = downloadingBlocks;
+    this.seed = random.getSeed();
+    this.nextNextGaussian = random.getNextNextGaussian();
+  }
+
+  /**
+   * Gets the current block.
+   *
+   * @return the block
+   */
+  Block getBlock() {
+    return this.block;
+  }
+
+  /**
+   * Gets the orphans.
+   *
+   * @return the orphans
+   */
+  BlockIdSet getOrphans() {
+    return this.orphans;
+  }
+
+  /**
+   * Gets the current minting task.
+   *
+   * @return the minting task
+   */
+  AbstractMintingTask getMintingTask() {
+    return this.mintingTask;
+  }
+
+  /**
+   * Gets the upload scheduler.
+   *
+   * @return the upload scheduler
+   */
+  UploadScheduler getUploadScheduler() {
+    return this.uploadScheduler;
+  }
+
+  /**
+   * Gets the block validator.
+   *
+   * @return the block validator
+   */
+  BlockValidator getBlockValidator() {
+    return this.blockValidator;
+  }
+
+  /**
+   * Gets the blocks being downloaded.
+   *
+   * @return the blocks
+   */
+  BlockIdSet getDownloadingBlocks() {
+    return this.downloadingBlocks;
+  }
+
+  /**
+   * Restores the random number generator.
+   *
+   * @param random the random number generator
+   */
+  void restoreRandom(NodeRandom random) {
+    random.restore(this.seed, this.nextNextGaussian);
+  }
+}
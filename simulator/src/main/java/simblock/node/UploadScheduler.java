@@ -0,0 +1,440 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.node;
+
+import static simblock.simulator.Network.getBandwidth;
+import static simblock.simulator.Network.getUploadBandwidth;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+import simblock.simulator.Timer;
+import simblock.task.AbstractMessageTask;
+import simblock.task.UploadCompleteTask;
+
+/**
+ * The type UploadScheduler uploads the blocks requested from a node. It runs up to
+ * {@link simblock.settings.SimulationConfiguration#MAX_CONCURRENT_UPLOADS} uploads at the same
+ * time and queues further requests in arrival order. An upload holds its slot until the receiver
+ * gets the block message, or only until the block has been sent with
+ * {@link simblock.settings.SimulationConfiguration#RELEASE_UPLOAD_ON_SEND}.
+ *
+ * <p>Uploads that are sending share the upload bandwidth of the node max-min fairly: each upload
+ * gets an equal share, capped by the bandwidth to its receiver, and the share an upload cannot use
+ * is split among the others. Rates only change when an upload starts or finishes sending, the
+ * scheduler then accounts for the bits sent since the last change and moves a single
+ * {@link UploadCompleteTask} to the next change.
+ *
+ * <p>The block message of an upload is sent as soon as its arrival is known: when the upload
+ * finishes sending, or when it starts if no other upload can change its rate before then. A single
+ * upload at a time thus sends its message when it starts, and frees its slot with the arrival.
+ */
+class UploadScheduler {
+  /**
+   * The uploading node.
+   */
+  private final Node node;
+
+  /**
+   * The maximum number of concurrent uploads.
+   */
+  private final int maxUploads;
+
+  /**
+   * The time the node takes to prepare a block message, added to its delay.
+   */
+  private final long processingTime;
+
+  /**
+   * Whether an upload frees its slot when the block has been sent rather than received.
+   */
+  private final boolean releaseOnSend;
+
+  /**
+   * The requests waiting for a slot, in arrival order.
+   */
+  private final ArrayDeque<Request> requests = new ArrayDeque<>();
+
+  /**
+   * The uploads holding a slot, sorted by increasing maximum rate.
+   */
+  private final ArrayList<Upload> uploads = new ArrayList<>();
+
+  /**
+   * The time up to which the bits sent by the running uploads have been accounted for.
+   */
+  private long updateTime = 0;
+
+  /**
+   * The task marking the next change of the uploads, null if no upload is running.
+   */
+  private UploadCompleteTask completeTask = null;
+
+  /**
+   * The time of the task marking the next change of the uploads.
+   */
+  private long completeTime = 0;
+
+  /**
+   * Instantiates a new idle scheduler.
+   *
+   * @param node           - the uploading node
+   * @param maxUploads     - the maximum number of concurrent uploads
+   * @param processingTime - the time the node takes to prepare a block message
+   * @param releaseOnSend  - whether an upload frees its slot when the block has been sent
+   */
+  UploadScheduler(Node node, int maxUploads, long processingTime, boolean releaseOnSend) {
+    this.node = node;
+    this.maxUploads = maxUploads;
+    this.processingTime = processingTime;
+    this.releaseOnSend = releaseOnSend;
+  }
+
+  /**
+   * Copies the state of a scheduler.
+   *
+   * @return the copy
+   */
+  UploadScheduler copy() {
+    UploadScheduler copy = new UploadScheduler(
+        this.node, this.maxUploads, this.processingTime, this.releaseOnSend);
+    copy.restore(this);
+    return copy;
+  }
+
+  /**
+   * Restores the state of a copy returned by {@link #copy()}, which is left unchanged.
+   *
+   * @param saved the copy
+   */
+  void restore(UploadScheduler saved) {
+    this.requests.clear();
+    this.requests.addAll(saved.requests);
+    this.uploads.clear();
+    for (Upload upload : saved.uploads) {
+      this.uploads.add(upload.copy());
+    }
+    this.updateTime = saved.updateTime;
+    this.completeTask = saved.completeTask;
+    this.completeTime = saved.completeTime;
+  }
+
+  /**
+   * Queues a block request, and starts uploading it if a slot is free. The size of the upload is
+   * only asked for when it starts.
+   *
+   * @param to      the requesting node
+   * @param size    the size of the upload in bytes
+   * @param message the block message answering the request, created from its delay
+   */
+  void request(Node to, LongSupplier size, LongFunction<AbstractMessageTask> message) {
+    this.requests.addLast(new Request(to, size, message));
+    if (this.uploads.size() < this.maxUploads) {
+      this.advance(this.getTimer().getCurrentTime());
+    }
+  }
+
+  /**
+   * Sends the block messages of the uploads that have finished sending, frees the slots that have
+   * been released and starts uploading the next queued requests.
+   */
+  void complete() {
+    this.completeTask = null;
+    this.advance(this.getTimer().getCurrentTime());
+  }
+
+  /**
+   * Gets the timer of the simulation.
+   *
+   * @return the timer
+   */
+  private Timer getTimer() {
+    return this.node.getContext().getTimer();
+  }
+
+  /**
+   * Brings the uploads up to date with a time. Uploads that finish sending or free their slot at
+   * that very time change the others, so this repeats until nothing changes.
+   *
+   * @param time - the time
+   */
+  private void advance(long time) {
+    this.update(time);
+    boolean changed = true;
+    while (changed) {
+      changed = this.release(time);
+      changed |= this.startUploads(time);
+      this.share(time);
+      changed |= this.sendMessages(time);
+    }
+    this.reschedule(time);
+  }
+
+  /**
+   * Accounts for the bits sent by the sending uploads up to a time.
+   *
+   * @param time - the time
+   */
+  private void update(long time) {
+    for (Upload upload : this.uploads) {
+      if (upload.message == null) {
+        upload.remainingBits -= (time - this.updateTime) * upload.rate;
+      }
+    }
+    this.updateTime = time;
+  }
+
+  /**
+   * Frees the slots of the uploads released by a time.
+   *
+   * @param time - the time
+   * @return whether a slot was freed
+   */
+  private boolean release(long time) {
+    return this.uploads.removeIf(upload -> upload.message != null && upload.releaseTime <= time);
+  }
+
+  /**
+   * Starts uploading queued requests up to the maximum number of uploads.
+   *
+   * @param time - the time
+   * @return whether an upload was started
+   */
+  private boolean startUploads(long time) {
+    boolean started = false;
+    while (this.uploads.size() < this.maxUploads && !this.requests.isEmpty()) {
+      Request request = this.requests.pollFirst();
+      // Convert bytes to bits and the bandwidth to bits per millisecond
+      Upload upload = new Upload(request, time, request.size.getAsLong() * 8.0,
+          getBandwidth(this.node.getRegion(), request.to.getRegion()) / 1000);
+      int index = this.uploads.size();
+      while (index > 0 && this.uploads.get(index - 1).maxRate > upload.maxRate) {
+        index--;
+      }
+      this.uploads.add(index, upload);
+      started = true;
+    }
+    return started;
+  }
+
+  /**
+   * Shares the upload bandwidth among the uploads that are sending and computes when they finish.
+   * Uploads whose message has been sent keep the rate their arrival was computed with.
+   *
+   * @param time - the time
+   */
+  private void share(long time) {
+    double bandwidth = getUploadBandwidth(this.node.getRegion()) / 1000;
+    int sharing = 0;
+    for (Upload upload : this.uploads) {
+      if (upload.finishTime > time && upload.message != null) {
+        bandwidth -= upload.rate;
+      } else if (upload.message == null) {
+        sharing++;
+      }
+    }
+    // Uploads are sorted by maximum rate, so once an upload is capped by its maximum rate the
+    // bandwidth left is shared equally among uploads that can use it
+    for (Upload upload : this.uploads) {
+      if (upload.message == null) {
+        upload.rate = Math.min(upload.maxRate, bandwidth / sharing--);
+        bandwidth -= upload.rate;
+        upload.finishTime = time + (long) Math.floor(upload.remainingBits / upload.rate);
+      }
+    }
+  }
+
+  /**
+   * Sends the block messages whose arrival is known: those of the uploads that have finished
+   * sending, and that of an upload that is the only one sending if no slot can be freed before it
+   * finishes.
+   *
+   * @param time - the time
+   * @return whether an upload finished sending
+   */
+  private boolean sendMessages(long time) {
+    boolean finished = false;
+    Upload sending = null;
+    int numSending = 0;
+    long nextRelease = Long.MAX_VALUE;
+    for (Upload upload : this.uploads) {
+      if (upload.message != null) {
+        nextRelease = Math.min(nextRelease, upload.releaseTime);
+      } else if (upload.finishTime <= time) {
+        this.send(upload);
+        finished = true;
+      } else {
+        sending = upload;
+        numSending++;
+      }
+    }
+    if (!finished && numSending == 1 && this.uploads.size() == this.maxUploads
+        && nextRelease >= sending.finishTime) {
+      this.send(sending);
+    }
+    return finished;
+  }
+
+  /**
+   * Sends the block message of an upload, which reaches the requesting node its latency and the
+   * message processing time after the upload finishes sending. The message spans the upload, so
+   * that its reception logs the whole transmission.
+   *
+   * @param upload - the upload
+   */
+  private void send(Upload upload) {
+    upload.message = upload.request.message.apply(
+        upload.finishTime - upload.startTime + this.processingTime);
+    upload.releaseTime = this.releaseOnSend ? upload.finishTime
+        : upload.startTime + upload.message.getInterval();
+    this.getTimer().putTaskAbsoluteTime(
+        upload.message, upload.startTime + upload.message.getInterval());
+  }
+
+  /**
+   * Moves the task marking the next change of the uploads: the next upload to finish sending
+   * before its message is sent, or the next slot to be freed.
+   *
+   * @param time - the time
+   */
+  private void reschedule(long time) {
+    long nextTime = Long.MAX_VALUE;
+    for (Upload upload : this.uploads) {
+      nextTime = Math.min(nextTime,
+          upload.message == null ? upload.finishTime : upload.releaseTime);
+    }
+
+    if (this.completeTask != null && this.completeTime != nextTime) {
+      this.getTimer().removeTask(this.completeTask);
+      this.completeTask = null;
+    }
+    if (this.completeTask == null && !this.uploads.isEmpty()) {
+      this.completeTask = new UploadCompleteTask(this.node, nextTime - time);
+      this.completeTime = nextTime;
+      this.getTimer().putTask(this.completeTask);
+    }
+  }
+
+  /**
+   * A queued block request.
+   */
+  private static final class Request {
+    /**
+     * The requesting node.
+     */
+    private final Node to;
+
+    /**
+     * The size of the upload in bytes.
+     */
+    private final LongSupplier size;
+
+    /**
+     * The block message answering the request, created from its delay.
+     */
+    private final LongFunction<AbstractMessageTask> message;
+
+    /**
+     * Instantiates a new request.
+     *
+     * @param to      - the requesting node
+     * @param size    - the size of the upload in bytes
+     * @param message - the block message answering the request
+     */
+    private Request(Node to, LongSupplier size, LongFunction<AbstractMessageTask> message) {
+      this.to = to;
+      this.size = size;
+      this.message = message;
+    }
+  }
+
+  /**
+   * An upload holding a slot.
+   */
+  private static final class Upload {
+    /**
+     * The request being answered.
+     */
+    private final Request request;
+
+    /**
+     * The time the upload started.
+     */
+    private final long startTime;
+
+    /**
+     * The rate of the upload when it has the bandwidth of the node to itself, in bits per
+     * millisecond.
+     */
+    private final double maxRate;
+
+    /**
+     * The number of bits left to send.
+     */
+    private double remainingBits;
+
+    /**
+     * The current rate of the upload, in bits per millisecond.
+     */
+    private double rate = 0;
+
+    /**
+     * The time the upload finishes sending at the current rate.
+     */
+    private long finishTime = 0;
+
+    /**
+     * The block message, null until its arrival is known.
+     */
+    private AbstractMessageTask message = null;
+
+    /**
+     * The time the upload frees its slot, once its message has been sent.
+     */
+    private long releaseTime = 0;
+
+    /**
+     * Instantiates a new upload.
+     *
+     * @param request       - the request being answered
+     * @param startTime     - the time the upload started
+     * @param remainingBits - the number of bits to send
+     * @param maxRate       - the rate of the upload when it has the bandwidth to itself
+     */
+    private Upload(Request request, long startTime, double remainingBits, double maxRate) {
+      this.request = request;
+      this.startTime = startTime;
+      this.remainingBits = remainingBits;
+      this.maxRate = maxRate;
+    }
+
+    /**
+     * Copies the upload.
+     *
+     * @return the copy
+     */
+    private Upload copy() {
+      Upload copy = new Upload(this.request, this.startTime, this.remainingBits, this.maxRate);
+      copy.rate = this.rate;
+      copy.finishTime = this.finishTime;
+      copy.message = this.message;
+      copy.releaseTime = this.releaseTime;
+      return copy;
+    }
+  }
+}
@@ -16,10 +16,8 @@
 
 package simblock.node.consensus;
 
-import static simblock.simulator.Main.random;
-
-import java.math.BigInteger;
 import simblock.block.Block;
+import simblock.block.Difficulty;
 import simblock.block.ProofOfWorkBlock;
 import simblock.node.Node;
 import simblock.task.MiningTask;
@@ -45,8 +43,8 @@ public class ProofOfWork extends AbstractConsensusAlgo {
   public MiningTask minting() {
     Node selfNode = this.getSelfNode();
     ProofOfWorkBlock parent = (ProofOfWorkBlock) selfNode.getBlock();
-    BigInteger difficulty = parent.getNextDifficulty();
-    double u = random.nextDouble();
+    Difficulty difficulty = parent.getNextDifficulty();
+    double u = selfNode.getRandom().nextDouble();
     return new MiningTask(selfNode, (long) (- Math.log(1 - u) * difficulty.doubleValue() / selfNode.getMiningPower()), difficulty);
   }
 
@@ -68,8 +66,13 @@ public class ProofOfWork extends AbstractConsensusAlgo {
     ProofOfWorkBlock recPoWBlock = (ProofOfWorkBlock) receivedBlock;
     ProofOfWorkBlock currPoWBlock = (ProofOfWorkBlock) currentBlock;
     int receivedBlockHeight = receivedBlock.getHeight();
-    ProofOfWorkBlock receivedBlockParent = receivedBlockHeight == 0 ? null :
-        (ProofOfWorkBlock) receivedBlock.getBlockWithHeight(receivedBlockHeight - 1);
+    Block parent = receivedBlockHeight == 0 ? null :
+        receivedBlock.getBlockWithHeight(receivedBlockHeight - 1);
+    if (receivedBlockHeight > 0 && !(parent instanceof ProofOfWorkBlock)) {
+      // Only the archive of the parent is left below the finality depth
+      return false;
+    }
+    ProofOfWorkBlock receivedBlockParent = (ProofOfWorkBlock) parent;
 
     //TODO - dangerous to split due to short circuit operators being used, refactor?
     return (
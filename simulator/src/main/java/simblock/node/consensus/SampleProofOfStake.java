@@ -16,10 +16,8 @@
 
 package simblock.node.consensus;
 
-import static simblock.simulator.Main.random;
-
-import java.math.BigInteger;
 import simblock.block.Block;
+import simblock.block.Difficulty;
 import simblock.block.SamplePoSBlock;
 import simblock.node.Node;
 import simblock.task.SampleStakingTask;
@@ -42,9 +40,9 @@ public class SampleProofOfStake extends AbstractConsensusAlgo {
   public SampleStakingTask minting() {
     Node selfNode = this.getSelfNode();
     SamplePoSBlock parent = (SamplePoSBlock) selfNode.getBlock();
-    BigInteger difficulty = parent.getNextDifficulty();
-    double p = parent.getCoinage(selfNode).getCoinage().doubleValue() / difficulty.doubleValue();
-    double u = random.nextDouble();
+    Difficulty difficulty = parent.getNextDifficulty();
+    double p = parent.getMintingProbability(selfNode);
+    double u = selfNode.getRandom().nextDouble();
     return p <= Math.pow(2, -53) ? null : new SampleStakingTask(selfNode,
                                                                 (long) (Math.log(u) / Math.log(
                                                                     1.0 - p) * 1000), difficulty
@@ -60,8 +58,13 @@ public class SampleProofOfStake extends AbstractConsensusAlgo {
     SamplePoSBlock recPoSBlock = (SamplePoSBlock) receivedBlock;
     SamplePoSBlock currPoSBlock = (SamplePoSBlock) currentBlock;
     int receivedBlockHeight = receivedBlock.getHeight();
-    SamplePoSBlock receivedBlockParent = receivedBlockHeight == 0 ? null :
-        (SamplePoSBlock) receivedBlock.getBlockWithHeight(receivedBlockHeight - 1);
+    Block parent = receivedBlockHeight == 0 ? null :
+        receivedBlock.getBlockWithHeight(receivedBlockHeight - 1);
+    if (receivedBlockHeight > 0 && !(parent instanceof SamplePoSBlock)) {
+      // Only the archive of the parent is left below the finality depth
+      return false;
+    }
+    SamplePoSBlock receivedBlockParent = (SamplePoSBlock) parent;
 
     //TODO - dangerous to split due to short circuit operators being used, refactor?
     return (
@@ -16,14 +16,11 @@
 
 package simblock.node.routing;
 
-import static simblock.simulator.Main.OUT_JSON_FILE;
-import static simblock.simulator.Main.random;
-import static simblock.simulator.Simulator.getSimulatedNodes;
-import static simblock.simulator.Timer.getCurrentTime;
-
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import simblock.node.Node;
+import simblock.simulator.SimulationContext;
 
 /**
  * The implementation of the {@link AbstractRoutingTable} representing the
@@ -72,14 +69,16 @@ public class BitcoinCoreTable extends AbstractRoutingTable {
    */
   // TODO this should be done using the bootstrap node
   public void initTable() {
+    SimulationContext context = this.getSelfNode().getContext();
+    List<Node> simulatedNodes = context.getSimulator().getSimulatedNodes();
     ArrayList<Integer> candidates = new ArrayList<>();
-    for (int i = 0; i < getSimulatedNodes().size(); i++) {
+    for (int i = 0; i < simulatedNodes.size(); i++) {
       candidates.add(i);
     }
-    Collections.shuffle(candidates, random);
+    Collections.shuffle(candidates, context.getRandom());
     for (int candidate : candidates) {
       if (this.outbound.size() < this.getNumConnection()) {
-        this.addNeighbor(getSimulatedNodes().get(candidate));
+        this.addNeighbor(simulatedNodes.get(candidate));
       } else {
         break;
       }
@@ -160,28 +159,16 @@ public class BitcoinCoreTable extends AbstractRoutingTable {
 
   // TODO add example
   private void printAddLink(Node endNode) {
-    OUT_JSON_FILE.print("{");
-    OUT_JSON_FILE.print("\"kind\":\"add-link\",");
-    OUT_JSON_FILE.print("\"content\":{");
-    OUT_JSON_FILE.print("\"timestamp\":" + getCurrentTime() + ",");
-    OUT_JSON_FILE.print("\"begin-node-id\":" + getSelfNode().getNodeID() + ",");
-    OUT_JSON_FILE.print("\"end-node-id\":" + endNode.getNodeID());
-    OUT_JSON_FILE.print("}");
-    OUT_JSON_FILE.print("},");
-    OUT_JSON_FILE.flush();
+    SimulationContext context = this.getSelfNode().getContext();
+    context.getEventSink().addLink(
+        context.getTimer().getCurrentTime(), getSelfNode().getNodeID(), endNode.getNodeID());
   }
 
   // TODO add example
   private void printRemoveLink(Node endNode) {
-    OUT_JSON_FILE.print("{");
-    OUT_JSON_FILE.print("\"kind\":\"remove-link\",");
-    OUT_JSON_FILE.print("\"content\":{");
-    OUT_JSON_FILE.print("\"timestamp\":" + getCurrentTime() + ",");
-    OUT_JSON_FILE.print("\"begin-node-id\":" + getSelfNode().getNodeID() + ",");
-    OUT_JSON_FILE.print("\"end-node-id\":" + endNode.getNodeID());
-    OUT_JSON_FILE.print("}");
-    OUT_JSON_FILE.print("},");
-    OUT_JSON_FILE.flush();
+    SimulationContext context = this.getSelfNode().getContext();
+    context.getEventSink().removeLink(
+        context.getTimer().getCurrentTime(), getSelfNode().getNodeID(), endNode.getNodeID());
   }
 
 }
@@ -20,6 +20,11 @@ package simblock.settings;
  * The type Simulation configuration allows for specific simulation instance configuration.
  */
 public class SimulationConfiguration {
+  /**
+   * The seed of the random number generator of a simulation.
+   */
+  public static final long SEED = 10;
+
   /**
    * The number of nodes participating in the blockchain network.
    */
@@ -32,6 +37,75 @@ public class SimulationConfiguration {
    */
   public static final String TABLE = "simblock.node.routing.BitcoinCoreTable";
 
+  /**
+   * The kind of task queue used as the Future Event List of the simulator. One of
+   * "simblock.simulator.queue.PrimitiveHeapTaskQueue", an allocation-free binary heap over
+   * primitive arrays, "simblock.simulator.queue.HeapTaskQueue", a binary heap of objects, or
+   * "simblock.simulator.queue.CalendarTaskQueue", a calendar queue with amortized O(1)
+   * operations.
+   */
+  public static final String TASK_QUEUE = "simblock.simulator.queue.PrimitiveHeapTaskQueue";
+
+  /**
+   * The kind of engine executing the tasks. One of "simblock.simulator.engine.SequentialEngine",
+   * which runs on a single thread, "simblock.simulator.engine.ConservativeEngine", which runs
+   * the nodes on several threads in windows bounded by the minimum latency, or
+   * "simblock.simulator.engine.OptimisticEngine", which runs the nodes on several threads ahead
+   * of each other and rolls back on conflicts. All engines give the same results.
+   */
+  public static final String ENGINE = "simblock.simulator.engine.SequentialEngine";
+
+  /**
+   * The kind of event log. One of "simblock.simulator.log.JsonEventSink", which writes the JSON
+   * read by the visualizer to output.json, or "simblock.simulator.log.BinaryEventSink", which
+   * writes a compact binary columnar log to output.bin that
+   * simblock.simulator.log.BinaryLogConverter converts to the same JSON.
+   */
+  public static final String EVENT_SINK = "simblock.simulator.log.JsonEventSink";
+
+  /**
+   * The number of threads used by the parallel engine, and by the sweep and replication runners
+   * to run simulations at the same time.
+   */
+  public static final int NUM_OF_THREADS = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Whether the parallel engine runs the nodes of each region as one logical process, otherwise
+   * the nodes are split into one logical process per thread. Partitioning by region gives a
+   * larger lookahead, the minimum latency between regions instead of within a region.
+   */
+  public static final boolean PARTITION_BY_REGION = true;
+
+  /**
+   * The length of the windows of the optimistic engine, how far past the global virtual time the
+   * logical processes may execute tasks before they synchronize. Longer windows need fewer
+   * barriers but may undo more tasks. (unit: millisecond)
+   */
+  public static final long OPTIMISTIC_WINDOW = 500;
+
+  /**
+   * The confidence level of the confidence intervals estimated by the replication runner.
+   */
+  public static final double CONFIDENCE_LEVEL = 0.95;
+
+  /**
+   * The width of the confidence intervals, relative to the estimated mean, at which the
+   * replication runner stops running replications.
+   */
+  public static final double CONFIDENCE_INTERVAL_WIDTH = 0.1;
+
+  /**
+   * The number of replications the replication runner runs before it estimates confidence
+   * intervals.
+   */
+  public static final int MIN_REPLICATIONS = 5;
+
+  /**
+   * The number of replications after which the replication runner stops even if the confidence
+   * intervals are wider than {@link #CONFIDENCE_INTERVAL_WIDTH}.
+   */
+  public static final int MAX_REPLICATIONS = 100;
+
   /**
    * The consensus algorithm to be used.
    */
@@ -45,6 +119,18 @@ public class SimulationConfiguration {
    */
   public static final long INTERVAL = 1000 * 60 * 10;//1000*60;//1000*30*5;//1000*60*10;
 
+  /**
+   * The number of blocks over which the Proof of Work difficulty is retargeted to INTERVAL, e.g.
+   * 2016 as in Bitcoin. 0 keeps the difficulty of the genesis block.
+   */
+  public static final int DIFFICULTY_ADJUSTMENT_WINDOW = 0;
+
+  /**
+   * Whether the difficulty is retargeted at every block from a moving average of the intervals
+   * over DIFFICULTY_ADJUSTMENT_WINDOW blocks, instead of once per window of blocks as in Bitcoin.
+   */
+  public static final boolean DIFFICULTY_ADJUSTED_PER_BLOCK = false;
+
   /**
    * The average mining power of each node. Mining power corresponds to Hash Rate in Bitcoin, and
    * is the number of mining (hash calculation) executed per millisecond.
@@ -81,10 +167,93 @@ public class SimulationConfiguration {
   public static final int END_BLOCK_HEIGHT = 3;
 
   /**
-   * Block size. (unit: byte).
+   * The depth below which blocks are final. Older blocks are only kept in a compact archive, so
+   * memory use does not grow with the length of the chain. 0 keeps every block.
+   */
+  public static final int FINALITY_DEPTH = 0;
+
+  /**
+   * The maximum block size. (unit: byte).
    */
   public static final long BLOCK_SIZE = 535000;//6110;//8000;//535000;//0.5MB
 
+  /**
+   * The size of a transaction. (unit: byte)
+   */
+  public static final long TRANSACTION_SIZE = 500;
+
+  /**
+   * The number of transactions issued per second in the whole network. Transactions are relayed
+   * to the mempools of the nodes, blocks are filled from the mempool of their minter and compact
+   * blocks are reconstructed from the mempool of their receiver. 0 does not simulate
+   * transactions: blocks hold unspecified transactions and compact block relay fails at random
+   * with the rates below.
+   */
+  public static final double TRANSACTION_RATE = 0;
+
+  /**
+   * The maximum time a transaction takes to be relayed to a node, in addition to the latency
+   * from the region of its issuer. (unit: millisecond)
+   */
+  public static final long TRANSACTION_RELAY_DELAY = 5000;
+
+  /**
+   * The policy deciding how many transactions a block holds. One of
+   * "simblock.block.filling.FullBlockFilling", which fills every block up to BLOCK_SIZE, or
+   * "simblock.block.filling.RandomBlockFilling", which fills each block to a random size up to
+   * BLOCK_SIZE. The size of a block sets its transmission delay.
+   */
+  public static final String BLOCK_FILLING = "simblock.block.filling.FullBlockFilling";
+
+  /**
+   * The maximum number of blocks a node uploads at the same time. Further requests wait in a
+   * queue, and concurrent uploads share the upload bandwidth of the node max-min fairly. An upload
+   * holds its slot until the receiver gets the block.
+   */
+  public static final int MAX_CONCURRENT_UPLOADS = 1;
+
+  /**
+   * Whether an upload frees its slot as soon as the block has been sent, rather than when the
+   * receiver gets it. The node then does not wait for the latency and the message processing
+   * time before starting the next queued upload.
+   */
+  public static final boolean RELEASE_UPLOAD_ON_SEND = false;
+
+  /**
+   * The number of blocks a node validates at the same time. Further received blocks wait in a
+   * queue.
+   */
+  public static final int VALIDATION_CORES = 1;
+
+  /**
+   * The time a node takes to validate a block, whatever its content. The validation time of a
+   * block is the sum of this time and of the times per transaction and per kilobyte below, 0
+   * validates blocks instantly. (unit: millisecond)
+   */
+  public static final double VALIDATION_TIME_PER_BLOCK = 0;
+
+  /**
+   * The time a node takes to validate each transaction of a block. (unit: millisecond)
+   */
+  public static final double VALIDATION_TIME_PER_TRANSACTION = 0;
+
+  /**
+   * The time a node takes to validate each kilobyte of a block. (unit: millisecond)
+   */
+  public static final double VALIDATION_TIME_PER_KB = 0;
+
+  /**
+   * Whether a node advertises a received block that would extend its chain before validating
+   * it, as FIBRE does, rather than after.
+   */
+  public static final boolean RELAY_BEFORE_VALIDATION = false;
+
+  /**
+   * The time a node takes to prepare a block message once its upload has ended, added to the
+   * delay of every block and compact block message. (unit: millisecond)
+   */
+  public static final long MESSAGE_PROCESSING_TIME = 2;
+
   /**
    * The usage rate of compact block relay (CBR) protocol.
    */
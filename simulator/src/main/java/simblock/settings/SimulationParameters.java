@@ -0,0 +1,541 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.settings;
+
+import static simblock.settings.SimulationConfiguration.ALGO;
+import static simblock.settings.SimulationConfiguration.AVERAGE_COINS;
+import static simblock.settings.SimulationConfiguration.AVERAGE_MINING_POWER;
+import static simblock.settings.SimulationConfiguration.BLOCK_FILLING;
+import static simblock.settings.SimulationConfiguration.BLOCK_SIZE;
+import static simblock.settings.SimulationConfiguration.CBR_FAILURE_RATE_FOR_CHURN_NODE;
+import static simblock.settings.SimulationConfiguration.CBR_FAILURE_RATE_FOR_CONTROL_NODE;
+import static simblock.settings.SimulationConfiguration.CBR_USAGE_RATE;
+import static simblock.settings.SimulationConfiguration.CHURN_NODE_RATE;
+import static simblock.settings.SimulationConfiguration.COMPACT_BLOCK_SIZE;
+import static simblock.settings.SimulationConfiguration.DIFFICULTY_ADJUSTED_PER_BLOCK;
+import static simblock.settings.SimulationConfiguration.DIFFICULTY_ADJUSTMENT_WINDOW;
+import static simblock.settings.SimulationConfiguration.END_BLOCK_HEIGHT;
+import static simblock.settings.SimulationConfiguration.ENGINE;
+import static simblock.settings.SimulationConfiguration.EVENT_SINK;
+import static simblock.settings.SimulationConfiguration.FINALITY_DEPTH;
+import static simblock.settings.SimulationConfiguration.INTERVAL;
+import static simblock.settings.SimulationConfiguration.MAX_CONCURRENT_UPLOADS;
+import static simblock.settings.SimulationConfiguration.MESSAGE_PROCESSING_TIME;
+import static simblock.settings.SimulationConfiguration.NUM_OF_NODES;
+import static simblock.settings.SimulationConfiguration.RELAY_BEFORE_VALIDATION;
+import static simblock.settings.SimulationConfiguration.RELEASE_UPLOAD_ON_SEND;
+import static simblock.settings.SimulationConfiguration.SEED;
+import static simblock.settings.SimulationConfiguration.STAKING_REWARD;
+import static simblock.settings.SimulationConfiguration.STDEV_OF_COINS;
+import static simblock.settings.SimulationConfiguration.STDEV_OF_MINING_POWER;
+import static simblock.settings.SimulationConfiguration.TABLE;
+import static simblock.settings.SimulationConfiguration.TASK_QUEUE;
+import static simblock.settings.SimulationConfiguration.TRANSACTION_RATE;
+import static simblock.settings.SimulationConfiguration.TRANSACTION_RELAY_DELAY;
+import static simblock.settings.SimulationConfiguration.TRANSACTION_SIZE;
+import static simblock.settings.SimulationConfiguration.VALIDATION_CORES;
+import static simblock.settings.SimulationConfiguration.VALIDATION_TIME_PER_BLOCK;
+import static simblock.settings.SimulationConfiguration.VALIDATION_TIME_PER_KB;
+import static simblock.settings.SimulationConfiguration.VALIDATION_TIME_PER_TRANSACTION;
+
+/**
+ * The type SimulationParameters holds the parameters of one simulation that may differ between
+ * simulations run in the same JVM. Every parameter defaults to the constant of the same name in
+ * {@link SimulationConfiguration} and can be changed by that name with
+ * {@link #set(String, String)}.
+ */
+public class SimulationParameters {
+  private long seed = SEED;
+  private int numOfNodes = NUM_OF_NODES;
+  private String table = TABLE;
+  private String taskQueue = TASK_QUEUE;
+  private String engine = ENGINE;
+  private String eventSink = EVENT_SINK;
+  private String algo = ALGO;
+  private long interval = INTERVAL;
+  private int difficultyAdjustmentWindow = DIFFICULTY_ADJUSTMENT_WINDOW;
+  private boolean difficultyAdjustedPerBlock = DIFFICULTY_ADJUSTED_PER_BLOCK;
+  private int averageMiningPower = AVERAGE_MINING_POWER;
+  private int stdevOfMiningPower = STDEV_OF_MINING_POWER;
+  private int averageCoins = AVERAGE_COINS;
+  private int stdevOfCoins = STDEV_OF_COINS;
+  private double stakingReward = STAKING_REWARD;
+  private int endBlockHeight = END_BLOCK_HEIGHT;
+  private int finalityDepth = FINALITY_DEPTH;
+  private long blockSize = BLOCK_SIZE;
+  private long transactionSize = TRANSACTION_SIZE;
+  private String blockFilling = BLOCK_FILLING;
+  private int maxConcurrentUploads = MAX_CONCURRENT_UPLOADS;
+  private boolean releaseUploadOnSend = RELEASE_UPLOAD_ON_SEND;
+  private int validationCores = VALIDATION_CORES;
+  private double validationTimePerBlock = VALIDATION_TIME_PER_BLOCK;
+  private double validationTimePerTransaction = VALIDATION_TIME_PER_TRANSACTION;
+  private double validationTimePerKb = VALIDATION_TIME_PER_KB;
+  private boolean relayBeforeValidation = RELAY_BEFORE_VALIDATION;
+  private long messageProcessingTime = MESSAGE_PROCESSING_TIME;
+  private double transactionRate = TRANSACTION_RATE;
+  private long transactionRelayDelay = TRANSACTION_RELAY_DELAY;
+  private float cbrUsageRate = CBR_USAGE_RATE;
+  private float churnNodeRate = CHURN_NODE_RATE;
+  private long compactBlockSize = COMPACT_BLOCK_SIZE;
+  private float cbrFailureRateForControlNode = CBR_FAILURE_RATE_FOR_CONTROL_NODE;
+  private float cbrFailureRateForChurnNode = CBR_FAILURE_RATE_FOR_CHURN_NODE;
+
+  /**
+   * Sets a parameter by the name of its constant in {@link SimulationConfiguration}.
+   *
+   * @param name  the name of the parameter, e.g. "NUM_OF_NODES"
+   * @param value the value
+   * @throws IllegalArgumentException if there is no such parameter or the value is invalid
+   */
+  public void set(String name, String value) {
+    switch (name) {
+      case "SEED":
+        this.seed = Long.parseLong(value);
+        break;
+      case "NUM_OF_NODES":
+        this.numOfNodes = Integer.parseInt(value);
+        break;
+      case "TABLE":
+        this.table = value;
+        break;
+      case "TASK_QUEUE":
+        this.taskQueue = value;
+        break;
+      case "ENGINE":
+        this.engine = value;
+        break;
+      case "EVENT_SINK":
+        this.eventSink = value;
+        break;
+      case "ALGO":
+        this.algo = value;
+        break;
+      case "INTERVAL":
+        this.interval = Long.parseLong(value);
+        break;
+      case "DIFFICULTY_ADJUSTMENT_WINDOW":
+        this.difficultyAdjustmentWindow = Integer.parseInt(value);
+        break;
+      case "DIFFICULTY_ADJUSTED_PER_BLOCK":
+        this.difficultyAdjustedPerBlock = Boolean.parseBoolean(value);
+        break;
+      case "AVERAGE_MINING_POWER":
+        this.averageMiningPower = Integer.parseInt(value);
+        break;
+      case "STDEV_OF_MINING_POWER":
+        this.stdevOfMiningPower = Integer.parseInt(value);
+        break;
+      case "AVERAGE_COINS":
+        this.averageCoins = Integer.parseInt(value);
+        break;
+      case "STDEV_OF_COINS":
+        this.stdevOfCoins = Integer.parseInt(value);
+        break;
+      case "STAKING_REWARD":
+        this.stakingReward = Double.parseDouble(value);
+        break;
+      case "END_BLOCK_HEIGHT":
+        this.endBlockHeight = Integer.parseInt(value);
+        break;
+      case "FINALITY_DEPTH":
+        this.finalityDepth = Integer.parseInt(value);
+        break;
+      case "BLOCK_SIZE":
+        this.blockSize = Long.parseLong(value);
+        break;
+      case "TRANSACTION_SIZE":
+        this.transactionSize = Long.parseLong(value);
+        break;
+      case "BLOCK_FILLING":
+        this.blockFilling = value;
+        break;
+      case "MAX_CONCURRENT_UPLOADS":
+        this.maxConcurrentUploads = Integer.parseInt(value);
+        break;
+      case "RELEASE_UPLOAD_ON_SEND":
+        this.releaseUploadOnSend = Boolean.parseBoolean(value);
+        break;
+      case "VALIDATION_CORES":
+        this.validationCores = Integer.parseInt(value);
+        break;
+      case "VALIDATION_TIME_PER_BLOCK":
+        this.validationTimePerBlock = Double.parseDouble(value);
+        break;
+      case "VALIDATION_TIME_PER_TRANSACTION":
+        this.validationTimePerTransaction = Double.parseDouble(value);
+        break;
+      case "VALIDATION_TIME_PER_KB":
+        this.validationTimePerKb = Double.parseDouble(value);
+        break;
+      case "RELAY_BEFORE_VALIDATION":
+        this.relayBeforeValidation = Boolean.parseBoolean(value);
+        break;
+      case "MESSAGE_PROCESSING_TIME":
+        this.messageProcessingTime = Long.parseLong(value);
+        break;
+      case "TRANSACTION_RATE":
+        this.transactionRate = Double.parseDouble(value);
+        break;
+      case "TRANSACTION_RELAY_DELAY":
+        this.transactionRelayDelay = Long.parseLong(value);
+        break;
+      case "CBR_USAGE_RATE":
+        this.cbrUsageRate = Float.parseFloat(value);
+        break;
+      case "CHURN_NODE_RATE":
+        this.churnNodeRate = Float.parseFloat(value);
+        break;
+      case "COMPACT_BLOCK_SIZE":
+        this.compactBlockSize = Long.parseLong(value);
+        break;
+      case "CBR_FAILURE_RATE_FOR_CONTROL_NODE":
+        this.cbrFailureRateForControlNode = Float.parseFloat(value);
+        break;
+      case "CBR_FAILURE_RATE_FOR_CHURN_NODE":
+        this.cbrFailureRateForChurnNode = Float.parseFloat(value);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown parameter: " + name);
+    }
+  }
+
+  /**
+   * Sets the seed of the random number generator.
+   *
+   * @param seed the seed
+   */
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  /**
+   * Gets the seed of the random number generator.
+   *
+   * @return the seed
+   */
+  public long getSeed() {
+    return this.seed;
+  }
+
+  /**
+   * Gets the number of nodes participating in the blockchain network.
+   *
+   * @return the number of nodes
+   */
+  public int getNumOfNodes() {
+    return this.numOfNodes;
+  }
+
+  /**
+   * Gets the routing table class name.
+   *
+   * @return the class name
+   */
+  public String getTable() {
+    return this.table;
+  }
+
+  /**
+   * Gets the task queue class name.
+   *
+   * @return the class name
+   */
+  public String getTaskQueue() {
+    return this.taskQueue;
+  }
+
+  /**
+   * Gets the engine class name.
+   *
+   * @return the class name
+   */
+  public String getEngine() {
+    return this.engine;
+  }
+
+  /**
+   * Gets the event sink class name.
+   *
+   * @return the class name
+   */
+  public String getEventSink() {
+    return this.eventSink;
+  }
+
+  /**
+   * Gets the consensus algorithm class name.
+   *
+   * @return the class name
+   */
+  public String getAlgo() {
+    return this.algo;
+  }
+
+  /**
+   * Gets the expected value of block generation interval in milliseconds.
+   *
+   * @return the interval
+   */
+  public long getInterval() {
+    return this.interval;
+  }
+
+  /**
+   * Gets the number of blocks over which the difficulty is retargeted, 0 if it is never
+   * retargeted.
+   *
+   * @return the number of blocks
+   */
+  public int getDifficultyAdjustmentWindow() {
+    return this.difficultyAdjustmentWindow;
+  }
+
+  /**
+   * Tests if the difficulty is retargeted at every block rather than once per window.
+   *
+   * @return true if the difficulty is retargeted at every block
+   */
+  public boolean isDifficultyAdjustedPerBlock() {
+    return this.difficultyAdjustedPerBlock;
+  }
+
+  /**
+   * Gets the average mining power of each node.
+   *
+   * @return the average mining power
+   */
+  public int getAverageMiningPower() {
+    return this.averageMiningPower;
+  }
+
+  /**
+   * Gets the standard deviation of the mining power of each node.
+   *
+   * @return the standard deviation
+   */
+  public int getStdevOfMiningPower() {
+    return this.stdevOfMiningPower;
+  }
+
+  /**
+   * Gets the average coins of each node for proof of stake.
+   *
+   * @return the average coins
+   */
+  public int getAverageCoins() {
+    return this.averageCoins;
+  }
+
+  /**
+   * Gets the standard deviation of the coins of each node for proof of stake.
+   *
+   * @return the standard deviation
+   */
+  public int getStdevOfCoins() {
+    return this.stdevOfCoins;
+  }
+
+  /**
+   * Gets the reward a PoS minter gets for staking.
+   *
+   * @return the reward
+   */
+  public double getStakingReward() {
+    return this.stakingReward;
+  }
+
+  /**
+   * Gets the block height when the simulation ends.
+   *
+   * @return the block height
+   */
+  public int getEndBlockHeight() {
+    return this.endBlockHeight;
+  }
+
+  /**
+   * Gets the depth below which blocks are final, 0 if blocks are never pruned.
+   *
+   * @return the finality depth
+   */
+  public int getFinalityDepth() {
+    return this.finalityDepth;
+  }
+
+  /**
+   * Gets the block size in bytes.
+   *
+   * @return the block size
+   */
+  public long getBlockSize() {
+    return this.blockSize;
+  }
+
+  /**
+   * Gets the transaction size in bytes.
+   *
+   * @return the transaction size
+   */
+  public long getTransactionSize() {
+    return this.transactionSize;
+  }
+
+  /**
+   * Gets the block filling policy class name.
+   *
+   * @return the class name
+   */
+  public String getBlockFilling() {
+    return this.blockFilling;
+  }
+
+  /**
+   * Gets the maximum number of blocks a node uploads at the same time.
+   *
+   * @return the number of uploads
+   */
+  public int getMaxConcurrentUploads() {
+    return this.maxConcurrentUploads;
+  }
+
+  /**
+   * Gets whether an upload frees its slot as soon as the block has been sent.
+   *
+   * @return true if uploads are released when sent, false if when received
+   */
+  public boolean isReleaseUploadOnSend() {
+    return this.releaseUploadOnSend;
+  }
+
+  /**
+   * Gets the number of blocks a node validates at the same time.
+   *
+   * @return the number of cores
+   */
+  public int getValidationCores() {
+    return this.validationCores;
+  }
+
+  /**
+   * Gets the time a node takes to validate a block, whatever its content.
+   *
+   * @return the time in milliseconds
+   */
+  public double getValidationTimePerBlock() {
+    return this.validationTimePerBlock;
+  }
+
+  /**
+   * Gets the time a node takes to validate each transaction of a block.
+   *
+   * @return the time in milliseconds
+   */
+  public double getValidationTimePerTransaction() {
+    return this.validationTimePerTransaction;
+  }
+
+  /**
+   * Gets the time a node takes to validate each kilobyte of a block.
+   *
+   * @return the time in milliseconds
+   */
+  public double getValidationTimePerKb() {
+    return this.validationTimePerKb;
+  }
+
+  /**
+   * Gets whether a node advertises a received block before validating it.
+   *
+   * @return true if blocks are relayed before validation
+   */
+  public boolean isRelayBeforeValidation() {
+    return this.relayBeforeValidation;
+  }
+
+  /**
+   * Gets the time a node takes to prepare a block message once its upload has ended.
+   *
+   * @return the time in milliseconds
+   */
+  public long getMessageProcessingTime() {
+    return this.messageProcessingTime;
+  }
+
+  /**
+   * Gets the number of transactions issued per second, 0 if transactions are not simulated.
+   *
+   * @return the rate
+   */
+  public double getTransactionRate() {
+    return this.transactionRate;
+  }
+
+  /**
+   * Gets the maximum relay delay of a transaction in milliseconds.
+   *
+   * @return the delay
+   */
+  public long getTransactionRelayDelay() {
+    return this.transactionRelayDelay;
+  }
+
+  /**
+   * Gets the usage rate of compact block relay (CBR) protocol.
+   *
+   * @return the rate
+   */
+  public float getCbrUsageRate() {
+    return this.cbrUsageRate;
+  }
+
+  /**
+   * Gets the rate of nodes that cause churn.
+   *
+   * @return the rate
+   */
+  public float getChurnNodeRate() {
+    return this.churnNodeRate;
+  }
+
+  /**
+   * Gets the compact block size in bytes.
+   *
+   * @return the compact block size
+   */
+  public long getCompactBlockSize() {
+    return this.compactBlockSize;
+  }
+
+  /**
+   * Gets the CBR failure rate for a node that always connect network.
+   *
+   * @return the rate
+   */
+  public float getCbrFailureRateForControlNode() {
+    return this.cbrFailureRateForControlNode;
+  }
+
+  /**
+   * Gets the CBR failure rate for a node that causes churn.
+   *
+   * @return the rate
+   */
+  public float getCbrFailureRateForChurnNode() {
+    return this.cbrFailureRateForChurnNode;
+  }
+}
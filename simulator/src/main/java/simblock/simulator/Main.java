@@ -17,30 +17,15 @@
 package simblock.simulator;
 
 
-import static simblock.settings.SimulationConfiguration.ALGO;
-import static simblock.settings.SimulationConfiguration.AVERAGE_MINING_POWER;
-import static simblock.settings.SimulationConfiguration.END_BLOCK_HEIGHT;
-import static simblock.settings.SimulationConfiguration.INTERVAL;
-import static simblock.settings.SimulationConfiguration.NUM_OF_NODES;
-import static simblock.settings.SimulationConfiguration.STDEV_OF_MINING_POWER;
-import static simblock.settings.SimulationConfiguration.TABLE;
-import static simblock.settings.SimulationConfiguration.CBR_USAGE_RATE;
-import static simblock.settings.SimulationConfiguration.CHURN_NODE_RATE;
 import static simblock.simulator.Network.getDegreeDistribution;
 import static simblock.simulator.Network.getRegionDistribution;
 import static simblock.simulator.Network.printRegion;
-import static simblock.simulator.Simulator.addNode;
-import static simblock.simulator.Simulator.getSimulatedNodes;
-import static simblock.simulator.Simulator.printAllPropagation;
-import static simblock.simulator.Simulator.setTargetInterval;
-import static simblock.simulator.Timer.getCurrentTime;
-import static simblock.simulator.Timer.getTask;
-import static simblock.simulator.Timer.runTask;
 
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -51,23 +36,17 @@ import java.util.List;
 import java.util.Random;
 import java.util.Set;
 import simblock.block.Block;
+import simblock.block.BlockIdSet;
+import simblock.block.ForkTracker;
 import simblock.node.Node;
-import simblock.task.AbstractMintingTask;
+import simblock.settings.SimulationParameters;
+import simblock.simulator.engine.AbstractEngine;
 
 
 /**
  * The type Main represents the entry point.
  */
 public class Main {
-  /**
-   * The constant to be used as the simulation seed.
-   */
-  public static Random random = new Random(10);
-
-  /**
-   * The initial simulation time.
-   */
-  public static long simulationTime = 0;
   /**
    * Path to config file.
    */
@@ -87,95 +66,64 @@ public class Main {
   }
 
   /**
-   * The output writer.
-   */
-  //TODO use logger
-  public static PrintWriter OUT_JSON_FILE;
-
-  /**
-   * The constant STATIC_JSON_FILE.
+   * The entry point.
+   *
+   * @param args the input arguments
    */
-  //TODO use logger
-  public static PrintWriter STATIC_JSON_FILE;
-
-  static {
-    try {
-      OUT_JSON_FILE = new PrintWriter(
-          new BufferedWriter(new FileWriter(new File(OUT_FILE_URI.resolve("./output.json")))));
-      STATIC_JSON_FILE = new PrintWriter(
-          new BufferedWriter(new FileWriter(new File(OUT_FILE_URI.resolve("./static.json")))));
-    } catch (IOException e) {
-      e.printStackTrace();
-    }
+  public static void main(String[] args) {
+    run(new SimulationContext(new SimulationParameters(), OUT_FILE_URI, System.out));
   }
 
   /**
-   * The entry point.
+   * Runs a simulation in the provided context. Simulations with different contexts may run at
+   * the same time.
    *
-   * @param args the input arguments
+   * @param context the context of the simulation
+   * @return the summary of the simulation
    */
-  public static void main(String[] args) {
+  public static SimulationResult run(SimulationContext context) {
     final long start = System.currentTimeMillis();
-    setTargetInterval(INTERVAL);
-
-    //start json format
-    OUT_JSON_FILE.print("[");
-    OUT_JSON_FILE.flush();
+    SimulationParameters parameters = context.getParameters();
+    Simulator simulator = context.getSimulator();
+    PrintStream log = context.getLog();
+    simulator.setTargetInterval(parameters.getInterval());
 
     // Log regions
-    printRegion();
+    printRegion(context.getStaticJsonFile());
 
     // Setup network
-    constructNetworkWithAllNodes(NUM_OF_NODES);
-
-    // Initial block height, we stop at END_BLOCK_HEIGHT
-    int currentBlockHeight = 1;
+    constructNetworkWithAllNodes(context, parameters.getNumOfNodes());
 
-    // Iterate over tasks and handle
-    while (getTask() != null) {
-      if (getTask() instanceof AbstractMintingTask) {
-        AbstractMintingTask task = (AbstractMintingTask) getTask();
-        if (task.getParent().getHeight() == currentBlockHeight) {
-          currentBlockHeight++;
-        }
-        if (currentBlockHeight > END_BLOCK_HEIGHT) {
-          break;
-        }
-        // Log every 100 blocks and at the second block
-        // TODO use constants here
-        if (currentBlockHeight % 100 == 0 || currentBlockHeight == 2) {
-          writeGraph(currentBlockHeight);
-        }
-      }
-      // Execute task
-      runTask();
-    }
+    // Execute tasks until END_BLOCK_HEIGHT
+    createEngine(context, parameters.getEngine()).run();
 
     // Print propagation information about all blocks
-    printAllPropagation();
+    simulator.printAllPropagation();
 
     //TODO logger
-    System.out.println();
+    log.println();
 
     Set<Block> blocks = new HashSet<>();
 
     // Get the latest block from the first simulated node
-    Block block = getSimulatedNodes().get(0).getBlock();
+    Block block = simulator.getSimulatedNodes().get(0).getBlock();
 
-    //Update the list of known blocks by adding the parents of the aforementioned block
-    while (block.getParent() != null) {
+    //Update the list of known blocks by adding the parents of the aforementioned block, from the
+    //archive below the finality depth
+    while (block.getHeight() > 0) {
       blocks.add(block);
-      block = block.getParent();
+      block = block.getBlockWithHeight(block.getHeight() - 1);
     }
 
-    Set<Block> orphans = new HashSet<>();
-    int averageOrphansSize = 0;
-    // Gather all known orphans
-    for (Node node : getSimulatedNodes()) {
-      orphans.addAll(node.getOrphans());
-      averageOrphansSize += node.getOrphans().size();
+    // Get all known orphans, tracked during the run
+    ForkTracker forkTracker = context.getForkTracker();
+    BlockIdSet orphanIds = forkTracker.getOrphans();
+    int averageOrphansSize =
+        (int) (forkTracker.getNumNodeOrphans() / simulator.getSimulatedNodes().size());
+    List<Block> orphans = new ArrayList<>();
+    for (int id = orphanIds.nextId(0); id >= 0; id = orphanIds.nextId(id + 1)) {
+      orphans.add(context.getBlockTree().resolve(id));
     }
-    averageOrphansSize = averageOrphansSize / getSimulatedNodes().size();
 
     // Record orphans to the list of all known blocks
     blocks.addAll(orphans);
@@ -195,9 +143,9 @@ public class Main {
     //Log all orphans
     // TODO move to method and use logger
     for (Block orphan : orphans) {
-      System.out.println(orphan + ":" + orphan.getHeight());
+      log.println(orphan + ":" + orphan.getHeight());
     }
-    System.out.println(averageOrphansSize);
+    log.println(averageOrphansSize);
 
     /*
     Log in format:
@@ -207,11 +155,12 @@ public class Main {
      */
     // TODO move to method and use logger
     try {
-      FileWriter fw = new FileWriter(new File(OUT_FILE_URI.resolve("./blockList.txt")), false);
+      FileWriter fw = new FileWriter(
+          new File(context.getOutputUri().resolve("./blockList.txt")), false);
       PrintWriter pw = new PrintWriter(new BufferedWriter(fw));
 
       for (Block b : blockList) {
-        if (!orphans.contains(b)) {
+        if (!orphanIds.contains(b.getId())) {
           pw.println("OnChain : " + b.getHeight() + " : " + b);
         } else {
           pw.println("Orphan : " + b.getHeight() + " : " + b);
@@ -223,25 +172,35 @@ public class Main {
       ex.printStackTrace();
     }
 
-    OUT_JSON_FILE.print("{");
-    OUT_JSON_FILE.print("\"kind\":\"simulation-end\",");
-    OUT_JSON_FILE.print("\"content\":{");
-    OUT_JSON_FILE.print("\"timestamp\":" + getCurrentTime());
-    OUT_JSON_FILE.print("}");
-    OUT_JSON_FILE.print("}");
-    //end json format
-    OUT_JSON_FILE.print("]");
-    OUT_JSON_FILE.close();
+    context.getEventSink().simulationEnd(context.getTimer().getCurrentTime());
+    context.getEventSink().close();
 
 
     long end = System.currentTimeMillis();
-    simulationTime += end - start;
     // Log simulation time in milliseconds
-    System.out.println(simulationTime);
+    log.println(end - start);
 
+    return new SimulationResult(
+        blocks.size(), orphans.size(), simulator.getPropagationTimes(), end - start);
   }
 
 
+  /**
+   * Instantiates the engine.
+   *
+   * @param context    the context of the simulation
+   * @param engineName the engine class name
+   * @return the engine
+   */
+  private static AbstractEngine createEngine(SimulationContext context, String engineName) {
+    try {
+      return (AbstractEngine) Class.forName(engineName).getConstructor(SimulationContext.class)
+          .newInstance(context);
+    } catch (Exception e) {
+      throw new IllegalArgumentException("Unknown engine: " + engineName, e);
+    }
+  }
+
   //TODO　以下の初期生成はシナリオを読み込むようにする予定
   //ノードを参加させるタスクを作る(ノードの参加と，リンクの貼り始めるタスクは分ける)
   //シナリオファイルで上の参加タスクをTimer入れていく．
@@ -257,31 +216,34 @@ public class Main {
    *
    * @param distribution the distribution
    * @param facum        whether the distribution is cumulative distribution
+   * @param numNodes     the number of nodes
+   * @param random       the random number generator of the simulation
    * @return array list
    */
   //TODO explanation on facum etc.
-  public static ArrayList<Integer> makeRandomListFollowDistribution(double[] distribution, boolean facum) {
+  public static ArrayList<Integer> makeRandomListFollowDistribution(
+      double[] distribution, boolean facum, int numNodes, Random random) {
     ArrayList<Integer> list = new ArrayList<>();
     int index = 0;
 
     if (facum) {
       for (; index < distribution.length; index++) {
-        while (list.size() <= NUM_OF_NODES * distribution[index]) {
+        while (list.size() <= numNodes * distribution[index]) {
           list.add(index);
         }
       }
-      while (list.size() < NUM_OF_NODES) {
+      while (list.size() < numNodes) {
         list.add(index);
       }
     } else {
       double acumulative = 0.0;
       for (; index < distribution.length; index++) {
         acumulative += distribution[index];
-        while (list.size() <= NUM_OF_NODES * acumulative) {
+        while (list.size() <= numNodes * acumulative) {
           list.add(index);
         }
       }
-      while (list.size() < NUM_OF_NODES) {
+      while (list.size() < numNodes) {
         list.add(index);
       }
     }
@@ -293,13 +255,15 @@ public class Main {
   /**
    * Populate the list using the rate.
    *
-   * @param rate the rate of true
+   * @param rate     the rate of true
+   * @param numNodes the number of nodes
+   * @param random   the random number generator of the simulation
    * @return array list
    */
-  public static ArrayList<Boolean> makeRandomList(float rate){
+  public static ArrayList<Boolean> makeRandomList(float rate, int numNodes, Random random){
 		ArrayList<Boolean> list = new ArrayList<Boolean>();
-		for(int i=0; i < NUM_OF_NODES; i++){
-			list.add(i < NUM_OF_NODES*rate);
+		for(int i=0; i < numNodes; i++){
+			list.add(i < numNodes*rate);
 		}
 		Collections.shuffle(list, random);
 		return list;
@@ -309,64 +273,65 @@ public class Main {
    * Generates a random mining power expressed as Hash Rate, and is the number of mining (hash
    * calculation) executed per millisecond.
    *
+   * @param parameters the parameters of the simulation
+   * @param random     the random number generator of the simulation
    * @return the number of hash  calculations executed per millisecond.
    */
-  public static int genMiningPower() {
+  public static int genMiningPower(SimulationParameters parameters, Random random) {
     double r = random.nextGaussian();
 
-    return Math.max((int) (r * STDEV_OF_MINING_POWER + AVERAGE_MINING_POWER), 1);
+    return Math.max((int) (r * parameters.getStdevOfMiningPower()
+        + parameters.getAverageMiningPower()), 1);
   }
 
   /**
    * Construct network with the provided number of nodes.
    *
+   * @param context  the context of the simulation
    * @param numNodes the num nodes
    */
-  public static void constructNetworkWithAllNodes(int numNodes) {
+  public static void constructNetworkWithAllNodes(SimulationContext context, int numNodes) {
+    SimulationParameters parameters = context.getParameters();
+    Simulator simulator = context.getSimulator();
+    Random random = context.getRandom();
 
     // Random distribution of nodes per region
     double[] regionDistribution = getRegionDistribution();
-    List<Integer> regionList = makeRandomListFollowDistribution(regionDistribution, false);
+    List<Integer> regionList = makeRandomListFollowDistribution(
+        regionDistribution, false, numNodes, random);
 
     // Random distribution of node degrees
     double[] degreeDistribution = getDegreeDistribution();
-    List<Integer> degreeList = makeRandomListFollowDistribution(degreeDistribution, true);
+    List<Integer> degreeList = makeRandomListFollowDistribution(
+        degreeDistribution, true, numNodes, random);
 
     // List of nodes using compact block relay.
-    List<Boolean> useCBRNodes = makeRandomList(CBR_USAGE_RATE);
+    List<Boolean> useCBRNodes = makeRandomList(parameters.getCbrUsageRate(), numNodes, random);
 
     // List of churn nodes.
-		List<Boolean> churnNodes = makeRandomList(CHURN_NODE_RATE);
+		List<Boolean> churnNodes = makeRandomList(parameters.getChurnNodeRate(), numNodes, random);
 
     for (int id = 1; id <= numNodes; id++) {
       // Each node gets assigned a region, its degree, mining power, routing table and
       // consensus algorithm
       Node node = new Node(
-          id, degreeList.get(id - 1) + 1, regionList.get(id - 1), genMiningPower(), TABLE,
-          ALGO, useCBRNodes.get(id - 1), churnNodes.get(id - 1)
+          context, id, degreeList.get(id - 1) + 1, regionList.get(id - 1),
+          genMiningPower(parameters, random), parameters.getTable(), parameters.getAlgo(),
+          useCBRNodes.get(id - 1), churnNodes.get(id - 1)
       );
       // Add the node to the list of simulated nodes
-      addNode(node);
-
-      OUT_JSON_FILE.print("{");
-      OUT_JSON_FILE.print("\"kind\":\"add-node\",");
-      OUT_JSON_FILE.print("\"content\":{");
-      OUT_JSON_FILE.print("\"timestamp\":0,");
-      OUT_JSON_FILE.print("\"node-id\":" + id + ",");
-      OUT_JSON_FILE.print("\"region-id\":" + regionList.get(id - 1));
-      OUT_JSON_FILE.print("}");
-      OUT_JSON_FILE.print("},");
-      OUT_JSON_FILE.flush();
+      simulator.addNode(node);
 
+      context.getEventSink().addNode(0, id, regionList.get(id - 1));
     }
 
     // Link newly generated nodes
-    for (Node node : getSimulatedNodes()) {
+    for (Node node : simulator.getSimulatedNodes()) {
       node.joinNetwork();
     }
 
     // Designates a random node (nodes in list are randomized) to mint the genesis block
-    getSimulatedNodes().get(0).genesisBlock();
+    simulator.getSimulatedNodes().get(0).genesisBlock();
   }
 
   /**
@@ -376,17 +341,19 @@ public class Main {
    *
    * <p>meaning there is a connection from nodeID_1 to right nodeID_1.
    *
+   * @param context     the context of the simulation
    * @param blockHeight the index of the graph and the current block height
    */
   //TODO use logger
-  public static void writeGraph(int blockHeight) {
+  public static void writeGraph(SimulationContext context, int blockHeight) {
+    Simulator simulator = context.getSimulator();
     try {
       FileWriter fw = new FileWriter(
-          new File(OUT_FILE_URI.resolve("./graph/" + blockHeight + ".txt")), false);
+          new File(context.getOutputUri().resolve("./graph/" + blockHeight + ".txt")), false);
       PrintWriter pw = new PrintWriter(new BufferedWriter(fw));
 
-      for (int index = 1; index <= getSimulatedNodes().size(); index++) {
-        Node node = getSimulatedNodes().get(index - 1);
+      for (int index = 1; index <= simulator.getSimulatedNodes().size(); index++) {
+        Node node = simulator.getSimulatedNodes().get(index - 1);
         for (int i = 0; i < node.getNeighbors().size(); i++) {
           Node neighbor = node.getNeighbors().get(i);
           pw.println(node.getNodeID() + " " + neighbor.getNodeID());
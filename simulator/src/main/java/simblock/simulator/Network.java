@@ -22,10 +22,10 @@ import static simblock.settings.NetworkConfiguration.LATENCY;
 import static simblock.settings.NetworkConfiguration.REGION_DISTRIBUTION;
 import static simblock.settings.NetworkConfiguration.REGION_LIST;
 import static simblock.settings.NetworkConfiguration.UPLOAD_BANDWIDTH;
-import static simblock.simulator.Main.STATIC_JSON_FILE;
-import static simblock.simulator.Main.random;
 
+import java.io.PrintWriter;
 import java.util.List;
+import java.util.Random;
 import simblock.settings.NetworkConfiguration;
 
 /**
@@ -39,17 +39,30 @@ public class Network {
   /**
    * Gets latency according with 20% variance pallet distribution.
    *
-   * @param from the from latency
-   * @param to   the to latency
+   * @param from   the from latency
+   * @param to     the to latency
+   * @param random the random number generator of the sending node
    * @return the calculated latency
    */
-  public static final long getLatency(int from, int to) {
+  public static final long getLatency(int from, int to, Random random) {
     long mean = LATENCY[from][to];
     double shape = 0.2 * mean;
     double scale = mean - 5;
     return Math.round(scale / Math.pow(random.nextDouble(), 1.0 / shape));
   }
 
+  /**
+   * Gets the lower bound of the latency returned by {@link #getLatency(int, int, Random)}, the
+   * scale of the pareto distribution.
+   *
+   * @param from the from latency
+   * @param to   the to latency
+   * @return the minimum latency
+   */
+  public static final long getMinimumLatency(int from, int to) {
+    return LATENCY[from][to] - 5;
+  }
+
   /**
    * Gets the minimum between the <em>from</em> upload bandwidth and <em>to</em> download
    * bandwidth.
@@ -63,6 +76,16 @@ public class Network {
     return Math.min(UPLOAD_BANDWIDTH[from], DOWNLOAD_BANDWIDTH[to]);
   }
 
+  /**
+   * Gets the upload bandwidth of a region, shared by the concurrent uploads of a node.
+   *
+   * @param region the index in the {@link NetworkConfiguration#UPLOAD_BANDWIDTH} array.
+   * @return the bandwidth
+   */
+  public static final long getUploadBandwidth(int region) {
+    return UPLOAD_BANDWIDTH[region];
+  }
+
   /**
    * Gets region list.
    *
@@ -93,25 +116,27 @@ public class Network {
 
   /**
    * Prints the currently active regions to outfile.
+   *
+   * @param staticJsonFile the writer of the static information about the network
    */
   //TODO
-  public static void printRegion() {
-    STATIC_JSON_FILE.print("{\"region\":[");
+  public static void printRegion(PrintWriter staticJsonFile) {
+    staticJsonFile.print("{\"region\":[");
 
     int id = 0;
     for (; id < REGION_LIST.size() - 1; id++) {
-      STATIC_JSON_FILE.print("{");
-      STATIC_JSON_FILE.print("\"id\":" + id + ",");
-      STATIC_JSON_FILE.print("\"name\":\"" + REGION_LIST.get(id) + "\"");
-      STATIC_JSON_FILE.print("},");
+      staticJsonFile.print("{");
+      staticJsonFile.print("\"id\":" + id + ",");
+      staticJsonFile.print("\"name\":\"" + REGION_LIST.get(id) + "\"");
+      staticJsonFile.print("},");
     }
 
-    STATIC_JSON_FILE.print("{");
-    STATIC_JSON_FILE.print("\"id\":" + id + ",");
-    STATIC_JSON_FILE.print("\"name\":\"" + REGION_LIST.get(id) + "\"");
-    STATIC_JSON_FILE.print("}");
-    STATIC_JSON_FILE.print("]}");
-    STATIC_JSON_FILE.flush();
-    STATIC_JSON_FILE.close();
+    staticJsonFile.print("{");
+    staticJsonFile.print("\"id\":" + id + ",");
+    staticJsonFile.print("\"name\":\"" + REGION_LIST.get(id) + "\"");
+    staticJsonFile.print("}");
+    staticJsonFile.print("]}");
+    staticJsonFile.flush();
+    staticJsonFile.close();
   }
 }
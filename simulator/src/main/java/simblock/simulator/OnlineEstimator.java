@@ -0,0 +1,125 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator;
+
+/**
+ * The type OnlineEstimator estimates the mean of a metric and its confidence interval from
+ * samples added one at a time, in constant memory (Welford's algorithm).
+ *
+ * <p>The confidence interval assumes independent samples and uses the quantile of Student's t
+ * distribution, approximated by its Cornish-Fisher expansion around the normal quantile.
+ */
+public class OnlineEstimator {
+  /**
+   * The number of samples.
+   */
+  private long count = 0;
+
+  /**
+   * The mean of the samples.
+   */
+  private double mean = 0;
+
+  /**
+   * The sum of the squared differences between the samples and their mean.
+   */
+  private double squaredDeviations = 0;
+
+  /**
+   * Adds a sample.
+   *
+   * @param value the sample
+   */
+  public void add(double value) {
+    this.count++;
+    double delta = value - this.mean;
+    this.mean += delta / this.count;
+    this.squaredDeviations += delta * (value - this.mean);
+  }
+
+  /**
+   * Gets the number of samples.
+   *
+   * @return the number of samples
+   */
+  public long getCount() {
+    return this.count;
+  }
+
+  /**
+   * Gets the mean of the samples.
+   *
+   * @return the mean, 0 if there is no sample
+   */
+  public double getMean() {
+    return this.mean;
+  }
+
+  /**
+   * Gets the sample variance.
+   *
+   * @return the variance, 0 if there are less than two samples
+   */
+  public double getVariance() {
+    return this.count < 2 ? 0 : this.squaredDeviations / (this.count - 1);
+  }
+
+  /**
+   * Gets the half width of the confidence interval of the mean.
+   *
+   * @param confidence the confidence level, e.g. 0.95
+   * @return the half width, infinite if there are less than two samples
+   */
+  public double getHalfWidth(double confidence) {
+    if (this.count < 2) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return studentQuantile(1 - (1 - confidence) / 2, this.count - 1)
+        * Math.sqrt(this.getVariance() / this.count);
+  }
+
+  /**
+   * Approximates a quantile of Student's t distribution.
+   *
+   * @param p                - the probability, between 0.5 and 1
+   * @param degreesOfFreedom - the degrees of freedom
+   * @return the quantile
+   */
+  static double studentQuantile(double p, long degreesOfFreedom) {
+    double z = normalQuantile(p);
+    double n = degreesOfFreedom;
+    double z2 = z * z;
+    return z
+        + z * (z2 + 1) / (4 * n)
+        + z * ((5 * z2 + 16) * z2 + 3) / (96 * n * n)
+        + z * (((3 * z2 + 19) * z2 + 17) * z2 - 15) / (384 * n * n * n)
+        + z * ((((79 * z2 + 776) * z2 + 1482) * z2 - 1920) * z2 - 945) / (92160 * n * n * n * n);
+  }
+
+  /**
+   * Approximates a quantile of the standard normal distribution (Abramowitz and Stegun 26.2.23,
+   * absolute error below 4.5e-4).
+   *
+   * @param p - the probability, between 0.5 and 1
+   * @return the quantile
+   */
+  static double normalQuantile(double p) {
+    double t = Math.sqrt(-2 * Math.log(1 - p));
+    return t - (2.515517 + t * (0.802853 + t * 0.010328))
+        / (1 + t * (1.432788 + t * (0.189269 + t * 0.001308)));
+  }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator;
+
+import static simblock.settings.SimulationConfiguration.CONFIDENCE_INTERVAL_WIDTH;
+import static simblock.settings.SimulationConfiguration.CONFIDENCE_LEVEL;
+import static simblock.settings.SimulationConfiguration.MAX_REPLICATIONS;
+import static simblock.settings.SimulationConfiguration.MIN_REPLICATIONS;
+import static simblock.settings.SimulationConfiguration.NUM_OF_THREADS;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import simblock.settings.SimulationParameters;
+
+/**
+ * The type ReplicationRunner runs independent replications of a simulation, differing only by
+ * their seed, until the confidence intervals of the metrics are narrow enough (Monte Carlo
+ * estimation with sequential stopping).
+ *
+ * <p>The metrics of each replication are the median and the 90th percentile of the block
+ * propagation times and the number of orphans. They are added to {@link OnlineEstimator}s in
+ * replication order, so the estimates do not depend on which replication finishes first. Once
+ * {@link simblock.settings.SimulationConfiguration#MIN_REPLICATIONS} replications have been
+ * added, the runner stops as soon as the {@link
+ * simblock.settings.SimulationConfiguration#CONFIDENCE_LEVEL} confidence interval of every
+ * metric is narrower than {@link
+ * simblock.settings.SimulationConfiguration#CONFIDENCE_INTERVAL_WIDTH} times its mean, or after
+ * {@link simblock.settings.SimulationConfiguration#MAX_REPLICATIONS} replications.
+ *
+ * <p>Up to {@link simblock.settings.SimulationConfiguration#NUM_OF_THREADS} replications run at
+ * the same time on a fork-join pool, each with its own {@link SimulationContext}, and write their
+ * output to <em>output/replication/run-i</em>. Replications still running when the runner stops
+ * are cancelled and ignored. The metrics of every replication are written to
+ * <em>output/replication/replications.csv</em> and the estimates are printed.
+ */
+public class ReplicationRunner {
+  /**
+   * The names of the metrics, as printed.
+   */
+  private static final String[] METRICS = {"propagation_p50", "propagation_p90", "orphans"};
+
+  /**
+   * The parameter assignments shared by all replications.
+   */
+  private final Map<String, String> assignments;
+
+  /**
+   * The directory the outputs of the replications and the results are written to.
+   */
+  private final URI outputUri;
+
+  /**
+   * The generator of the seeds of the replications, seeded with the simulation seed.
+   */
+  private final SplittableRandom seeds;
+
+  /**
+   * The estimators of the metrics, indexed like {@link #METRICS}.
+   */
+  private final OnlineEstimator[] estimators = new OnlineEstimator[METRICS.length];
+
+  /**
+   * The metrics of every replication added so far, one line per replication.
+   */
+  private final StringBuilder table = new StringBuilder(
+      "run,seed," + String.join(",", METRICS) + ",wall_time_ms\n");
+
+  /**
+   * Instantiates a new replication runner.
+   *
+   * @param assignments the parameter assignments shared by all replications, by the names of the
+   *                    constants in {@link simblock.settings.SimulationConfiguration}
+   * @param outputUri   the directory the outputs of the replications and the results are
+   *                    written to
+   */
+  public ReplicationRunner(Map<String, String> assignments, URI outputUri) {
+    this.assignments = assignments;
+    this.outputUri = outputUri;
+    this.seeds = new SplittableRandom(this.newParameters().getSeed());
+    for (int i = 0; i < METRICS.length; i++) {
+      this.estimators[i] = new OnlineEstimator();
+    }
+  }
+
+  /**
+   * The entry point.
+   *
+   * @param args parameter assignments <em>NAME=value</em> shared by all replications
+   * @throws IOException if the results cannot be written
+   */
+  public static void main(String[] args) throws IOException {
+    List<Map<String, String>> runs = SweepRunner.parse(Arrays.asList(String.join(" ", args)));
+    if (runs.size() > 1) {
+      throw new IllegalArgumentException("Replications take one value per parameter");
+    }
+    Map<String, String> assignments = runs.isEmpty() ? Collections.emptyMap() : runs.get(0);
+    ReplicationRunner runner = new ReplicationRunner(
+        assignments, Main.OUT_FILE_URI.resolve("./replication/"));
+    runner.run();
+    runner.writeResults(System.out);
+  }
+
+  /**
+   * Runs replications until the confidence intervals are narrow enough or
+   * {@link simblock.settings.SimulationConfiguration#MAX_REPLICATIONS} have run.
+   */
+  public void run() {
+    new File(this.outputUri).mkdirs();
+    ForkJoinPool pool = new ForkJoinPool(NUM_OF_THREADS);
+    Deque<SimulationContext> contexts = new ArrayDeque<>();
+    Deque<ForkJoinTask<SimulationResult>> running = new ArrayDeque<>();
+    int started = 0;
+    try {
+      while (true) {
+        // Keep every thread busy with the next replications
+        while (running.size() < NUM_OF_THREADS && started < MAX_REPLICATIONS) {
+          SimulationParameters parameters = this.newParameters();
+          parameters.setSeed(this.seeds.nextLong());
+          SimulationContext context = SweepRunner.openContext(
+              parameters, this.outputUri.resolve("./run-" + started + "/"));
+          contexts.add(context);
+          running.add(pool.submit(() -> {
+            try {
+              return Main.run(context);
+            } finally {
+              context.getLog().close();
+            }
+          }));
+          started++;
+        }
+        if (running.isEmpty()) {
+          return;
+        }
+
+        // Add the oldest replication, the next one in order
+        SimulationContext context = contexts.poll();
+        this.add(context.getParameters().getSeed(), running.poll().join());
+        if (this.isPrecise()) {
+          return;
+        }
+      }
+    } finally {
+      for (SimulationContext context : contexts) {
+        context.cancel();
+      }
+      for (ForkJoinTask<SimulationResult> task : running) {
+        task.quietlyJoin();
+      }
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Creates the parameters shared by all replications.
+   *
+   * @return the parameters
+   */
+  private SimulationParameters newParameters() {
+    SimulationParameters parameters = new SimulationParameters();
+    for (Map.Entry<String, String> entry : this.assignments.entrySet()) {
+      parameters.set(entry.getKey(), entry.getValue());
+    }
+    return parameters;
+  }
+
+  /**
+   * Adds the metrics of a replication to the estimators.
+   *
+   * @param seed   - the seed of the replication
+   * @param result - the result of the replication
+   */
+  private void add(long seed, SimulationResult result) {
+    double[] metrics = {
+        result.getPropagationTime(0.5), result.getPropagationTime(0.9), result.getNumOrphans()
+    };
+    this.table.append(this.estimators[0].getCount()).append(',').append(seed);
+    for (int i = 0; i < METRICS.length; i++) {
+      this.estimators[i].add(metrics[i]);
+      this.table.append(',').append(metrics[i]);
+    }
+    this.table.append(',').append(result.getWallTime()).append('\n');
+  }
+
+  /**
+   * Whether enough replications have been added and the confidence intervals of all metrics are
+   * narrow enough.
+   *
+   * @return true if the replications can stop
+   */
+  private boolean isPrecise() {
+    for (OnlineEstimator estimator : this.estimators) {
+      if (estimator.getCount() < MIN_REPLICATIONS || 2 * estimator.getHalfWidth(CONFIDENCE_LEVEL)
+          > CONFIDENCE_INTERVAL_WIDTH * Math.abs(estimator.getMean())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Writes the metrics of every replication as CSV to <em>replications.csv</em> in the output
+   * directory and prints the estimates, one line per metric with its mean and the bounds of its
+   * confidence interval.
+   *
+   * @param out the stream the estimates are printed to
+   * @throws IOException if the results cannot be written
+   */
+  public void writeResults(PrintStream out) throws IOException {
+    try (PrintWriter pw = new PrintWriter(new BufferedWriter(
+        new FileWriter(new File(this.outputUri.resolve("./replications.csv")), false)))) {
+      pw.print(this.table);
+    }
+
+    out.println("metric,replications,mean,lower,upper");
+    for (int i = 0; i < METRICS.length; i++) {
+      OnlineEstimator estimator = this.estimators[i];
+      double halfWidth = estimator.getHalfWidth(CONFIDENCE_LEVEL);
+      out.println(METRICS[i] + "," + estimator.getCount() + "," + estimator.getMean() + ","
+          + (estimator.getMean() - halfWidth) + "," + (estimator.getMean() + halfWidth));
+    }
+  }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Random;
+import simblock.block.BlockRegistry;
+import simblock.block.BlockTree;
+import simblock.block.ForkTracker;
+import simblock.block.filling.AbstractBlockFilling;
+import simblock.settings.SimulationParameters;
+import simblock.simulator.log.AbstractEventSink;
+import simblock.transaction.TransactionLog;
+
+/**
+ * The type SimulationContext holds the state of one simulation: its parameters, the clock and the
+ * Future Event List, the simulated nodes, the random number generator and the output. Nodes,
+ * tasks and blocks reach it through their node, so independent simulations can run at the same
+ * time, each with its own context.
+ */
+public class SimulationContext {
+  /**
+   * The parameters of the simulation.
+   */
+  private final SimulationParameters parameters;
+
+  /**
+   * The random number generator of the simulation, seeded with the simulation seed.
+   */
+  private final Random random;
+
+  /**
+   * The timer holding the clock and the Future Event List.
+   */
+  private final Timer timer;
+
+  /**
+   * The simulator holding the simulated nodes.
+   */
+  private final Simulator simulator = new Simulator(this);
+
+  /**
+   * The registry of the blocks minted in the simulation.
+   */
+  private final BlockRegistry blockRegistry = new BlockRegistry();
+
+  /**
+   * The index of the blocks minted in the simulation.
+   */
+  private final BlockTree blockTree;
+
+  /**
+   * The orphan statistics of the simulation.
+   */
+  private final ForkTracker forkTracker = new ForkTracker();
+
+  /**
+   * The policy deciding how many transactions the blocks hold.
+   */
+  private final AbstractBlockFilling blockFilling;
+
+  /**
+   * The transactions of the simulation, null if transactions are not simulated.
+   */
+  private final TransactionLog transactionLog;
+
+  /**
+   * The directory the output files are written to.
+   */
+  private final URI outputUri;
+
+  /**
+   * The sink recording the events of the simulation.
+   */
+  private final AbstractEventSink eventSink;
+
+  /**
+   * The writer of the static information about the network.
+   */
+  //TODO use logger
+  private final PrintWriter staticJsonFile;
+
+  /**
+   * The stream block propagation and the final summary are printed to.
+   */
+  private final PrintStream log;
+
+  /**
+   * Whether the simulation has been asked to stop early.
+   */
+  private volatile boolean cancelled = false;
+
+  /**
+   * Instantiates a new context and opens its output files.
+   *
+   * @param parameters the parameters of the simulation
+   * @param outputUri  the directory the output files are written to
+   * @param log        the stream block propagation and the final summary are printed to
+   */
+  public SimulationContext(SimulationParameters parameters, URI outputUri, PrintStream log) {
+    this.parameters = parameters;
+    this.timer = new Timer(parameters.getTaskQueue());
+    this.random = new Random(parameters.getSeed());
+    this.blockTree = new BlockTree(this.blockRegistry, parameters.getFinalityDepth());
+    this.blockFilling = createBlockFilling(parameters.getBlockFilling(), this);
+    this.transactionLog = parameters.getTransactionRate() > 0 ? new TransactionLog(this) : null;
+    this.outputUri = outputUri;
+    this.log = log;
+    this.eventSink = createEventSink(parameters.getEventSink(), this.timer, outputUri);
+    try {
+      this.staticJsonFile = new PrintWriter(
+          new BufferedWriter(new FileWriter(new File(outputUri.resolve("./static.json")))));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open the output in " + outputUri, e);
+    }
+  }
+
+  /**
+   * Instantiates the event sink.
+   *
+   * @param sinkName  - the event sink class name
+   * @param timer     - the timer of the simulation
+   * @param outputUri - the directory the output files are written to
+   * @return the event sink
+   */
+  private static AbstractEventSink createEventSink(String sinkName, Timer timer, URI outputUri) {
+    try {
+      return (AbstractEventSink) Class.forName(sinkName)
+          .getConstructor(Timer.class, URI.class).newInstance(timer, outputUri);
+    } catch (Exception e) {
+      throw new IllegalArgumentException("Unknown event sink: " + sinkName, e);
+    }
+  }
+
+  /**
+   * Instantiates the block filling policy.
+   *
+   * @param fillingName - the block filling policy class name
+   * @param context     - the context of the simulation
+   * @return the block filling policy
+   */
+  private static AbstractBlockFilling createBlockFilling(
+      String fillingName, SimulationContext context) {
+    try {
+      return (AbstractBlockFilling) Class.forName(fillingName)
+          .getConstructor(SimulationContext.class).newInstance(context);
+    } catch (Exception e) {
+      throw new IllegalArgumentException("Unknown block filling policy: " + fillingName, e);
+    }
+  }
+
+  /**
+   * Gets the parameters of the simulation.
+   *
+   * @return the parameters
+   */
+  public SimulationParameters getParameters() {
+    return this.parameters;
+  }
+
+  /**
+   * Gets the random number generator of the simulation.
+   *
+   * @return the random number generator
+   */
+  public Random getRandom() {
+    return this.random;
+  }
+
+  /**
+   * Gets the timer holding the clock and the Future Event List.
+   *
+   * @return the timer
+   */
+  public Timer getTimer() {
+    return this.timer;
+  }
+
+  /**
+   * Gets the simulator holding the simulated nodes.
+   *
+   * @return the simulator
+   */
+  public Simulator getSimulator() {
+    return this.simulator;
+  }
+
+  /**
+   * Gets the registry of the blocks minted in the simulation.
+   *
+   * @return the block registry
+   */
+  public BlockRegistry getBlockRegistry() {
+    return this.blockRegistry;
+  }
+
+  /**
+   * Gets the index of the blocks minted in the simulation.
+   *
+   * @return the block tree
+   */
+  public BlockTree getBlockTree() {
+    return this.blockTree;
+  }
+
+  /**
+   * Gets the orphan statistics of the simulation.
+   *
+   * @return the fork tracker
+   */
+  public ForkTracker getForkTracker() {
+    return this.forkTracker;
+  }
+
+  /**
+   * Gets the policy deciding how many transactions the blocks hold.
+   *
+   * @return the block filling policy
+   */
+  public AbstractBlockFilling getBlockFilling() {
+    return this.blockFilling;
+  }
+
+  /**
+   * Gets the transactions of the simulation.
+   *
+   * @return the transaction log, null if transactions are not simulated
+   */
+  public TransactionLog getTransactionLog() {
+    return this.transactionLog;
+  }
+
+  /**
+   * Gets the directory the output files are written to.
+   *
+   * @return the directory
+   */
+  public URI getOutputUri() {
+    return this.outputUri;
+  }
+
+  /**
+   * Gets the sink recording the events of the simulation.
+   *
+   * @return the event sink
+   */
+  public AbstractEventSink getEventSink() {
+    return this.eventSink;
+  }
+
+  /**
+   * Gets the writer of the static information about the network.
+   *
+   * @return the writer
+   */
+  public PrintWriter getStaticJsonFile() {
+    return this.staticJsonFile;
+  }
+
+  /**
+   * Gets the stream block propagation and the final summary are printed to.
+   *
+   * @return the stream
+   */
+  public PrintStream getLog() {
+    return this.log;
+  }
+
+  /**
+   * Asks the simulation to stop before the next block is minted. It may be called from any
+   * thread.
+   */
+  public void cancel() {
+    this.cancelled = true;
+  }
+
+  /**
+   * Whether the simulation has been asked to stop early.
+   *
+   * @return true if the simulation has been cancelled
+   */
+  public boolean isCancelled() {
+    return this.cancelled;
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator;
+
+import java.util.Arrays;
+
+/**
+ * The type SimulationResult summarizes a finished simulation: the blocks minted, the orphans
+ * among them, the block propagation times and the wall-clock time the simulation took.
+ */
+public class SimulationResult {
+  /**
+   * The number of blocks minted after the genesis block, including orphans.
+   */
+  private final int numBlocks;
+
+  /**
+   * The number of orphans.
+   */
+  private final int numOrphans;
+
+  /**
+   * The propagation times of all blocks to all nodes but their minters, sorted.
+   */
+  private final long[] propagationTimes;
+
+  /**
+   * The wall-clock time of the simulation in milliseconds.
+   */
+  private final long wallTime;
+
+  /**
+   * Instantiates a new result.
+   *
+   * @param numBlocks        the number of blocks minted after the genesis block
+   * @param numOrphans       the number of orphans
+   * @param propagationTimes the propagation times, the array is sorted in place
+   * @param wallTime         the wall-clock time of the simulation in milliseconds
+   */
+  public SimulationResult(int numBlocks, int numOrphans, long[] propagationTimes, long wallTime) {
+    this.numBlocks = numBlocks;
+    this.numOrphans = numOrphans;
+    this.propagationTimes = propagationTimes;
+    this.wallTime = wallTime;
+    Arrays.sort(this.propagationTimes);
+  }
+
+  /**
+   * Gets the number of blocks minted after the genesis block, including orphans.
+   *
+   * @return the number of blocks
+   */
+  public int getNumBlocks() {
+    return this.numBlocks;
+  }
+
+  /**
+   * Gets the number of orphans.
+   *
+   * @return the number of orphans
+   */
+  public int getNumOrphans() {
+    return this.numOrphans;
+  }
+
+  /**
+   * Gets the rate of orphans among the blocks minted.
+   *
+   * @return the orphan rate, 0 if no block was minted
+   */
+  public double getOrphanRate() {
+    return this.numBlocks == 0 ? 0 : (double) this.numOrphans / this.numBlocks;
+  }
+
+  /**
+   * Gets a quantile of the block propagation times using the nearest-rank method.
+   *
+   * @param quantile the quantile between 0 and 1, e.g. 0.9 for the 90th percentile
+   * @return the propagation time in milliseconds, -1 if no block propagated
+   */
+  public long getPropagationTime(double quantile) {
+    if (this.propagationTimes.length == 0) {
+      return -1;
+    }
+    int rank = (int) Math.ceil(quantile * this.propagationTimes.length);
+    return this.propagationTimes[Math.min(Math.max(rank, 1), this.propagationTimes.length) - 1];
+  }
+
+  /**
+   * Gets the number of propagation times recorded.
+   *
+   * @return the number of propagation times
+   */
+  public int getNumPropagationTimes() {
+    return this.propagationTimes.length;
+  }
+
+  /**
+   * Gets the wall-clock time of the simulation.
+   *
+   * @return the wall-clock time in milliseconds
+   */
+  public long getWallTime() {
+    return this.wallTime;
+  }
+}
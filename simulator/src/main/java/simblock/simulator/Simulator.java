@@ -16,9 +16,8 @@
 
 package simblock.simulator;
 
-import static simblock.simulator.Timer.getCurrentTime;
-
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import simblock.block.Block;
@@ -28,26 +27,40 @@ import simblock.node.Node;
 /**
  * The type Simulator is tasked with maintaining the list of simulated nodes and managing the
  * block interval. It observes and manages the arrival of new blocks at the simulation level.
+ * Each {@link SimulationContext} has its own simulator.
  */
 public class Simulator {
+  /**
+   * The context of the simulation.
+   */
+  private final SimulationContext context;
 
   /**
    * A list of nodes that will be used in a simulation.
    */
-  private static final ArrayList<Node> simulatedNodes = new ArrayList<>();
+  private final ArrayList<Node> simulatedNodes = new ArrayList<>();
 
   /**
    * The target block interval in milliseconds.
    */
-  private static long targetInterval;
+  private long targetInterval;
+
+  /**
+   * Instantiates a new simulator without nodes.
+   *
+   * @param context the context of the simulation
+   */
+  public Simulator(SimulationContext context) {
+    this.context = context;
+  }
 
   /**
    * Get simulated nodes list.
    *
    * @return the array list
    */
-  public static ArrayList<Node> getSimulatedNodes() {
-    return simulatedNodes;
+  public ArrayList<Node> getSimulatedNodes() {
+    return this.simulatedNodes;
   }
 
   /**
@@ -55,8 +68,8 @@ public class Simulator {
    *
    * @return the target block interval in milliseconds
    */
-  public static long getTargetInterval() {
-    return targetInterval;
+  public long getTargetInterval() {
+    return this.targetInterval;
   }
 
   /**
@@ -64,8 +77,8 @@ public class Simulator {
    *
    * @param interval - block interval in milliseconds
    */
-  public static void setTargetInterval(long interval) {
-    targetInterval = interval;
+  public void setTargetInterval(long interval) {
+    this.targetInterval = interval;
   }
 
   /**
@@ -73,8 +86,8 @@ public class Simulator {
    *
    * @param node the node
    */
-  public static void addNode(Node node) {
-    simulatedNodes.add(node);
+  public void addNode(Node node) {
+    this.simulatedNodes.add(node);
   }
 
   /**
@@ -83,8 +96,8 @@ public class Simulator {
    * @param node the node
    */
   @SuppressWarnings("unused")
-  public static void removeNode(Node node) {
-    simulatedNodes.remove(node);
+  public void removeNode(Node node) {
+    this.simulatedNodes.remove(node);
   }
 
   /**
@@ -95,10 +108,10 @@ public class Simulator {
    * @param node the node
    */
   @SuppressWarnings("unused")
-  public static void addNodeWithConnection(Node node) {
+  public void addNodeWithConnection(Node node) {
     node.joinNetwork();
-    addNode(node);
-    for (Node existingNode : simulatedNodes) {
+    this.addNode(node);
+    for (Node existingNode : this.simulatedNodes) {
       existingNode.addNeighbor(node);
     }
   }
@@ -106,7 +119,7 @@ public class Simulator {
   /**
    * A list of observed {@link Block} instances.
    */
-  private static final ArrayList<Block> observedBlocks = new ArrayList<>();
+  private final ArrayList<Block> observedBlocks = new ArrayList<>();
 
   /**
    * A list of observed block propagation times. The map key represents the id of the node that
@@ -115,9 +128,19 @@ public class Simulator {
    * time, effectively
    * recording the absolute time it took for a node to witness the block.
    */
-  private static final ArrayList<LinkedHashMap<Integer, Long>> observedPropagations =
+  private final ArrayList<LinkedHashMap<Integer, Long>> observedPropagations =
       new ArrayList<>();
 
+  /**
+   * The propagation times of all blocks to all nodes but their minters, in arrival order.
+   */
+  private long[] propagationTimes = new long[1024];
+
+  /**
+   * The number of recorded propagation times.
+   */
+  private int numPropagationTimes = 0;
+
   /**
    * Handle the arrival of a new block. For every observed block, propagation information is
    * updated, and for a new
@@ -126,34 +149,63 @@ public class Simulator {
    * @param block the block
    * @param node  the node
    */
-  public static void arriveBlock(Block block, Node node) {
+  public void arriveBlock(Block block, Node node) {
+    long time = this.context.getTimer().getCurrentTime();
+    // Nodes may be simulated in parallel, record the arrival in task order
+    this.context.getTimer().defer(() -> this.recordArrival(block, node, time));
+  }
+
+  /**
+   * Records the arrival of a block at a node.
+   *
+   * @param block the block
+   * @param node  the node
+   * @param time  the arrival time
+   */
+  private void recordArrival(Block block, Node node, long time) {
+    if (node != block.getMinter()) {
+      if (this.numPropagationTimes == this.propagationTimes.length) {
+        this.propagationTimes = Arrays.copyOf(this.propagationTimes, this.numPropagationTimes * 2);
+      }
+      this.propagationTimes[this.numPropagationTimes++] = time - block.getTime();
+    }
     // If block is already seen by any node
-    if (observedBlocks.contains(block)) {
+    if (this.observedBlocks.contains(block)) {
       // Get the propagation information for the current block
-      LinkedHashMap<Integer, Long> propagation = observedPropagations.get(
-          observedBlocks.indexOf(block)
+      LinkedHashMap<Integer, Long> propagation = this.observedPropagations.get(
+          this.observedBlocks.indexOf(block)
       );
       // Update information for the new block
-      propagation.put(node.getNodeID(), getCurrentTime() - block.getTime());
+      propagation.put(node.getNodeID(), time - block.getTime());
     } else {
       // If the block has not been seen by any node and there is no memory allocated
       //TODO move magic number to constant
-      if (observedBlocks.size() > 10) {
+      if (this.observedBlocks.size() > 10) {
         // After the observed blocks limit is reached, log and remove old blocks by FIFO principle
-        printPropagation(observedBlocks.get(0), observedPropagations.get(0));
-        observedBlocks.remove(0);
-        observedPropagations.remove(0);
+        this.printPropagation(this.observedBlocks.get(0), this.observedPropagations.get(0));
+        this.observedBlocks.remove(0);
+        this.observedPropagations.remove(0);
       }
       // If the block has not been seen by any node and there is additional memory
       LinkedHashMap<Integer, Long> propagation = new LinkedHashMap<>();
-      propagation.put(node.getNodeID(), getCurrentTime() - block.getTime());
+      propagation.put(node.getNodeID(), time - block.getTime());
       // Record the block as seen
-      observedBlocks.add(block);
+      this.observedBlocks.add(block);
       // Record the propagation time
-      observedPropagations.add(propagation);
+      this.observedPropagations.add(propagation);
     }
   }
 
+  /**
+   * Gets the propagation times of all blocks to all nodes but their minters, that is the time
+   * from when a block is generated to when it reaches a node.
+   *
+   * @return a copy of the propagation times in milliseconds, in arrival order
+   */
+  public long[] getPropagationTimes() {
+    return Arrays.copyOf(this.propagationTimes, this.numPropagationTimes);
+  }
+
   /**
    * Print propagation information about the propagation of the provided block  in the format:
    *
@@ -167,23 +219,23 @@ public class Simulator {
    * @param propagation the propagation of the provided block as a list of {@link Node} IDs and
    *                    propagation times
    */
-  public static void printPropagation(Block block, LinkedHashMap<Integer, Long> propagation) {
+  public void printPropagation(Block block, LinkedHashMap<Integer, Long> propagation) {
     // Print block and its height
     //TODO block does not have a toString method, what is printed here
-    System.out.println(block + ":" + block.getHeight());
+    this.context.getLog().println(block + ":" + block.getHeight());
     for (Map.Entry<Integer, Long> timeEntry : propagation.entrySet()) {
-      System.out.println(timeEntry.getKey() + "," + timeEntry.getValue());
+      this.context.getLog().println(timeEntry.getKey() + "," + timeEntry.getValue());
     }
-    System.out.println();
+    this.context.getLog().println();
   }
 
   /**
    * Print propagation information about all blocks, internally relying on
-   * {@link Simulator#printPropagation(Block, LinkedHashMap)}.
+   * {@link #printPropagation(Block, LinkedHashMap)}.
    */
-  public static void printAllPropagation() {
-    for (int i = 0; i < observedBlocks.size(); i++) {
-      printPropagation(observedBlocks.get(i), observedPropagations.get(i));
+  public void printAllPropagation() {
+    for (int i = 0; i < this.observedBlocks.size(); i++) {
+      this.printPropagation(this.observedBlocks.get(i), this.observedPropagations.get(i));
     }
   }
 }
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator;
+
+import static simblock.settings.SimulationConfiguration.NUM_OF_THREADS;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import simblock.settings.SimulationParameters;
+
+/**
+ * The type SweepRunner runs a batch of simulations with different parameters on all threads and
+ * writes one table summarizing them, so parameters can be explored without recompiling.
+ *
+ * <p>The sweep file lists parameter sets, one line per grid of parameter sets. A line holds
+ * assignments <em>NAME=value1,value2,...</em> separated by spaces, where <em>NAME</em> is the
+ * name of a constant in {@link simblock.settings.SimulationConfiguration}, and expands to every
+ * combination of the values (the cartesian product). Parameters not assigned keep the value of
+ * their constant. Characters after a <em>#</em> are ignored. For example:
+ *
+ * <pre>
+ * NUM_OF_NODES=100,300 BLOCK_SIZE=535000,1070000
+ * INTERVAL=60000 CBR_USAGE_RATE=0,0.5,1
+ * </pre>
+ *
+ * <p>runs 4 + 3 simulations. The simulations are run by a work-stealing fork-join pool of
+ * {@link simblock.settings.SimulationConfiguration#NUM_OF_THREADS} threads, each simulation
+ * with its own {@link SimulationContext}, and write their output to <em>output/sweep/run-i</em>.
+ * The summary of every run, with its block propagation percentiles, orphan rate and wall-clock
+ * time, is written to <em>output/sweep/results.csv</em> and printed.
+ */
+public class SweepRunner {
+  /**
+   * The default sweep file, read from the classpath.
+   */
+  public static final String SWEEP_FILE = "sweep.conf";
+
+  /**
+   * The parameter assignments of every run, in the order of the sweep file.
+   */
+  private final List<Map<String, String>> runs;
+
+  /**
+   * The names of the parameters assigned by any run, in the order they first appear.
+   */
+  private final List<String> names = new ArrayList<>();
+
+  /**
+   * The directory the outputs of the runs and the results are written to.
+   */
+  private final URI outputUri;
+
+  /**
+   * The result of every run, indexed like {@link #runs}.
+   */
+  private final SimulationResult[] results;
+
+  /**
+   * Instantiates a new sweep runner.
+   *
+   * @param runs      the parameter assignments of every run
+   * @param outputUri the directory the outputs of the runs and the results are written to
+   */
+  public SweepRunner(List<Map<String, String>> runs, URI outputUri) {
+    this.runs = runs;
+    this.outputUri = outputUri;
+    this.results = new SimulationResult[runs.size()];
+    for (Map<String, String> run : runs) {
+      for (String name : run.keySet()) {
+        if (!this.names.contains(name)) {
+          this.names.add(name);
+        }
+      }
+    }
+  }
+
+  /**
+   * The entry point.
+   *
+   * @param args the path of the sweep file, by default {@link #SWEEP_FILE} on the classpath
+   * @throws IOException        if the sweep file cannot be read
+   * @throws URISyntaxException if the sweep file cannot be located
+   */
+  public static void main(String[] args) throws IOException, URISyntaxException {
+    URI sweepUri;
+    if (args.length > 0) {
+      sweepUri = Paths.get(args[0]).toUri();
+    } else {
+      URL resource = ClassLoader.getSystemResource(SWEEP_FILE);
+      if (resource == null) {
+        throw new IllegalArgumentException("Cannot find " + SWEEP_FILE + " on the classpath");
+      }
+      sweepUri = resource.toURI();
+    }
+    List<String> lines = Files.readAllLines(Paths.get(sweepUri), StandardCharsets.UTF_8);
+
+    SweepRunner runner = new SweepRunner(parse(lines), Main.OUT_FILE_URI.resolve("./sweep/"));
+    runner.run();
+    runner.writeResults(System.out);
+  }
+
+  /**
+   * Expands the lines of a sweep file into the parameter assignments of every run.
+   *
+   * @param lines the lines of the sweep file
+   * @return the parameter assignments of every run
+   * @throws IllegalArgumentException if an assignment is malformed
+   */
+  public static List<Map<String, String>> parse(List<String> lines) {
+    List<Map<String, String>> runs = new ArrayList<>();
+    for (String line : lines) {
+      int comment = line.indexOf('#');
+      if (comment >= 0) {
+        line = line.substring(0, comment);
+      }
+      line = line.trim();
+      if (line.isEmpty()) {
+        continue;
+      }
+
+      // Start from one empty assignment and multiply it by the values of each parameter
+      List<Map<String, String>> grid = new ArrayList<>();
+      grid.add(new LinkedHashMap<>());
+      for (String assignment : line.split("\\s+")) {
+        int equals = assignment.indexOf('=');
+        if (equals <= 0 || equals == assignment.length() - 1) {
+          throw new IllegalArgumentException("Malformed assignment: " + assignment);
+        }
+        String name = assignment.substring(0, equals);
+        String[] values = assignment.substring(equals + 1).split(",");
+        List<Map<String, String>> next = new ArrayList<>();
+        for (Map<String, String> run : grid) {
+          for (String value : values) {
+            Map<String, String> combination = new LinkedHashMap<>(run);
+            combination.put(name, value);
+            next.add(combination);
+          }
+        }
+        grid = next;
+      }
+      runs.addAll(grid);
+    }
+    return runs;
+  }
+
+  /**
+   * Runs all simulations on a fork-join pool and waits for them.
+   */
+  public void run() {
+    new File(this.outputUri).mkdirs();
+    ForkJoinPool pool = new ForkJoinPool(NUM_OF_THREADS);
+    try {
+      pool.invoke(new Batch(0, this.runs.size()));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Runs one simulation. Its output, including what {@link Main} prints, is written to its own
+   * directory.
+   *
+   * @param index - the index of the run
+   */
+  private void runOne(int index) {
+    SimulationParameters parameters = new SimulationParameters();
+    for (Map.Entry<String, String> entry : this.runs.get(index).entrySet()) {
+      parameters.set(entry.getKey(), entry.getValue());
+    }
+
+    SimulationContext context = openContext(
+        parameters, this.outputUri.resolve("./run-" + index + "/"));
+    try {
+      this.results[index] = Main.run(context);
+    } finally {
+      context.getLog().close();
+    }
+  }
+
+  /**
+   * Creates the context of a simulation writing its output, including what {@link Main} prints,
+   * to the provided directory. The caller closes the log of the context.
+   *
+   * @param parameters - the parameters of the simulation
+   * @param runUri     - the directory of the output
+   * @return the context
+   */
+  static SimulationContext openContext(SimulationParameters parameters, URI runUri) {
+    new File(runUri.resolve("./graph/")).mkdirs();
+    try {
+      PrintStream log = new PrintStream(
+          new FileOutputStream(new File(runUri.resolve("./log.txt"))), false, "UTF-8");
+      return new SimulationContext(parameters, runUri, log);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open the log in " + runUri, e);
+    }
+  }
+
+  /**
+   * Writes the results of all runs as CSV to <em>results.csv</em> in the output directory and to
+   * the provided stream.
+   *
+   * @param out the stream the results are also printed to
+   * @throws IOException if the results cannot be written
+   */
+  public void writeResults(PrintStream out) throws IOException {
+    StringBuilder table = new StringBuilder();
+    table.append("run");
+    for (String name : this.names) {
+      table.append(',').append(name);
+    }
+    table.append(",blocks,orphans,orphan_rate,propagation_p50,propagation_p90,propagation_p99");
+    table.append(",wall_time_ms\n");
+
+    for (int i = 0; i < this.runs.size(); i++) {
+      Map<String, String> run = this.runs.get(i);
+      SimulationResult result = this.results[i];
+      table.append(i);
+      for (String name : this.names) {
+        table.append(',').append(run.getOrDefault(name, ""));
+      }
+      table.append(',').append(result.getNumBlocks());
+      table.append(',').append(result.getNumOrphans());
+      table.append(',').append(result.getOrphanRate());
+      table.append(',').append(result.getPropagationTime(0.5));
+      table.append(',').append(result.getPropagationTime(0.9));
+      table.append(',').append(result.getPropagationTime(0.99));
+      table.append(',').append(result.getWallTime());
+      table.append('\n');
+    }
+
+    try (PrintWriter pw = new PrintWriter(new BufferedWriter(
+        new FileWriter(new File(this.outputUri.resolve("./results.csv")), false)))) {
+      pw.print(table);
+    }
+    out.print(table);
+  }
+
+  /**
+   * A range of runs, split in halves until a single run is left so idle threads can steal the
+   * other half.
+   */
+  private class Batch extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The index of the first run.
+     */
+    private final int from;
+
+    /**
+     * The index after the last run.
+     */
+    private final int to;
+
+    /**
+     * Instantiates a new batch.
+     *
+     * @param from - the index of the first run
+     * @param to   - the index after the last run
+     */
+    Batch(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from == 1) {
+        runOne(this.from);
+      } else if (this.to - this.from > 1) {
+        int middle = (this.from + this.to) >>> 1;
+        invokeAll(new Batch(this.from, middle), new Batch(middle, this.to));
+      }
+    }
+  }
+}
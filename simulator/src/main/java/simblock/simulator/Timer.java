@@ -16,9 +16,7 @@
 
 package simblock.simulator;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.PriorityQueue;
+import simblock.simulator.engine.LogicalProcess;
 import simblock.task.Task;
 
 
@@ -26,110 +24,83 @@ import simblock.task.Task;
  * The type Timer schedules the execution of simulation tasks stored in a Future Event List (FEL)
  * . Each {@link Task}
  * can be scheduled for execution. Tasks that have been run get removed from the FEL.
+ *
+ * <p>The FEL and the clock are held by the {@link LogicalProcess} of the calling thread. There is
+ * a single logical process unless a parallel engine is running. Each {@link SimulationContext}
+ * has its own timer.
  */
 public class Timer {
 
   /**
-   * A sorted queue of scheduled tasks.
+   * The logical process of the simulation when no parallel engine is running.
    */
-  private static final PriorityQueue<ScheduledTask> taskQueue = new PriorityQueue<>();
+  private LogicalProcess process;
 
   /**
-   * A map containing a mapping of all tasks to their ScheduledTask counterparts. When
-   * executed, the key - value
-   * pair is to be removed from the mapping.
+   * The logical process of each thread of a running parallel engine.
    */
-  //TODO a bit redundant since Task is again stored in ScheduledTask. Is there a better approach?
-  private static final Map<Task, ScheduledTask> taskMap = new HashMap<>();
+  private final ThreadLocal<LogicalProcess> threadProcess = new ThreadLocal<>();
+
   /**
-   * Initial simulation time in milliseconds.
+   * Whether a parallel engine is running.
    */
-  //TODO is it milliseconds?
-  private static long currentTime = 0L;
+  private boolean parallel = false;
 
   /**
-   * Represents a {@link Task} that is scheduled to be executed.
+   * Instantiates a new timer.
+   *
+   * @param taskQueueName the class name of the task queue of its logical processes
    */
-  private static class ScheduledTask implements Comparable<ScheduledTask> {
-    private final Task task;
-    private final long scheduledTime;
-
-    /**
-     * Instantiates a new ScheduledTask.
-     *
-     * @param task          - the task to be executed
-     * @param scheduledTime - the simulation time at which the task is to be executed
-     */
-    private ScheduledTask(Task task, long scheduledTime) {
-      this.task = task;
-      this.scheduledTime = scheduledTime;
-    }
+  public Timer(String taskQueueName) {
+    this.process = new LogicalProcess(0, taskQueueName);
+  }
 
-    /**
-     * Gets the task.
-     *
-     * @return the {@link Task} instance
-     */
-    private Task getTask() {
-      return this.task;
-    }
+  /**
+   * Gets the logical process of the calling thread.
+   *
+   * @return the logical process
+   */
+  public LogicalProcess getProcess() {
+    return this.parallel ? this.threadProcess.get() : this.process;
+  }
 
-    /**
-     * Gets the scheduled time at which the task is to be executed.
-     *
-     * @return the scheduled time
-     */
-    private long getScheduledTime() {
-      return this.scheduledTime;
+  /**
+   * Sets the logical process of the calling thread.
+   *
+   * @param logicalProcess the logical process
+   */
+  public void setProcess(LogicalProcess logicalProcess) {
+    if (this.parallel) {
+      this.threadProcess.set(logicalProcess);
+    } else {
+      this.process = logicalProcess;
     }
+  }
 
-    /**
-     * Compares the two scheduled tasks.
-     *
-     * @param o other task
-     * @return 1 if self is executed later, 0 if concurrent and -1 if self is to be executed before.
-     */
-    public int compareTo(ScheduledTask o) {
-      if (this.equals(o)) {
-        return 0;
-      }
-      int order = Long.signum(this.scheduledTime - o.scheduledTime);
-      if (order != 0) {
-        return order;
-      }
-      order = System.identityHashCode(this) - System.identityHashCode(o);
-      return order;
-    }
+  /**
+   * Sets whether a parallel engine is running. Must be called before the threads of the engine
+   * are started and after they have ended.
+   *
+   * @param running whether a parallel engine is running
+   */
+  public void setParallel(boolean running) {
+    this.parallel = running;
   }
 
   /**
-   * Runs a {@link ScheduledTask}.
+   * Runs the next scheduled {@link Task}.
    */
-  public static void runTask() {
-    // If there are any tasks
-    if (taskQueue.size() > 0) {
-      // Get the next ScheduledTask
-      ScheduledTask currentScheduledTask = taskQueue.poll();
-      Task currentTask = currentScheduledTask.getTask();
-      currentTime = currentScheduledTask.getScheduledTime();
-      // Remove the task from the mapping of all tasks
-      taskMap.remove(currentTask, currentScheduledTask);
-      // Execute
-      currentTask.run();
-    }
+  public void runTask() {
+    this.getProcess().runTask();
   }
 
   /**
-   * Remove task from the mapping of all tasks and from the execution queue.
+   * Remove task from the execution queue.
    *
    * @param task the task to be removed
    */
-  public static void removeTask(Task task) {
-    if (taskMap.containsKey(task)) {
-      ScheduledTask scheduledTask = taskMap.get(task);
-      taskQueue.remove(scheduledTask);
-      taskMap.remove(task, scheduledTask);
-    }
+  public void removeTask(Task task) {
+    this.getProcess().removeTask(task);
   }
 
   /**
@@ -137,13 +108,8 @@ public class Timer {
    *
    * @return the task from the queue or null if task queue is empty.
    */
-  public static Task getTask() {
-    if (taskQueue.size() > 0) {
-      ScheduledTask currentTask = taskQueue.peek();
-      return currentTask.getTask();
-    } else {
-      return null;
-    }
+  public Task getTask() {
+    return this.getProcess().getTask();
   }
 
   /**
@@ -151,10 +117,9 @@ public class Timer {
    *
    * @param task the task
    */
-  public static void putTask(Task task) {
-    ScheduledTask scheduledTask = new ScheduledTask(task, currentTime + task.getInterval());
-    taskMap.put(task, scheduledTask);
-    taskQueue.add(scheduledTask);
+  public void putTask(Task task) {
+    LogicalProcess current = this.getProcess();
+    current.putTask(task, current.getCurrentTime() + task.getInterval());
   }
 
   /**
@@ -163,11 +128,18 @@ public class Timer {
    * @param task the task
    * @param time the time in milliseconds
    */
-  @SuppressWarnings("unused")
-  public static void putTaskAbsoluteTime(Task task, long time) {
-    ScheduledTask scheduledTask = new ScheduledTask(task, time);
-    taskMap.put(task, scheduledTask);
-    taskQueue.add(scheduledTask);
+  public void putTaskAbsoluteTime(Task task, long time) {
+    this.getProcess().putTask(task, time);
+  }
+
+  /**
+   * Runs an action on state shared by all nodes, immediately or, while a parallel engine is
+   * running, once all earlier tasks have been executed.
+   *
+   * @param action the action
+   */
+  public void defer(Runnable action) {
+    this.getProcess().defer(action);
   }
 
   /**
@@ -175,7 +147,7 @@ public class Timer {
    *
    * @return the time
    */
-  public static long getCurrentTime() {
-    return currentTime;
+  public long getCurrentTime() {
+    return this.getProcess().getCurrentTime();
   }
 }
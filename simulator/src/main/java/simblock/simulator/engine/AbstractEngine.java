@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simblock.simulator.engine;
+
+import static simblock.simulator.Main.writeGraph;
+
+import simblock.simulator.SimulationContext;
+import simblock.task.AbstractMintingTask;
+
+/**
+ * The type AbstractEngine executes the scheduled tasks of a simulation until a block is minted on
+ * top of the block at the end block height of the simulation parameters.
+ */
+public abstract class AbstractEngine {
+  /**
+   * The context of the simulation.
+   */
+  private final SimulationContext context;
+
+  /**
+   * The current block height, we stop at END_BLOCK_HEIGHT.
+   */
+  private int currentBlockHeight = 1;
+
+  /**
+   * Instantiates a new engine.
+   *
+   * @param context the context of the simulation
+   */
+  protected AbstractEngine(SimulationContext context) {
+    this.context = context;
+  }
+
+  /**
+   * Gets the context of the simulation.
+   *
+   * @return the context
+   */
+  protected SimulationContext getContext() {
+    return this.context;
+  }
+
+  /**
+   * Runs the simulation.
+   */
+  public abstract void run();
+
+  /**
+   * Updates the block height before a minting task is executed and logs the network at some
+   * heights. Minting tasks must be passed in the order they are executed.
+   *
+   * @param task the minting task
+   * @return false if the simulation ends, or has been cancelled, instead of executing the task
+   */
+  protected boolean beforeMinting(AbstractMintingTask task) {
+    if (task.getParent().getHeight() == this.currentBlockHeight) {
+      this.currentBlockHeight++;
+    }
+    if (this.currentBlockHeight > this.context.getParameters().getEndBlockHeight()
+        || this.context.isCancelled()) {
+      return false;
+    }
+    // Log every 100 blocks and at the second block
+    // TODO use constants here
+    if (this.currentBlockHeight % 100 == 0 || this.currentBlockHeight == 2) {
+      writeGraph(this.context, this.currentBlockHeight);
+    }
+    return true;
+  }
+}
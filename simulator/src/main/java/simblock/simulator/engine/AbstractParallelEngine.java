@@ -0,0 +1,305 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator.engine;
+
+import static simblock.settings.SimulationConfiguration.NUM_OF_THREADS;
+import static simblock.settings.SimulationConfiguration.PARTITION_BY_REGION;
+import static simblock.simulator.Network.getRegionList;
+import static simblock.simulator.engine.LogicalProcess.isBefore;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import simblock.node.Node;
+import simblock.simulator.SimulationContext;
+import simblock.simulator.Timer;
+
+/**
+ * The type AbstractParallelEngine partitions the nodes over logical processes, one per region or
+ * one per thread, and runs them on a pool of threads that meet at a barrier. The coordinating
+ * thread decides what the logical processes do between two barriers and executes minting tasks
+ * alone.
+ *
+ * <p>Actions on state shared by all nodes, such as the output, are deferred and run in task
+ * order by the coordinating thread, so the results are the same as those of the
+ * {@link SequentialEngine}.
+ */
+public abstract class AbstractParallelEngine extends AbstractEngine {
+  /**
+   * Whether the logical processes execute tasks optimistically.
+   */
+  private final boolean optimistic;
+
+  /**
+   * The logical processes.
+   */
+  private LogicalProcess[] processes;
+
+  /**
+   * The barrier the threads of the logical processes and the coordinating thread meet at before
+   * and after each step.
+   */
+  private CyclicBarrier barrier;
+
+  /**
+   * Whether the simulation ended and the threads must stop.
+   */
+  private boolean finished = false;
+
+  /**
+   * The first failure of a thread running the logical processes.
+   */
+  private volatile RuntimeException failure = null;
+
+  /**
+   * The time of the earliest task found by {@link #findNext()}.
+   */
+  private long nextTime = Long.MAX_VALUE;
+
+  /**
+   * The sequence number of the earliest task found by {@link #findNext()}.
+   */
+  private long nextSequence = Long.MAX_VALUE;
+
+  /**
+   * Instantiates a new parallel engine.
+   *
+   * @param context    the context of the simulation
+   * @param optimistic whether the logical processes execute tasks optimistically
+   */
+  protected AbstractParallelEngine(SimulationContext context, boolean optimistic) {
+    super(context);
+    this.optimistic = optimistic;
+  }
+
+  @Override
+  public void run() {
+    Timer timer = this.getContext().getTimer();
+    LogicalProcess setup = timer.getProcess();
+    LogicalProcess[] processOfNode = this.partition();
+    for (LogicalProcess process : this.processes) {
+      process.join(processOfNode, this.processes.length, setup, this.optimistic);
+    }
+    setup.distribute(processOfNode);
+
+    int numThreads = Math.min(NUM_OF_THREADS, this.processes.length);
+    this.barrier = new CyclicBarrier(numThreads + 1);
+    timer.setParallel(true);
+    Thread[] threads = new Thread[numThreads];
+    for (int i = 0; i < numThreads; i++) {
+      int first = i;
+      threads[i] = new Thread(() -> this.work(first, numThreads), "logical-process-" + i);
+      threads[i].setDaemon(true);
+      threads[i].start();
+    }
+
+    try {
+      this.simulate();
+    } finally {
+      // Release the threads
+      this.finished = true;
+      this.await();
+      for (Thread thread : threads) {
+        try {
+          thread.join();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      timer.setParallel(false);
+    }
+
+    // Continue with the logical process that executed the last task
+    LogicalProcess last = this.processes[0];
+    for (LogicalProcess process : this.processes) {
+      process.leave();
+      if (isBefore(last.getLastTime(), last.getLastSequence(),
+          process.getLastTime(), process.getLastSequence())) {
+        last = process;
+      }
+    }
+    timer.setProcess(last);
+  }
+
+  /**
+   * Assigns the nodes to logical processes.
+   *
+   * @return the logical process of every node indexed by node ID
+   */
+  private LogicalProcess[] partition() {
+    int numProcesses = PARTITION_BY_REGION ? getRegionList().size() : NUM_OF_THREADS;
+    this.processes = new LogicalProcess[numProcesses];
+    String taskQueueName = this.getContext().getParameters().getTaskQueue();
+    for (int i = 0; i < numProcesses; i++) {
+      this.processes[i] = new LogicalProcess(i, taskQueueName);
+    }
+
+    int maxNodeID = 0;
+    for (Node node : this.getContext().getSimulator().getSimulatedNodes()) {
+      maxNodeID = Math.max(maxNodeID, node.getNodeID());
+    }
+    LogicalProcess[] processOfNode = new LogicalProcess[maxNodeID + 1];
+    for (Node node : this.getContext().getSimulator().getSimulatedNodes()) {
+      processOfNode[node.getNodeID()] = PARTITION_BY_REGION
+          ? this.processes[node.getRegion()] : this.processes[node.getNodeID() % numProcesses];
+    }
+    return processOfNode;
+  }
+
+  /**
+   * Gets the logical processes.
+   *
+   * @return the logical processes
+   */
+  protected LogicalProcess[] getProcesses() {
+    return this.processes;
+  }
+
+  /**
+   * Coordinates the logical processes until the simulation ends.
+   */
+  protected abstract void simulate();
+
+  /**
+   * Runs one step of a logical process, called on the thread of the logical process.
+   *
+   * @param process the logical process
+   */
+  protected abstract void step(LogicalProcess process);
+
+  /**
+   * Runs one step of every logical process in parallel and waits for all of them.
+   */
+  protected void runSteps() {
+    this.await();
+    this.await();
+    if (this.failure != null) {
+      throw this.failure;
+    }
+  }
+
+  /**
+   * Runs the steps of some of the logical processes.
+   *
+   * @param first the index of the first logical process
+   * @param step  the step between the indices of the logical processes
+   */
+  private void work(int first, int step) {
+    while (true) {
+      this.await();
+      if (this.finished) {
+        return;
+      }
+      try {
+        for (int i = first; i < this.processes.length; i += step) {
+          LogicalProcess process = this.processes[i];
+          this.getContext().getTimer().setProcess(process);
+          this.step(process);
+        }
+      } catch (RuntimeException e) {
+        this.failure = e;
+      }
+      this.await();
+    }
+  }
+
+  /**
+   * Waits for all threads at the barrier.
+   */
+  private void await() {
+    try {
+      this.barrier.await();
+    } catch (InterruptedException | BrokenBarrierException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Finds the earliest task, either scheduled or sent to another logical process in the last
+   * step. Its time and sequence number are then returned by {@link #getNextTime()} and
+   * {@link #getNextSequence()}.
+   *
+   * @return the logical process holding the task or null if the task has been sent
+   */
+  protected LogicalProcess findNext() {
+    LogicalProcess next = null;
+    this.nextTime = Long.MAX_VALUE;
+    this.nextSequence = Long.MAX_VALUE;
+    for (LogicalProcess process : this.processes) {
+      if (process.getTask() != null && isBefore(
+          process.peekTime(), process.peekSequence(), this.nextTime, this.nextSequence)) {
+        next = process;
+        this.nextTime = process.peekTime();
+        this.nextSequence = process.peekSequence();
+      }
+      if (isBefore(process.getSentTime(), process.getSentSequence(),
+          this.nextTime, this.nextSequence)) {
+        next = null;
+        this.nextTime = process.getSentTime();
+        this.nextSequence = process.getSentSequence();
+      }
+    }
+    return next;
+  }
+
+  /**
+   * Gets the time of the earliest task found by {@link #findNext()}.
+   *
+   * @return the time or {@link Long#MAX_VALUE} if there is no task left
+   */
+  protected long getNextTime() {
+    return this.nextTime;
+  }
+
+  /**
+   * Gets the sequence number of the earliest task found by {@link #findNext()}.
+   *
+   * @return the sequence number
+   */
+  protected long getNextSequence() {
+    return this.nextSequence;
+  }
+
+  /**
+   * Runs the deferred actions of all logical processes produced by tasks before the provided one,
+   * in task order.
+   *
+   * @param time     the time of the task
+   * @param sequence the sequence number of the task
+   */
+  protected void runDeferredActions(long time, long sequence) {
+    while (true) {
+      LogicalProcess first = null;
+      DeferredAction firstAction = null;
+      for (LogicalProcess process : this.processes) {
+        DeferredAction action = process.peekDeferredAction();
+        if (action != null && (firstAction == null || isBefore(action.getTime(),
+            action.getSequence(), firstAction.getTime(), firstAction.getSequence()))) {
+          first = process;
+          firstAction = action;
+        }
+      }
+      if (firstAction == null
+          || !isBefore(firstAction.getTime(), firstAction.getSequence(), time, sequence)) {
+        break;
+      }
+      first.runDeferredAction();
+    }
+    for (LogicalProcess process : this.processes) {
+      process.compactDeferredActions();
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator.engine;
+
+import static simblock.settings.SimulationConfiguration.PARTITION_BY_REGION;
+import static simblock.simulator.Network.getMinimumLatency;
+import static simblock.simulator.Network.getRegionList;
+import static simblock.simulator.engine.LogicalProcess.isBefore;
+
+import simblock.simulator.SimulationContext;
+import simblock.task.AbstractMintingTask;
+import simblock.task.Task;
+
+/**
+ * The type ConservativeEngine executes tasks in parallel with one logical process per region or
+ * per shard of nodes, each logical process running on a thread (YAWNS).
+ *
+ * <p>A message from a node to a node of another logical process is delayed by at least the
+ * minimum latency between their regions, the lookahead. All logical processes therefore execute
+ * the tasks scheduled within the lookahead of the earliest pending task in parallel, then
+ * synchronize at a barrier to exchange the messages sent during the window.
+ *
+ * <p>Minting tasks assign block IDs and decide the end of the simulation, so they are executed
+ * alone, in order, between windows. Once the last block has been minted the remaining tasks are
+ * executed one by one. Actions on state shared by all nodes, such as the output, are deferred
+ * and run in task order at the barriers, so the results are the same as those of the
+ * {@link SequentialEngine}.
+ */
+@SuppressWarnings("unused")
+public class ConservativeEngine extends AbstractParallelEngine {
+  /**
+   * The minimum delay of a task sent to another logical process in milliseconds.
+   */
+  private long lookahead;
+
+  /**
+   * The number of the window being run.
+   */
+  private int window = 0;
+
+  /**
+   * The end, exclusive, of the window being run.
+   */
+  private long windowEnd;
+
+  /**
+   * Instantiates a new conservative engine.
+   *
+   * @param context the context of the simulation
+   */
+  public ConservativeEngine(SimulationContext context) {
+    super(context, false);
+  }
+
+  /**
+   * Computes the lookahead, the minimum latency between nodes of different logical processes.
+   * Nodes of the same region only share a logical process when partitioned by region.
+   */
+  private void computeLookahead() {
+    int numRegions = getRegionList().size();
+    this.lookahead = Long.MAX_VALUE;
+    for (int from = 0; from < numRegions; from++) {
+      for (int to = 0; to < numRegions; to++) {
+        if (from != to || !PARTITION_BY_REGION) {
+          this.lookahead = Math.min(this.lookahead, getMinimumLatency(from, to));
+        }
+      }
+    }
+    if (this.lookahead <= 0) {
+      throw new IllegalStateException("The minimum latency leaves no lookahead: " + lookahead);
+    }
+  }
+
+  @Override
+  protected void simulate() {
+    this.computeLookahead();
+    boolean lastBlockMinted = false;
+    while (true) {
+      // Find the earliest task, either scheduled or sent in the last window
+      LogicalProcess next = this.findNext();
+      long time = this.getNextTime();
+      long sequence = this.getNextSequence();
+
+      // Every task before it has been executed
+      this.runDeferredActions(time, sequence);
+      if (time == Long.MAX_VALUE) {
+        return;
+      }
+
+      Task task = next == null ? null : next.getTask();
+      if (task instanceof AbstractMintingTask) {
+        AbstractMintingTask mintingTask = (AbstractMintingTask) task;
+        if (!this.beforeMinting(mintingTask)) {
+          this.checkEnd(time, sequence);
+          return;
+        }
+        lastBlockMinted |= mintingTask.getParent().getHeight() + 1
+            >= this.getContext().getParameters().getEndBlockHeight();
+        this.getContext().getTimer().setProcess(next);
+        next.runTask();
+      } else if (!lastBlockMinted) {
+        this.windowEnd = time + this.lookahead;
+        this.window++;
+        this.runSteps();
+      } else if (next == null) {
+        for (LogicalProcess process : this.getProcesses()) {
+          process.receiveAll(this.getProcesses());
+        }
+      } else {
+        // The end of the simulation may be near any task now
+        this.getContext().getTimer().setProcess(next);
+        next.runTask();
+      }
+    }
+  }
+
+  @Override
+  protected void step(LogicalProcess process) {
+    process.receive(this.getProcesses(), this.window);
+    process.runWindow(this.windowEnd, this.window);
+  }
+
+  /**
+   * Checks that no logical process executed tasks after the end of the simulation. This can only
+   * happen if the final minting task was scheduled within the lookahead of the window before it.
+   *
+   * @param time     the time of the final minting task
+   * @param sequence the sequence number of the final minting task
+   */
+  private void checkEnd(long time, long sequence) {
+    for (LogicalProcess process : this.getProcesses()) {
+      if (isBefore(time, sequence, process.getLastTime(), process.getLastSequence())) {
+        throw new IllegalStateException(
+            "Logical process " + process.getId() + " ran past the end of the simulation at "
+                + time + ", the results differ from the sequential engine");
+      }
+    }
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simblock.simulator.engine;
+
+/**
+ * Represents an action on shared state, such as the output, deferred by a logical process until
+ * it can be run in the order of the task that produced it.
+ */
+class DeferredAction {
+  private final long time;
+  private final long sequence;
+  private final Runnable action;
+
+  /**
+   * Instantiates a new DeferredAction.
+   *
+   * @param time     - the time of the task that produced the action
+   * @param sequence - the sequence number of the task that produced the action
+   * @param action   - the action
+   */
+  DeferredAction(long time, long sequence, Runnable action) {
+    this.time = time;
+    this.sequence = sequence;
+    this.action = action;
+  }
+
+  /**
+   * Gets the time of the task that produced the action.
+   *
+   * @return the time
+   */
+  long getTime() {
+    return this.time;
+  }
+
+  /**
+   * Gets the sequence number of the task that produced the action.
+   *
+   * @return the sequence number
+   */
+  long getSequence() {
+    return this.sequence;
+  }
+
+  /**
+   * Runs the action.
+   */
+  void run() {
+    this.action.run();
+  }
+}
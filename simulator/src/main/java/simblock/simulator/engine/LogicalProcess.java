@@ -0,0 +1,809 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator.engine;
+
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import simblock.simulator.queue.TaskQueue;
+import simblock.task.AbstractMintingTask;
+import simblock.task.Task;
+
+/**
+ * The type LogicalProcess holds the Future Event List (FEL) and the simulation clock of a set of
+ * nodes. The sequential engine runs a single logical process holding every node, the parallel
+ * engines partition the nodes over several logical processes that run on their own threads.
+ *
+ * <p>Tasks are ordered by their scheduled time and then by a sequence number made of the ID of
+ * the node that scheduled the task and a per-node counter. The order therefore does not depend
+ * on how nodes are partitioned, so every engine executes tasks in the same order.
+ *
+ * <p>For the optimistic engine a logical process also keeps the tasks it executed that may still
+ * be undone, together with the state of their nodes, and rolls back when it receives a task
+ * scheduled before the last executed one.
+ */
+public class LogicalProcess {
+  /**
+   * The number of low bits of a sequence number holding the per-node counter, the high bits hold
+   * the ID of the node that scheduled the task.
+   */
+  private static final int COUNTER_BITS = 40;
+
+  /**
+   * The initial number of slots for scheduled tasks.
+   */
+  private static final int INITIAL_CAPACITY = 1024;
+
+  /**
+   * The minimum number of cancelled tasks in the queue before it is compacted.
+   */
+  private static final int MIN_CANCELLED_TASKS_TO_COMPACT = 1024;
+
+  /**
+   * The index of the logical process.
+   */
+  private final int id;
+
+  /**
+   * A sorted queue of scheduled task handles, the implementation is chosen by
+   * {@link simblock.settings.SimulationConfiguration#TASK_QUEUE}.
+   */
+  private final TaskQueue taskQueue;
+
+  /**
+   * The slab of scheduled tasks indexed by task handle. The slot of a cancelled task is null
+   * until its handle is discarded from the queue.
+   */
+  private Task[] tasks = new Task[INITIAL_CAPACITY];
+
+  /**
+   * The scheduled times of the tasks indexed by task handle.
+   */
+  private long[] scheduledTimes = new long[INITIAL_CAPACITY];
+
+  /**
+   * The sequence numbers of the tasks indexed by task handle.
+   */
+  private long[] scheduledSequences = new long[INITIAL_CAPACITY];
+
+  /**
+   * A stack of task handles that can be reused.
+   */
+  private int[] freeHandles = new int[INITIAL_CAPACITY];
+
+  /**
+   * The number of task handles on the stack of free handles.
+   */
+  private int numFreeHandles = 0;
+
+  /**
+   * The number of task handles ever allocated.
+   */
+  private int numHandles = 0;
+
+  /**
+   * The number of cancelled tasks still held by the queue as tombstones.
+   */
+  private int cancelledTasks = 0;
+
+  /**
+   * The per-node counters of scheduled tasks indexed by node ID. Index 0 counts the tasks
+   * scheduled outside of any task, while the network is set up.
+   */
+  private long[] counters = new long[INITIAL_CAPACITY];
+
+  /**
+   * Simulation time in milliseconds.
+   */
+  //TODO is it milliseconds?
+  private long currentTime = 0L;
+
+  /**
+   * The sequence number of the running task.
+   */
+  private long currentSequence = -1L;
+
+  /**
+   * The ID of the node the running task belongs to, 0 before any task has run.
+   */
+  private int currentNodeID = 0;
+
+  /**
+   * The logical process of every node indexed by node ID, null if this is the only one.
+   */
+  private LogicalProcess[] processOfNode = null;
+
+  /**
+   * The tasks sent to other logical processes, double buffered by window parity and indexed by
+   * the index of the receiving logical process.
+   */
+  private ArrayList<PendingTask>[][] outboxes;
+
+  /**
+   * The parity of the window being run.
+   */
+  private int parity = 0;
+
+  /**
+   * Whether other logical processes run at the same time, tasks for their nodes then go through
+   * the outboxes.
+   */
+  private boolean concurrent = false;
+
+  /**
+   * The end, exclusive, of the window being run. Tasks sent to other logical processes must not
+   * be scheduled before it.
+   */
+  private long windowEnd = Long.MIN_VALUE;
+
+  /**
+   * The time of the earliest task sent to other logical processes in the current window.
+   */
+  private long sentTime = Long.MAX_VALUE;
+
+  /**
+   * The sequence number of the earliest task sent to other logical processes in the current
+   * window.
+   */
+  private long sentSequence = Long.MAX_VALUE;
+
+  /**
+   * Whether actions on shared state are deferred until they can be run in task order.
+   */
+  private boolean deferring = false;
+
+  /**
+   * The deferred actions in the order of the tasks that produced them.
+   */
+  private final ArrayList<DeferredAction> deferredActions = new ArrayList<>();
+
+  /**
+   * The number of deferred actions that have already been run.
+   */
+  private int ranActions = 0;
+
+  /**
+   * The time of the last executed task.
+   */
+  private long lastTime = Long.MIN_VALUE;
+
+  /**
+   * The sequence number of the last executed task.
+   */
+  private long lastSequence = Long.MIN_VALUE;
+
+  /**
+   * Whether executed tasks are kept so that they can be undone.
+   */
+  private boolean optimistic = false;
+
+  /**
+   * The executed tasks that may still be undone, in execution order.
+   */
+  private final ArrayDeque<ProcessedTask> processedTasks = new ArrayDeque<>();
+
+  /**
+   * The running task if it may be undone.
+   */
+  private ProcessedTask runningTask = null;
+
+  /**
+   * The time of the last task that can no longer be undone.
+   */
+  private long committedTime = Long.MIN_VALUE;
+
+  /**
+   * The sequence number of the last task that can no longer be undone.
+   */
+  private long committedSequence = Long.MIN_VALUE;
+
+  /**
+   * The tasks and anti-messages received from other logical processes and not handled yet.
+   */
+  private final ArrayList<PendingTask> arrived = new ArrayList<>();
+
+  /**
+   * Instantiates a new empty logical process.
+   *
+   * @param id            the index of the logical process
+   * @param taskQueueName the class name of its task queue
+   */
+  public LogicalProcess(int id, String taskQueueName) {
+    this.id = id;
+    this.taskQueue = createTaskQueue(taskQueueName);
+  }
+
+  /**
+   * Instantiates the task queue.
+   *
+   * @param taskQueueName the task queue class name
+   * @return the task queue
+   */
+  private static TaskQueue createTaskQueue(String taskQueueName) {
+    try {
+      return (TaskQueue) Class.forName(taskQueueName).getConstructor().newInstance();
+    } catch (Exception e) {
+      throw new IllegalArgumentException("Unknown task queue: " + taskQueueName, e);
+    }
+  }
+
+  /**
+   * Compares two task orders given as time and sequence number.
+   *
+   * @param time          the time of the first task
+   * @param sequence      the sequence number of the first task
+   * @param otherTime     the time of the second task
+   * @param otherSequence the sequence number of the second task
+   * @return true if the first task is executed before the second
+   */
+  static boolean isBefore(long time, long sequence, long otherTime, long otherSequence) {
+    return time < otherTime || time == otherTime && sequence < otherSequence;
+  }
+
+  /**
+   * Gets the index of the logical process.
+   *
+   * @return the index
+   */
+  public int getId() {
+    return this.id;
+  }
+
+  /**
+   * Get current time in milliseconds.
+   *
+   * @return the time
+   */
+  public long getCurrentTime() {
+    return this.currentTime;
+  }
+
+  /**
+   * Gets a free task handle, growing the slab if there is none.
+   *
+   * @return the handle
+   */
+  private int allocateHandle() {
+    if (this.numFreeHandles > 0) {
+      return this.freeHandles[--this.numFreeHandles];
+    }
+    if (this.numHandles == this.tasks.length) {
+      this.tasks = Arrays.copyOf(this.tasks, this.tasks.length * 2);
+      this.scheduledTimes = Arrays.copyOf(this.scheduledTimes, this.scheduledTimes.length * 2);
+      this.scheduledSequences = Arrays.copyOf(
+          this.scheduledSequences, this.scheduledSequences.length * 2);
+      this.freeHandles = Arrays.copyOf(this.freeHandles, this.freeHandles.length * 2);
+    }
+    return this.numHandles++;
+  }
+
+  /**
+   * Returns a task handle that is no longer in the queue for reuse.
+   *
+   * @param handle the handle
+   */
+  private void releaseHandle(int handle) {
+    this.tasks[handle] = null;
+    this.freeHandles[this.numFreeHandles++] = handle;
+  }
+
+  /**
+   * Discards cancelled tasks from the head of the queue.
+   *
+   * @return the handle of the next task that is not cancelled or -1 if there is none
+   */
+  private int peekHandle() {
+    int handle = this.taskQueue.peek();
+    while (handle >= 0 && this.tasks[handle] == null) {
+      this.taskQueue.poll();
+      this.releaseHandle(handle);
+      this.cancelledTasks--;
+      handle = this.taskQueue.peek();
+    }
+    return handle;
+  }
+
+  /**
+   * Runs the next scheduled {@link Task}.
+   */
+  public void runTask() {
+    // If there are any tasks
+    int handle = this.peekHandle();
+    if (handle >= 0) {
+      // Get the next task
+      this.currentTime = this.taskQueue.peekTime();
+      this.currentSequence = this.taskQueue.peekSequence();
+      this.taskQueue.poll();
+      Task currentTask = this.tasks[handle];
+      // The task is no longer scheduled
+      this.releaseHandle(handle);
+      currentTask.setHandle(-1);
+      // Execute
+      this.currentNodeID = currentTask.getNode().getNodeID();
+      if (this.optimistic) {
+        this.runningTask = new ProcessedTask(
+            currentTask, this.currentTime, this.currentSequence,
+            currentTask.getNode().saveState(), this.counters[this.currentNodeID]);
+        this.processedTasks.addLast(this.runningTask);
+      }
+      currentTask.run();
+      this.runningTask = null;
+      this.lastTime = this.currentTime;
+      this.lastSequence = this.currentSequence;
+    }
+  }
+
+  /**
+   * Remove task from the execution queue. The slot of the task is cleared and its handle
+   * discarded when it reaches the head of the queue, the queue is compacted once cancelled tasks
+   * make up more than half of it.
+   *
+   * @param task the task to be removed
+   */
+  public void removeTask(Task task) {
+    int handle = task.getHandle();
+    if (handle >= 0 && this.runningTask != null) {
+      this.runningTask.addCancelled(new PendingTask(
+          task, this.scheduledTimes[handle], this.scheduledSequences[handle]));
+    }
+    this.cancel(task);
+  }
+
+  /**
+   * Removes a task from the execution queue.
+   *
+   * @param task the task to be removed
+   */
+  private void cancel(Task task) {
+    int handle = task.getHandle();
+    if (handle >= 0) {
+      this.tasks[handle] = null;
+      task.setHandle(-1);
+      this.cancelledTasks++;
+      if (this.cancelledTasks >= MIN_CANCELLED_TASKS_TO_COMPACT
+          && this.cancelledTasks * 2 > this.taskQueue.size()) {
+        this.taskQueue.removeIf(this::releaseIfCancelled);
+        this.cancelledTasks = 0;
+      }
+    }
+  }
+
+  /**
+   * Releases the handle of a cancelled task during compaction.
+   *
+   * @param handle the handle
+   * @return true if the task was cancelled
+   */
+  private boolean releaseIfCancelled(int handle) {
+    if (this.tasks[handle] == null) {
+      this.releaseHandle(handle);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Get the {@link Task} from the execution queue to be executed next.
+   *
+   * @return the task from the queue or null if task queue is empty.
+   */
+  public Task getTask() {
+    int handle = this.peekHandle();
+    if (handle >= 0) {
+      return this.tasks[handle];
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Gets the time of the task to be executed next, {@link #getTask()} must not be null.
+   *
+   * @return the scheduled time
+   */
+  long peekTime() {
+    return this.taskQueue.peekTime();
+  }
+
+  /**
+   * Gets the sequence number of the task to be executed next, {@link #getTask()} must not be
+   * null.
+   *
+   * @return the sequence number
+   */
+  long peekSequence() {
+    return this.taskQueue.peekSequence();
+  }
+
+  /**
+   * Schedule task to be executed at the provided absolute timestamp. A task belongs to the
+   * logical process of its node.
+   *
+   * @param task the task
+   * @param time the time in milliseconds
+   */
+  public void putTask(Task task, long time) {
+    int origin = this.currentNodeID;
+    if (origin >= this.counters.length) {
+      this.counters = Arrays.copyOf(this.counters, Math.max(origin + 1, this.counters.length * 2));
+    }
+    long sequence = (long) origin << COUNTER_BITS | this.counters[origin]++;
+    LogicalProcess target = this.processOfNode == null
+        ? this : this.processOfNode[task.getNode().getNodeID()];
+    if (target == this || !this.concurrent) {
+      target.addTask(task, time, sequence);
+      if (this.runningTask != null) {
+        this.runningTask.addScheduled(task);
+      }
+    } else {
+      if (time < this.windowEnd) {
+        throw new IllegalStateException(
+            "Task scheduled at " + time + " for another logical process within the lookahead");
+      }
+      PendingTask pendingTask = new PendingTask(task, time, sequence);
+      this.send(target, pendingTask);
+      if (this.runningTask != null) {
+        this.runningTask.addSent(pendingTask);
+      }
+    }
+  }
+
+  /**
+   * Puts a task or anti-message into the outbox for another logical process.
+   *
+   * @param target      the receiving logical process
+   * @param pendingTask the task or anti-message
+   */
+  private void send(LogicalProcess target, PendingTask pendingTask) {
+    this.outboxes[this.parity][target.id].add(pendingTask);
+    if (isBefore(pendingTask.getTime(), pendingTask.getSequence(),
+        this.sentTime, this.sentSequence)) {
+      this.sentTime = pendingTask.getTime();
+      this.sentSequence = pendingTask.getSequence();
+    }
+  }
+
+  /**
+   * Adds a task to the queue of this logical process.
+   *
+   * @param task     the task
+   * @param time     the time in milliseconds
+   * @param sequence the sequence number
+   */
+  private void addTask(Task task, long time, long sequence) {
+    int handle = this.allocateHandle();
+    this.tasks[handle] = task;
+    this.scheduledTimes[handle] = time;
+    this.scheduledSequences[handle] = sequence;
+    task.setHandle(handle);
+    this.taskQueue.add(time, sequence, handle);
+  }
+
+  /**
+   * Runs an action on state shared by all nodes. The action is run immediately unless this
+   * logical process runs alongside others, then it is deferred until all earlier tasks of every
+   * logical process have been executed.
+   *
+   * @param action the action
+   */
+  public void defer(Runnable action) {
+    if (this.deferring) {
+      this.deferredActions.add(new DeferredAction(this.currentTime, this.currentSequence, action));
+    } else {
+      action.run();
+    }
+  }
+
+  /**
+   * Checks whether actions on shared state are deferred.
+   *
+   * @return true if deferred
+   */
+  public boolean isDeferring() {
+    return this.deferring;
+  }
+
+  /**
+   * Joins a partition of the nodes, taking over the counters of the logical process the network
+   * was set up in.
+   *
+   * @param processOfNode the logical process of every node indexed by node ID
+   * @param numProcesses  the number of logical processes
+   * @param setup         the logical process the network was set up in
+   * @param optimistic    whether tasks are executed optimistically
+   */
+  @SuppressWarnings("unchecked")
+  void join(
+      LogicalProcess[] processOfNode, int numProcesses, LogicalProcess setup, boolean optimistic) {
+    this.processOfNode = processOfNode;
+    this.outboxes = (ArrayList<PendingTask>[][]) new ArrayList<?>[2][numProcesses];
+    for (ArrayList<PendingTask>[] outbox : this.outboxes) {
+      for (int i = 0; i < numProcesses; i++) {
+        outbox[i] = new ArrayList<>();
+      }
+    }
+    this.counters = setup.counters.clone();
+    this.currentTime = setup.currentTime;
+    this.deferring = true;
+    // Logical processes run optimistically always send tasks through the outboxes
+    this.optimistic = optimistic;
+    this.concurrent = optimistic;
+  }
+
+  /**
+   * Moves every scheduled task to the logical process of its node, keeping its order.
+   *
+   * @param processOfNode the logical process of every node indexed by node ID
+   */
+  void distribute(LogicalProcess[] processOfNode) {
+    int handle;
+    while ((handle = this.peekHandle()) >= 0) {
+      long time = this.taskQueue.peekTime();
+      long sequence = this.taskQueue.peekSequence();
+      this.taskQueue.poll();
+      Task task = this.tasks[handle];
+      this.releaseHandle(handle);
+      processOfNode[task.getNode().getNodeID()].addTask(task, time, sequence);
+    }
+  }
+
+  /**
+   * Leaves the partition, actions are no longer deferred.
+   */
+  void leave() {
+    this.deferring = false;
+  }
+
+  /**
+   * Runs the tasks scheduled before the end of the window, stopping at the first minting task
+   * which must run alone.
+   *
+   * @param end    the end of the window, exclusive
+   * @param window the number of the window
+   */
+  void runWindow(long end, int window) {
+    this.concurrent = true;
+    this.windowEnd = end;
+    this.parity = window & 1;
+    this.sentTime = Long.MAX_VALUE;
+    this.sentSequence = Long.MAX_VALUE;
+    int handle;
+    while ((handle = this.peekHandle()) >= 0 && this.taskQueue.peekTime() < end
+        && !(this.tasks[handle] instanceof AbstractMintingTask)) {
+      this.runTask();
+    }
+    this.concurrent = false;
+  }
+
+  /**
+   * Receives the tasks other logical processes sent in the window before the provided one.
+   *
+   * @param processes all logical processes
+   * @param window    the number of the window about to be run
+   */
+  void receive(LogicalProcess[] processes, int window) {
+    for (LogicalProcess source : processes) {
+      ArrayList<PendingTask> inbox = source.outboxes[~window & 1][this.id];
+      for (PendingTask pendingTask : inbox) {
+        this.addTask(pendingTask.getTask(), pendingTask.getTime(), pendingTask.getSequence());
+      }
+      inbox.clear();
+    }
+  }
+
+  /**
+   * Receives every task other logical processes sent.
+   *
+   * @param processes all logical processes
+   */
+  void receiveAll(LogicalProcess[] processes) {
+    this.receive(processes, 0);
+    this.receive(processes, 1);
+    this.sentTime = Long.MAX_VALUE;
+    this.sentSequence = Long.MAX_VALUE;
+  }
+
+  /**
+   * Discards the executed tasks before the global virtual time, which can no longer be undone,
+   * and receives the tasks and anti-messages other logical processes sent in the previous window.
+   *
+   * @param processes the logical processes
+   * @param window    the number of the window about to be run
+   * @param gvtTime     the time of the earliest task any logical process may still execute
+   * @param gvtSequence the sequence number of that task
+   */
+  void collect(LogicalProcess[] processes, int window, long gvtTime, long gvtSequence) {
+    while (!this.processedTasks.isEmpty() && isBefore(this.processedTasks.peekFirst().getTime(),
+        this.processedTasks.peekFirst().getSequence(), gvtTime, gvtSequence)) {
+      ProcessedTask processedTask = this.processedTasks.pollFirst();
+      this.committedTime = processedTask.getTime();
+      this.committedSequence = processedTask.getSequence();
+    }
+    for (LogicalProcess source : processes) {
+      ArrayList<PendingTask> inbox = source.outboxes[~window & 1][this.id];
+      for (PendingTask pendingTask : inbox) {
+        if (!pendingTask.isCancelled()) {
+          pendingTask.setDelivered();
+          this.arrived.add(pendingTask);
+        }
+      }
+      inbox.clear();
+    }
+  }
+
+  /**
+   * Handles the received tasks and anti-messages, rolling back when they are in the past of this
+   * logical process, then optimistically runs the tasks scheduled before the end of the window,
+   * stopping at the first minting task which must run alone.
+   *
+   * @param end    the end of the window, exclusive
+   * @param window the number of the window
+   */
+  void runOptimistically(long end, int window) {
+    this.parity = window & 1;
+    this.sentTime = Long.MAX_VALUE;
+    this.sentSequence = Long.MAX_VALUE;
+    for (PendingTask pendingTask : this.arrived) {
+      long time = pendingTask.getTime();
+      long sequence = pendingTask.getSequence();
+      if (pendingTask.isAnti()) {
+        // Annihilate the task, undoing it first if it has been executed
+        if (pendingTask.getTask().getHandle() < 0) {
+          this.rollback(time, sequence);
+        }
+        this.cancel(pendingTask.getTask());
+      } else {
+        // A straggler undoes the tasks executed after it
+        if (isBefore(time, sequence, this.lastTime, this.lastSequence)) {
+          this.rollback(time, sequence);
+        }
+        this.addTask(pendingTask.getTask(), time, sequence);
+      }
+    }
+    this.arrived.clear();
+    int handle;
+    while ((handle = this.peekHandle()) >= 0 && this.taskQueue.peekTime() < end
+        && !(this.tasks[handle] instanceof AbstractMintingTask)) {
+      this.runTask();
+    }
+  }
+
+  /**
+   * Undoes the executed tasks at or after the provided time and sequence number, latest first.
+   *
+   * @param time     the time
+   * @param sequence the sequence number
+   */
+  void rollback(long time, long sequence) {
+    while (!this.processedTasks.isEmpty() && !isBefore(this.processedTasks.peekLast().getTime(),
+        this.processedTasks.peekLast().getSequence(), time, sequence)) {
+      this.undo(this.processedTasks.pollLast());
+    }
+    // Drop what the undone tasks deferred
+    while (this.deferredActions.size() > this.ranActions) {
+      DeferredAction last = this.deferredActions.get(this.deferredActions.size() - 1);
+      if (isBefore(last.getTime(), last.getSequence(), time, sequence)) {
+        break;
+      }
+      this.deferredActions.remove(this.deferredActions.size() - 1);
+    }
+    ProcessedTask last = this.processedTasks.peekLast();
+    this.lastTime = last == null ? this.committedTime : last.getTime();
+    this.lastSequence = last == null ? this.committedSequence : last.getSequence();
+    if (this.lastTime != Long.MIN_VALUE) {
+      this.currentTime = this.lastTime;
+    }
+  }
+
+  /**
+   * Undoes an executed task: restores the state of its node, cancels the tasks it scheduled or
+   * sent, reschedules the tasks it cancelled and finally reschedules the task itself.
+   *
+   * @param processedTask the executed task
+   */
+  private void undo(ProcessedTask processedTask) {
+    Task task = processedTask.getTask();
+    task.getNode().restoreState(processedTask.getState());
+    this.counters[task.getNode().getNodeID()] = processedTask.getCounter();
+    if (processedTask.getScheduled() != null) {
+      for (Task scheduled : processedTask.getScheduled()) {
+        this.cancel(scheduled);
+      }
+    }
+    if (processedTask.getSent() != null) {
+      for (PendingTask sent : processedTask.getSent()) {
+        if (sent.isDelivered()) {
+          this.send(this.processOfNode[sent.getTask().getNode().getNodeID()], new PendingTask(
+              sent.getTask(), sent.getTime(), sent.getSequence(), true));
+        } else {
+          sent.cancel();
+        }
+      }
+    }
+    if (processedTask.getCancelled() != null) {
+      for (PendingTask cancelled : processedTask.getCancelled()) {
+        this.addTask(cancelled.getTask(), cancelled.getTime(), cancelled.getSequence());
+      }
+    }
+    this.addTask(task, processedTask.getTime(), processedTask.getSequence());
+  }
+
+  /**
+   * Gets the time of the earliest task sent to other logical processes in the last window.
+   *
+   * @return the time or {@link Long#MAX_VALUE} if none was sent
+   */
+  long getSentTime() {
+    return this.sentTime;
+  }
+
+  /**
+   * Gets the sequence number of the earliest task sent to other logical processes in the last
+   * window.
+   *
+   * @return the sequence number
+   */
+  long getSentSequence() {
+    return this.sentSequence;
+  }
+
+  /**
+   * Gets the next deferred action that has not been run.
+   *
+   * @return the action or null if there is none
+   */
+  DeferredAction peekDeferredAction() {
+    return this.ranActions < this.deferredActions.size()
+        ? this.deferredActions.get(this.ranActions) : null;
+  }
+
+  /**
+   * Runs the next deferred action.
+   */
+  void runDeferredAction() {
+    this.deferredActions.get(this.ranActions++).run();
+  }
+
+  /**
+   * Discards the deferred actions that have been run.
+   */
+  void compactDeferredActions() {
+    if (this.ranActions > 0) {
+      this.deferredActions.subList(0, this.ranActions).clear();
+      this.ranActions = 0;
+    }
+  }
+
+  /**
+   * Gets the time of the last executed task.
+   *
+   * @return the time or {@link Long#MIN_VALUE} if no task was executed
+   */
+  long getLastTime() {
+    return this.lastTime;
+  }
+
+  /**
+   * Gets the sequence number of the last executed task.
+   *
+   * @return the sequence number
+   */
+  long getLastSequence() {
+    return this.lastSequence;
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator.engine;
+
+import static simblock.settings.SimulationConfiguration.OPTIMISTIC_WINDOW;
+
+import simblock.simulator.SimulationContext;
+import simblock.task.AbstractMintingTask;
+import simblock.task.Task;
+
+/**
+ * The type OptimisticEngine executes tasks in parallel with one logical process per region or
+ * per shard of nodes, each logical process running on a thread (Time Warp).
+ *
+ * <p>Logical processes do not wait for each other: every logical process executes the tasks
+ * scheduled before the end of a window of {@link
+ * simblock.settings.SimulationConfiguration#OPTIMISTIC_WINDOW} milliseconds after the global
+ * virtual time (GVT), the time of the earliest task any logical process may still execute.
+ * Before executing a task the state of its node is saved. A task received from another logical
+ * process that should have been executed before tasks already executed rolls them back,
+ * restoring the state of their nodes and cancelling the tasks they sent with anti-messages.
+ *
+ * <p>The logical processes exchange tasks at a barrier after each window, where the GVT is
+ * computed and the saved states before it are discarded (fossil collection). Minting tasks are
+ * executed alone at the GVT, in order, so they are never rolled back. When the simulation ends
+ * every logical process is rolled back to the final minting task. Actions on state shared by
+ * all nodes, such as the output, are deferred and run once they are before the GVT, so the
+ * results are the same as those of the {@link SequentialEngine}.
+ */
+@SuppressWarnings("unused")
+public class OptimisticEngine extends AbstractParallelEngine {
+  /**
+   * The number of the window being run.
+   */
+  private int window = 0;
+
+  /**
+   * The end, exclusive, of the window being run.
+   */
+  private long windowEnd;
+
+  /**
+   * The time of the global virtual time.
+   */
+  private long gvtTime;
+
+  /**
+   * The sequence number of the global virtual time.
+   */
+  private long gvtSequence;
+
+  /**
+   * Whether the logical processes receive tasks in the current step, otherwise they execute
+   * tasks.
+   */
+  private boolean receiving;
+
+  /**
+   * Instantiates a new optimistic engine.
+   *
+   * @param context the context of the simulation
+   */
+  public OptimisticEngine(SimulationContext context) {
+    super(context, true);
+  }
+
+  @Override
+  protected void simulate() {
+    while (true) {
+      // The earliest task, either scheduled or sent in the last window, is the GVT
+      LogicalProcess next = this.findNext();
+      long time = this.getNextTime();
+      long sequence = this.getNextSequence();
+
+      // Every task before it has been committed
+      this.runDeferredActions(time, sequence);
+      if (time == Long.MAX_VALUE) {
+        return;
+      }
+
+      Task task = next == null ? null : next.getTask();
+      if (task instanceof AbstractMintingTask) {
+        if (!this.beforeMinting((AbstractMintingTask) task)) {
+          // Undo the tasks executed past the end of the simulation
+          for (LogicalProcess process : this.getProcesses()) {
+            process.rollback(time, sequence);
+          }
+          return;
+        }
+        this.getContext().getTimer().setProcess(next);
+        next.runTask();
+      } else {
+        this.gvtTime = time;
+        this.gvtSequence = sequence;
+        this.windowEnd = time + OPTIMISTIC_WINDOW;
+        this.window++;
+        this.receiving = true;
+        this.runSteps();
+        this.receiving = false;
+        this.runSteps();
+      }
+    }
+  }
+
+  @Override
+  protected void step(LogicalProcess process) {
+    if (this.receiving) {
+      process.collect(this.getProcesses(), this.window, this.gvtTime, this.gvtSequence);
+    } else {
+      process.runOptimistically(this.windowEnd, this.window);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simblock.simulator.engine;
+
+import simblock.task.Task;
+
+/**
+ * Represents a task sent to another logical process that has not been received yet, or, for the
+ * optimistic engine, an anti-message cancelling a task that was sent before.
+ */
+class PendingTask {
+  private final Task task;
+  private final long time;
+  private final long sequence;
+  private final boolean anti;
+  private boolean delivered = false;
+  private boolean cancelled = false;
+
+  /**
+   * Instantiates a new PendingTask.
+   *
+   * @param task     - the task
+   * @param time     - the simulation time at which the task is to be executed
+   * @param sequence - the sequence number of the task
+   */
+  PendingTask(Task task, long time, long sequence) {
+    this(task, time, sequence, false);
+  }
+
+  /**
+   * Instantiates a new PendingTask.
+   *
+   * @param task     - the task
+   * @param time     - the simulation time at which the task is to be executed
+   * @param sequence - the sequence number of the task
+   * @param anti     - whether this is an anti-message cancelling the task
+   */
+  PendingTask(Task task, long time, long sequence, boolean anti) {
+    this.task = task;
+    this.time = time;
+    this.sequence = sequence;
+    this.anti = anti;
+  }
+
+  /**
+   * Checks whether this is an anti-message cancelling the task.
+   *
+   * @return true if this is an anti-message
+   */
+  boolean isAnti() {
+    return this.anti;
+  }
+
+  /**
+   * Checks whether the receiving logical process has received the task.
+   *
+   * @return true if delivered
+   */
+  boolean isDelivered() {
+    return this.delivered;
+  }
+
+  /**
+   * Marks the task as received.
+   */
+  void setDelivered() {
+    this.delivered = true;
+  }
+
+  /**
+   * Checks whether the task was cancelled before it was received.
+   *
+   * @return true if cancelled
+   */
+  boolean isCancelled() {
+    return this.cancelled;
+  }
+
+  /**
+   * Cancels the task before it is received.
+   */
+  void cancel() {
+    this.cancelled = true;
+  }
+
+  /**
+   * Gets the task.
+   *
+   * @return the task
+   */
+  Task getTask() {
+    return this.task;
+  }
+
+  /**
+   * Gets the simulation time at which the task is to be executed.
+   *
+   * @return the time
+   */
+  long getTime() {
+    return this.time;
+  }
+
+  /**
+   * Gets the sequence number of the task.
+   *
+   * @return the sequence number
+   */
+  long getSequence() {
+    return this.sequence;
+  }
+}
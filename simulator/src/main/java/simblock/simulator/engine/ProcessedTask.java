@@ -0,0 +1,161 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator.engine;
+
+import java.util.ArrayList;
+import simblock.node.NodeState;
+import simblock.task.Task;
+
+/**
+ * Represents a task executed optimistically, with what is needed to undo it: the state of its
+ * node before it ran and the tasks it scheduled, sent and cancelled.
+ */
+class ProcessedTask {
+  private final Task task;
+  private final long time;
+  private final long sequence;
+  private final NodeState state;
+  private final long counter;
+  private ArrayList<Task> scheduled = null;
+  private ArrayList<PendingTask> sent = null;
+  private ArrayList<PendingTask> cancelled = null;
+
+  /**
+   * Instantiates a new ProcessedTask.
+   *
+   * @param task     - the task
+   * @param time     - the time the task was executed at
+   * @param sequence - the sequence number of the task
+   * @param state    - the state of the node of the task before it ran
+   * @param counter  - the task counter of the node before the task ran
+   */
+  ProcessedTask(Task task, long time, long sequence, NodeState state, long counter) {
+    this.task = task;
+    this.time = time;
+    this.sequence = sequence;
+    this.state = state;
+    this.counter = counter;
+  }
+
+  /**
+   * Gets the task.
+   *
+   * @return the task
+   */
+  Task getTask() {
+    return this.task;
+  }
+
+  /**
+   * Gets the time the task was executed at.
+   *
+   * @return the time
+   */
+  long getTime() {
+    return this.time;
+  }
+
+  /**
+   * Gets the sequence number of the task.
+   *
+   * @return the sequence number
+   */
+  long getSequence() {
+    return this.sequence;
+  }
+
+  /**
+   * Gets the state of the node of the task before it ran.
+   *
+   * @return the state
+   */
+  NodeState getState() {
+    return this.state;
+  }
+
+  /**
+   * Gets the task counter of the node before the task ran.
+   *
+   * @return the counter
+   */
+  long getCounter() {
+    return this.counter;
+  }
+
+  /**
+   * Records a task the task scheduled in the same logical process.
+   *
+   * @param task the scheduled task
+   */
+  void addScheduled(Task task) {
+    if (this.scheduled == null) {
+      this.scheduled = new ArrayList<>();
+    }
+    this.scheduled.add(task);
+  }
+
+  /**
+   * Records a task the task sent to another logical process.
+   *
+   * @param pendingTask the sent task
+   */
+  void addSent(PendingTask pendingTask) {
+    if (this.sent == null) {
+      this.sent = new ArrayList<>();
+    }
+    this.sent.add(pendingTask);
+  }
+
+  /**
+   * Records a task the task cancelled, with the time and sequence number it was scheduled with.
+   *
+   * @param pendingTask the cancelled task
+   */
+  void addCancelled(PendingTask pendingTask) {
+    if (this.cancelled == null) {
+      this.cancelled = new ArrayList<>();
+    }
+    this.cancelled.add(pendingTask);
+  }
+
+  /**
+   * Gets the tasks the task scheduled in the same logical process.
+   *
+   * @return the tasks or null if there are none
+   */
+  ArrayList<Task> getScheduled() {
+    return this.scheduled;
+  }
+
+  /**
+   * Gets the tasks the task sent to other logical processes.
+   *
+   * @return the tasks or null if there are none
+   */
+  ArrayList<PendingTask> getSent() {
+    return this.sent;
+  }
+
+  /**
+   * Gets the tasks the task cancelled.
+   *
+   * @return the tasks or null if there are none
+   */
+  ArrayList<PendingTask> getCancelled() {
+    return this.cancelled;
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simblock.simulator.engine;
+
+import simblock.simulator.SimulationContext;
+import simblock.simulator.Timer;
+import simblock.task.AbstractMintingTask;
+
+/**
+ * The type SequentialEngine executes all tasks one after another on the calling thread.
+ */
+@SuppressWarnings("unused")
+public class SequentialEngine extends AbstractEngine {
+  /**
+   * Instantiates a new sequential engine.
+   *
+   * @param context the context of the simulation
+   */
+  public SequentialEngine(SimulationContext context) {
+    super(context);
+  }
+
+  @Override
+  public void run() {
+    Timer timer = this.getContext().getTimer();
+    // Iterate over tasks and handle
+    while (timer.getTask() != null) {
+      if (timer.getTask() instanceof AbstractMintingTask
+          && !this.beforeMinting((AbstractMintingTask) timer.getTask())) {
+        break;
+      }
+      // Execute task
+      timer.runTask();
+    }
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator.log;
+
+import simblock.simulator.Timer;
+
+/**
+ * The type AbstractEventSink receives the events of a simulation, such as nodes joining, links
+ * and blocks flowing between nodes, and records them in the output.
+ *
+ * <p>While a parallel engine runs, events produced by tasks are deferred by the timer and
+ * recorded in task order, so subclasses record events one at a time and in the same order
+ * whatever the engine.
+ */
+public abstract class AbstractEventSink {
+  /**
+   * The timer of the simulation producing the events.
+   */
+  private final Timer timer;
+
+  /**
+   * Instantiates a new event sink.
+   *
+   * @param timer the timer of the simulation producing the events
+   */
+  protected AbstractEventSink(Timer timer) {
+    this.timer = timer;
+  }
+
+  /**
+   * Records that a node joined the network.
+   *
+   * @param timestamp the time in milliseconds
+   * @param nodeId    the ID of the node
+   * @param regionId  the region of the node
+   */
+  public void addNode(long timestamp, int nodeId, int regionId) {
+    if (this.isDeferring()) {
+      this.timer.defer(() -> this.writeAddNode(timestamp, nodeId, regionId));
+    } else {
+      this.writeAddNode(timestamp, nodeId, regionId);
+    }
+  }
+
+  /**
+   * Records that a node added an outbound link.
+   *
+   * @param timestamp   the time in milliseconds
+   * @param beginNodeId the ID of the node adding the link
+   * @param endNodeId   the ID of the neighbor
+   */
+  public void addLink(long timestamp, int beginNodeId, int endNodeId) {
+    if (this.isDeferring()) {
+      this.timer.defer(() -> this.writeAddLink(timestamp, beginNodeId, endNodeId));
+    } else {
+      this.writeAddLink(timestamp, beginNodeId, endNodeId);
+    }
+  }
+
+  /**
+   * Records that a node removed an outbound link.
+   *
+   * @param timestamp   the time in milliseconds
+   * @param beginNodeId the ID of the node removing the link
+   * @param endNodeId   the ID of the former neighbor
+   */
+  public void removeLink(long timestamp, int beginNodeId, int endNodeId) {
+    if (this.isDeferring()) {
+      this.timer.defer(() -> this.writeRemoveLink(timestamp, beginNodeId, endNodeId));
+    } else {
+      this.writeRemoveLink(timestamp, beginNodeId, endNodeId);
+    }
+  }
+
+  /**
+   * Records that a block was transmitted from a node to another.
+   *
+   * @param transmissionTimestamp the time the transmission started in milliseconds
+   * @param receptionTimestamp    the time the block was received in milliseconds
+   * @param beginNodeId           the ID of the sender
+   * @param endNodeId             the ID of the receiver
+   * @param blockId               the ID of the block
+   */
+  public void flowBlock(long transmissionTimestamp, long receptionTimestamp, int beginNodeId,
+                        int endNodeId, int blockId) {
+    if (this.isDeferring()) {
+      this.timer.defer(() -> this.writeFlowBlock(
+          transmissionTimestamp, receptionTimestamp, beginNodeId, endNodeId, blockId));
+    } else {
+      this.writeFlowBlock(
+          transmissionTimestamp, receptionTimestamp, beginNodeId, endNodeId, blockId);
+    }
+  }
+
+  /**
+   * Records that a node added a block to its chain.
+   *
+   * @param timestamp the time in milliseconds
+   * @param nodeId    the ID of the node
+   * @param blockId   the ID of the block
+   */
+  public void addBlock(long timestamp, int nodeId, int blockId) {
+    if (this.isDeferring()) {
+      this.timer.defer(() -> this.writeAddBlock(timestamp, nodeId, blockId));
+    } else {
+      this.writeAddBlock(timestamp, nodeId, blockId);
+    }
+  }
+
+  /**
+   * Records the end of the simulation, the last event. Called once no task runs.
+   *
+   * @param timestamp the time in milliseconds
+   */
+  public abstract void simulationEnd(long timestamp);
+
+  /**
+   * Writes the recorded events and releases the output.
+   */
+  public abstract void close();
+
+  /**
+   * Whether events are deferred by the logical process of the calling thread.
+   *
+   * @return true if deferred
+   */
+  private boolean isDeferring() {
+    return this.timer.getProcess().isDeferring();
+  }
+
+  /**
+   * Writes that a node joined the network.
+   *
+   * @param timestamp the time in milliseconds
+   * @param nodeId    the ID of the node
+   * @param regionId  the region of the node
+   */
+  protected abstract void writeAddNode(long timestamp, int nodeId, int regionId);
+
+  /**
+   * Writes that a node added an outbound link.
+   *
+   * @param timestamp   the time in milliseconds
+   * @param beginNodeId the ID of the node adding the link
+   * @param endNodeId   the ID of the neighbor
+   */
+  protected abstract void writeAddLink(long timestamp, int beginNodeId, int endNodeId);
+
+  /**
+   * Writes that a node removed an outbound link.
+   *
+   * @param timestamp   the time in milliseconds
+   * @param beginNodeId the ID of the node removing the link
+   * @param endNodeId   the ID of the former neighbor
+   */
+  protected abstract void writeRemoveLink(long timestamp, int beginNodeId, int endNodeId);
+
+  /**
+   * Writes that a block was transmitted from a node to another.
+   *
+   * @param transmissionTimestamp the time the transmission started in milliseconds
+   * @param receptionTimestamp    the time the block was received in milliseconds
+   * @param beginNodeId           the ID of the sender
+   * @param endNodeId             the ID of the receiver
+   * @param blockId               the ID of the block
+   */
+  protected abstract void writeFlowBlock(long transmissionTimestamp, long receptionTimestamp,
+                                         int beginNodeId, int endNodeId, int blockId);
+
+  /**
+   * Writes that a node added a block to its chain.
+   *
+   * @param timestamp the time in milliseconds
+   * @param nodeId    the ID of the node
+   * @param blockId   the ID of the block
+   */
+  protected abstract void writeAddBlock(long timestamp, int nodeId, int blockId);
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator.log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * The type AsyncByteWriter is an output stream that fills reusable byte buffers and hands the
+ * full ones to a background thread writing them to the underlying stream, so the simulation does
+ * not wait for the file system.
+ *
+ * <p>The buffers circulate through a bounded ring: the writer thread takes full buffers in order,
+ * writes them and returns them empty. When every buffer is full the caller waits for the writer
+ * thread. The underlying stream is written only when a buffer is full and when this stream is
+ * closed; {@link #flush()} does nothing.
+ */
+public class AsyncByteWriter extends OutputStream {
+  /**
+   * A byte buffer and the number of bytes it holds.
+   */
+  private static class Chunk {
+    private final byte[] bytes;
+    private int length = 0;
+
+    /**
+     * Instantiates a new empty chunk.
+     *
+     * @param size - the capacity in bytes
+     */
+    Chunk(int size) {
+      this.bytes = new byte[size];
+    }
+  }
+
+  /**
+   * The chunk telling the writer thread that no more chunks follow.
+   */
+  private static final Chunk END = new Chunk(0);
+
+  /**
+   * The underlying stream.
+   */
+  private final OutputStream out;
+
+  /**
+   * The full chunks, in the order they are written.
+   */
+  private final ArrayBlockingQueue<Chunk> filled;
+
+  /**
+   * The empty chunks.
+   */
+  private final ArrayBlockingQueue<Chunk> free;
+
+  /**
+   * The thread writing the full chunks.
+   */
+  private final Thread thread;
+
+  /**
+   * The chunk being filled.
+   */
+  private Chunk current;
+
+  /**
+   * The first failure of the writer thread.
+   */
+  private volatile IOException failure = null;
+
+  /**
+   * Whether this stream has been closed.
+   */
+  private boolean closed = false;
+
+  /**
+   * Instantiates a new writer and starts its thread.
+   *
+   * @param out        the underlying stream, closed with this stream
+   * @param bufferSize the size of each buffer in bytes
+   * @param numBuffers the number of buffers, at least two
+   * @param name       the name of the writer thread
+   */
+  public AsyncByteWriter(OutputStream out, int bufferSize, int numBuffers, String name) {
+    if (numBuffers < 2) {
+      throw new IllegalArgumentException("At least two buffers are needed: " + numBuffers);
+    }
+    this.out = out;
+    // Room for every chunk and the end marker, so only taking an empty chunk may wait
+    this.filled = new ArrayBlockingQueue<>(numBuffers + 1);
+    this.free = new ArrayBlockingQueue<>(numBuffers);
+    for (int i = 1; i < numBuffers; i++) {
+      this.free.add(new Chunk(bufferSize));
+    }
+    this.current = new Chunk(bufferSize);
+    this.thread = new Thread(this::drain, name);
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    if (this.current.length == this.current.bytes.length) {
+      this.handOff();
+    }
+    this.current.bytes[this.current.length++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      if (this.current.length == this.current.bytes.length) {
+        this.handOff();
+      }
+      int n = Math.min(len, this.current.bytes.length - this.current.length);
+      System.arraycopy(b, off, this.current.bytes, this.current.length, n);
+      this.current.length += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  /**
+   * Writes the buffered bytes, then waits for the writer thread and closes the underlying
+   * stream.
+   *
+   * @throws IOException if the writer thread failed to write
+   */
+  @Override
+  public void close() throws IOException {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+    try {
+      if (this.current.length > 0) {
+        this.filled.put(this.current);
+      }
+      this.filled.put(END);
+      this.thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while closing the writer");
+    } finally {
+      this.out.close();
+    }
+    this.checkFailure();
+  }
+
+  /**
+   * Hands the full chunk to the writer thread and takes an empty one, waiting if there is none.
+   *
+   * @throws IOException if the writer thread failed to write
+   */
+  private void handOff() throws IOException {
+    this.checkFailure();
+    try {
+      this.filled.put(this.current);
+      this.current = this.free.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the writer");
+    }
+  }
+
+  /**
+   * Throws the failure of the writer thread, if any.
+   *
+   * @throws IOException the failure
+   */
+  private void checkFailure() throws IOException {
+    if (this.failure != null) {
+      throw this.failure;
+    }
+  }
+
+  /**
+   * Writes the full chunks until the end marker, run by the writer thread. After a failure the
+   * chunks are still returned so the caller never waits forever.
+   */
+  private void drain() {
+    try {
+      while (true) {
+        Chunk chunk = this.filled.take();
+        if (chunk == END) {
+          return;
+        }
+        if (this.failure == null) {
+          try {
+            this.out.write(chunk.bytes, 0, chunk.length);
+          } catch (IOException e) {
+            this.failure = e;
+          }
+        }
+        chunk.length = 0;
+        this.free.put(chunk);
+      }
+    } catch (InterruptedException e) {
+      this.failure = new InterruptedIOException("The writer thread was interrupted");
+    }
+  }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator.log;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import simblock.simulator.Timer;
+
+/**
+ * The type BinaryEventSink records the events in a compact binary columnar log,
+ * <em>output.bin</em>, which {@link BinaryLogConverter} converts to the JSON log.
+ *
+ * <p>The log starts with the bytes of {@link #MAGIC} and holds segments of up to {@link
+ * #SEGMENT_SIZE} events. A segment starts with its number of events as a varint, followed by
+ * the kind of every event, one byte each in event order. Then, for every kind with events in the
+ * segment in the order of {@link EventKind}, comes one column block per field: the length of the
+ * block in bytes as a varint, then the values of the field for the events of that kind, each
+ * encoded as the zigzag varint of its difference with the previous value of the column.
+ * Timestamps and IDs grow slowly, so most differences fit in one or two bytes. Columns start
+ * from 0 in every segment, so segments can be decoded independently. A segment of 0 events ends
+ * the log.
+ */
+public class BinaryEventSink extends AbstractEventSink {
+  /**
+   * The bytes the binary log starts with, including the format version.
+   */
+  static final byte[] MAGIC = "SBLOG1".getBytes(StandardCharsets.US_ASCII);
+
+  /**
+   * The maximum number of events in a segment.
+   */
+  static final int SEGMENT_SIZE = 4096;
+
+  /**
+   * The size of each buffer of the writer in bytes.
+   */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * The number of buffers in the ring between the simulation and the writer thread.
+   */
+  private static final int NUM_BUFFERS = 4;
+
+  /**
+   * The kinds of events.
+   */
+  private static final EventKind[] KINDS = EventKind.values();
+
+  /**
+   * The stream the segments are encoded into.
+   */
+  private final AsyncByteWriter out;
+
+  /**
+   * The kind of every event of the segment, by ordinal.
+   */
+  private final byte[] kinds = new byte[SEGMENT_SIZE];
+
+  /**
+   * The number of events in the segment.
+   */
+  private int numEvents = 0;
+
+  /**
+   * The values of the fields of the events of the segment, indexed by kind, field and event.
+   */
+  private final long[][][] columns = new long[KINDS.length][][];
+
+  /**
+   * The number of events of each kind in the segment.
+   */
+  private final int[] counts = new int[KINDS.length];
+
+  /**
+   * The encoded column block being built.
+   */
+  private final byte[] block = new byte[SEGMENT_SIZE * 10];
+
+  /**
+   * The encoded length of a column block or segment.
+   */
+  private final byte[] header = new byte[10];
+
+  /**
+   * Instantiates a new binary event sink writing to <em>output.bin</em>.
+   *
+   * @param timer     the timer of the simulation producing the events
+   * @param outputUri the directory the output files are written to
+   */
+  public BinaryEventSink(Timer timer, URI outputUri) {
+    this(timer, open(outputUri.resolve("./output.bin")));
+  }
+
+  /**
+   * Instantiates a new binary event sink.
+   *
+   * @param timer the timer of the simulation producing the events
+   * @param out   the stream the log is written to, closed with this sink
+   */
+  public BinaryEventSink(Timer timer, OutputStream out) {
+    super(timer);
+    this.out = new AsyncByteWriter(out, BUFFER_SIZE, NUM_BUFFERS, "binary-event-writer");
+    for (EventKind kind : KINDS) {
+      this.columns[kind.ordinal()] = new long[kind.getNumFields()][SEGMENT_SIZE];
+    }
+    try {
+      this.out.write(MAGIC);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot write the events", e);
+    }
+  }
+
+  @Override
+  protected void writeAddNode(long timestamp, int nodeId, int regionId) {
+    int index = this.append(EventKind.ADD_NODE);
+    long[][] fields = this.columns[EventKind.ADD_NODE.ordinal()];
+    fields[0][index] = timestamp;
+    fields[1][index] = nodeId;
+    fields[2][index] = regionId;
+  }
+
+  @Override
+  protected void writeAddLink(long timestamp, int beginNodeId, int endNodeId) {
+    int index = this.append(EventKind.ADD_LINK);
+    long[][] fields = this.columns[EventKind.ADD_LINK.ordinal()];
+    fields[0][index] = timestamp;
+    fields[1][index] = beginNodeId;
+    fields[2][index] = endNodeId;
+  }
+
+  @Override
+  protected void writeRemoveLink(long timestamp, int beginNodeId, int endNodeId) {
+    int index = this.append(EventKind.REMOVE_LINK);
+    long[][] fields = this.columns[EventKind.REMOVE_LINK.ordinal()];
+    fields[0][index] = timestamp;
+    fields[1][index] = beginNodeId;
+    fields[2][index] = endNodeId;
+  }
+
+  @Override
+  protected void writeFlowBlock(long transmissionTimestamp, long receptionTimestamp,
+                                int beginNodeId, int endNodeId, int blockId) {
+    int index = this.append(EventKind.FLOW_BLOCK);
+    long[][] fields = this.columns[EventKind.FLOW_BLOCK.ordinal()];
+    fields[0][index] = transmissionTimestamp;
+    fields[1][index] = receptionTimestamp;
+    fields[2][index] = beginNodeId;
+    fields[3][index] = endNodeId;
+    fields[4][index] = blockId;
+  }
+
+  @Override
+  protected void writeAddBlock(long timestamp, int nodeId, int blockId) {
+    int index = this.append(EventKind.ADD_BLOCK);
+    long[][] fields = this.columns[EventKind.ADD_BLOCK.ordinal()];
+    fields[0][index] = timestamp;
+    fields[1][index] = nodeId;
+    fields[2][index] = blockId;
+  }
+
+  @Override
+  public void simulationEnd(long timestamp) {
+    int index = this.append(EventKind.SIMULATION_END);
+    this.columns[EventKind.SIMULATION_END.ordinal()][0][index] = timestamp;
+  }
+
+  /**
+   * Writes the last segment and the end of the log.
+   */
+  @Override
+  public void close() {
+    try {
+      this.writeSegment();
+      this.out.write(0);
+      this.out.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot write the events", e);
+    }
+  }
+
+  /**
+   * Adds an event to the segment, writing the segment first if it is full.
+   *
+   * @param kind - the kind of the event
+   * @return the index of the event among the events of its kind in the segment
+   */
+  private int append(EventKind kind) {
+    if (this.numEvents == SEGMENT_SIZE) {
+      try {
+        this.writeSegment();
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot write the events", e);
+      }
+    }
+    this.kinds[this.numEvents++] = (byte) kind.ordinal();
+    return this.counts[kind.ordinal()]++;
+  }
+
+  /**
+   * Encodes the events of the segment and empties it.
+   *
+   * @throws IOException if the writer failed
+   */
+  private void writeSegment() throws IOException {
+    if (this.numEvents == 0) {
+      return;
+    }
+    this.out.write(this.header, 0, writeVarint(this.numEvents, this.header, 0));
+    this.out.write(this.kinds, 0, this.numEvents);
+    for (int kind = 0; kind < KINDS.length; kind++) {
+      int count = this.counts[kind];
+      if (count == 0) {
+        continue;
+      }
+      for (long[] column : this.columns[kind]) {
+        int length = 0;
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+          length = writeVarint(zigzag(column[i] - previous), this.block, length);
+          previous = column[i];
+        }
+        this.out.write(this.header, 0, writeVarint(length, this.header, 0));
+        this.out.write(this.block, 0, length);
+      }
+      this.counts[kind] = 0;
+    }
+    this.numEvents = 0;
+  }
+
+  /**
+   * Opens a file for writing.
+   *
+   * @param uri - the file
+   * @return the stream
+   */
+  private static OutputStream open(URI uri) {
+    try {
+      return new FileOutputStream(new File(uri));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open " + uri, e);
+    }
+  }
+
+  /**
+   * Maps signed values to unsigned ones so values close to 0 have short varints.
+   *
+   * @param value - the signed value
+   * @return the unsigned value
+   */
+  static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  /**
+   * Reverses {@link #zigzag(long)}.
+   *
+   * @param value - the unsigned value
+   * @return the signed value
+   */
+  static long unzigzag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Encodes an unsigned value as a varint, 7 bits per byte with the highest bit set on all but
+   * the last byte.
+   *
+   * @param value    - the value
+   * @param buffer   - the buffer
+   * @param position - the position in the buffer
+   * @return the position after the varint
+   */
+  static int writeVarint(long value, byte[] buffer, int position) {
+    while ((value & ~0x7FL) != 0) {
+      buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[position++] = (byte) value;
+    return position;
+  }
+
+  /**
+   * Decodes a varint.
+   *
+   * @param in - the stream
+   * @return the value
+   * @throws IOException if the stream ends or fails
+   */
+  static long readVarint(InputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.read();
+      if (b < 0) {
+        throw new EOFException("Truncated binary log");
+      }
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint in binary log");
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator.log;
+
+import static simblock.settings.SimulationConfiguration.TASK_QUEUE;
+import static simblock.simulator.log.BinaryEventSink.MAGIC;
+import static simblock.simulator.log.BinaryEventSink.SEGMENT_SIZE;
+import static simblock.simulator.log.BinaryEventSink.readVarint;
+import static simblock.simulator.log.BinaryEventSink.unzigzag;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import simblock.simulator.Main;
+import simblock.simulator.Timer;
+
+/**
+ * The type BinaryLogConverter reads a binary log written by {@link BinaryEventSink} and replays
+ * its events, in their original order, into another event sink. Its entry point regenerates the
+ * JSON log of the simulation, identical to the one {@link JsonEventSink} would have written, for
+ * the visualizer.
+ */
+public class BinaryLogConverter {
+  /**
+   * The kinds of events.
+   */
+  private static final EventKind[] KINDS = EventKind.values();
+
+  /**
+   * The entry point, converting <em>output.bin</em> to <em>output.json</em> in the output
+   * directory unless other files are given.
+   *
+   * @param args the binary log and the JSON log
+   * @throws IOException if a log cannot be read or written
+   */
+  public static void main(String[] args) throws IOException {
+    File input = args.length > 0 ? new File(args[0])
+        : new File(Main.OUT_FILE_URI.resolve("./output.bin"));
+    File output = args.length > 1 ? new File(args[1])
+        : new File(Main.OUT_FILE_URI.resolve("./output.json"));
+    try (InputStream in = new BufferedInputStream(new FileInputStream(input))) {
+      convert(in, new JsonEventSink(new Timer(TASK_QUEUE), new FileOutputStream(output)));
+    }
+  }
+
+  /**
+   * Replays the events of a binary log into a sink, then closes the sink.
+   *
+   * @param in   the binary log
+   * @param sink the sink
+   * @throws IOException if the log cannot be read or is malformed
+   */
+  public static void convert(InputStream in, AbstractEventSink sink) throws IOException {
+    DataInputStream data = new DataInputStream(in);
+    byte[] magic = new byte[MAGIC.length];
+    data.readFully(magic);
+    if (!Arrays.equals(magic, MAGIC)) {
+      throw new IOException("Not a binary log of this version");
+    }
+
+    byte[] kinds = new byte[SEGMENT_SIZE];
+    long[][][] columns = new long[KINDS.length][][];
+    for (EventKind kind : KINDS) {
+      columns[kind.ordinal()] = new long[kind.getNumFields()][SEGMENT_SIZE];
+    }
+    int[] counts = new int[KINDS.length];
+    byte[] block = new byte[SEGMENT_SIZE * 10];
+
+    while (true) {
+      int numEvents = (int) readVarint(data);
+      if (numEvents == 0) {
+        break;
+      }
+      if (numEvents > SEGMENT_SIZE) {
+        throw new IOException("Segment too large: " + numEvents);
+      }
+
+      // Count the events of each kind
+      data.readFully(kinds, 0, numEvents);
+      Arrays.fill(counts, 0);
+      for (int i = 0; i < numEvents; i++) {
+        if (kinds[i] < 0 || kinds[i] >= KINDS.length) {
+          throw new IOException("Unknown event kind: " + kinds[i]);
+        }
+        counts[kinds[i]]++;
+      }
+
+      // Decode the column blocks of the kinds present
+      for (int kind = 0; kind < KINDS.length; kind++) {
+        if (counts[kind] == 0) {
+          continue;
+        }
+        for (long[] column : columns[kind]) {
+          int length = (int) readVarint(data);
+          if (length > block.length) {
+            throw new IOException("Column block too large: " + length);
+          }
+          data.readFully(block, 0, length);
+          InputStream blockIn = new ByteArrayInputStream(block, 0, length);
+          long previous = 0;
+          for (int i = 0; i < counts[kind]; i++) {
+            previous += unzigzag(readVarint(blockIn));
+            column[i] = previous;
+          }
+        }
+      }
+
+      // Replay the events in order
+      Arrays.fill(counts, 0);
+      for (int i = 0; i < numEvents; i++) {
+        int kind = kinds[i];
+        replay(sink, KINDS[kind], columns[kind], counts[kind]++);
+      }
+    }
+    sink.close();
+  }
+
+  /**
+   * Replays one event into a sink.
+   *
+   * @param sink   - the sink
+   * @param kind   - the kind of the event
+   * @param fields - the columns of the fields of the kind
+   * @param index  - the index of the event among the events of its kind in the segment
+   */
+  private static void replay(AbstractEventSink sink, EventKind kind, long[][] fields, int index) {
+    switch (kind) {
+      case ADD_NODE:
+        sink.addNode(fields[0][index], (int) fields[1][index], (int) fields[2][index]);
+        break;
+      case ADD_LINK:
+        sink.addLink(fields[0][index], (int) fields[1][index], (int) fields[2][index]);
+        break;
+      case REMOVE_LINK:
+        sink.removeLink(fields[0][index], (int) fields[1][index], (int) fields[2][index]);
+        break;
+      case FLOW_BLOCK:
+        sink.flowBlock(fields[0][index], fields[1][index], (int) fields[2][index],
+            (int) fields[3][index], (int) fields[4][index]);
+        break;
+      case ADD_BLOCK:
+        sink.addBlock(fields[0][index], (int) fields[1][index], (int) fields[2][index]);
+        break;
+      case SIMULATION_END:
+        sink.simulationEnd(fields[0][index]);
+        break;
+      default:
+        throw new UnsupportedOperationException();
+    }
+  }
+}
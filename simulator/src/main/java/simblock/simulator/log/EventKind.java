@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator.log;
+
+/**
+ * The kinds of events recorded by an {@link AbstractEventSink}, with the names of their fields
+ * in the order they are recorded. The ordinal of a kind is its code in the binary log, so kinds
+ * may only be appended.
+ */
+public enum EventKind {
+  /**
+   * A node joined the network.
+   */
+  ADD_NODE("add-node", "timestamp", "node-id", "region-id"),
+
+  /**
+   * A node added an outbound link.
+   */
+  ADD_LINK("add-link", "timestamp", "begin-node-id", "end-node-id"),
+
+  /**
+   * A node removed an outbound link.
+   */
+  REMOVE_LINK("remove-link", "timestamp", "begin-node-id", "end-node-id"),
+
+  /**
+   * A block was transmitted from a node to another.
+   */
+  FLOW_BLOCK("flow-block", "transmission-timestamp", "reception-timestamp", "begin-node-id",
+      "end-node-id", "block-id"),
+
+  /**
+   * A node added a block to its chain.
+   */
+  ADD_BLOCK("add-block", "timestamp", "node-id", "block-id"),
+
+  /**
+   * The simulation ended.
+   */
+  SIMULATION_END("simulation-end", "timestamp");
+
+  /**
+   * The name of the kind in the JSON log.
+   */
+  private final String name;
+
+  /**
+   * The names of the fields.
+   */
+  private final String[] fields;
+
+  EventKind(String name, String... fields) {
+    this.name = name;
+    this.fields = fields;
+  }
+
+  /**
+   * Gets the name of the kind in the JSON log.
+   *
+   * @return the name
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Gets the number of fields of the events of this kind.
+   *
+   * @return the number of fields
+   */
+  public int getNumFields() {
+    return this.fields.length;
+  }
+
+  /**
+   * Gets the name of a field.
+   *
+   * @param index the index of the field
+   * @return the name
+   */
+  public String getField(int index) {
+    return this.fields[index];
+  }
+}
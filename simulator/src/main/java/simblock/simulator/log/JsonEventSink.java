@@ -0,0 +1,260 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator.log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import simblock.simulator.Timer;
+
+/**
+ * The type JsonEventSink records the events as a JSON array of objects with a <em>kind</em> and
+ * a <em>content</em>, the format read by the SimBlock visualizer.
+ *
+ * <p>Events are encoded directly into the reusable buffers of an {@link AsyncByteWriter}, without
+ * intermediate strings, and written by its background thread.
+ */
+public class JsonEventSink extends AbstractEventSink {
+  /**
+   * The size of each buffer in bytes.
+   */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * The number of buffers in the ring between the simulation and the writer thread.
+   */
+  private static final int NUM_BUFFERS = 4;
+
+  private static final byte[] ADD_NODE = ascii(
+      "{\"kind\":\"add-node\",\"content\":{\"timestamp\":");
+  private static final byte[] ADD_LINK = ascii(
+      "{\"kind\":\"add-link\",\"content\":{\"timestamp\":");
+  private static final byte[] REMOVE_LINK = ascii(
+      "{\"kind\":\"remove-link\",\"content\":{\"timestamp\":");
+  private static final byte[] FLOW_BLOCK = ascii(
+      "{\"kind\":\"flow-block\",\"content\":{\"transmission-timestamp\":");
+  private static final byte[] ADD_BLOCK = ascii(
+      "{\"kind\":\"add-block\",\"content\":{\"timestamp\":");
+  private static final byte[] SIMULATION_END = ascii(
+      "{\"kind\":\"simulation-end\",\"content\":{\"timestamp\":");
+  private static final byte[] NODE_ID = ascii(",\"node-id\":");
+  private static final byte[] REGION_ID = ascii(",\"region-id\":");
+  private static final byte[] BEGIN_NODE_ID = ascii(",\"begin-node-id\":");
+  private static final byte[] END_NODE_ID = ascii(",\"end-node-id\":");
+  private static final byte[] RECEPTION_TIMESTAMP = ascii(",\"reception-timestamp\":");
+  private static final byte[] BLOCK_ID = ascii(",\"block-id\":");
+  private static final byte[] EVENT_END = ascii("}},");
+  private static final byte[] LAST_EVENT_END = ascii("}}");
+
+  /**
+   * The stream the events are encoded into.
+   */
+  private final AsyncByteWriter out;
+
+  /**
+   * The digits of the number being encoded, in reverse order.
+   */
+  private final byte[] digits = new byte[20];
+
+  /**
+   * Instantiates a new JSON event sink writing to <em>output.json</em>.
+   *
+   * @param timer     the timer of the simulation producing the events
+   * @param outputUri the directory the output files are written to
+   */
+  public JsonEventSink(Timer timer, URI outputUri) {
+    this(timer, open(outputUri.resolve("./output.json")));
+  }
+
+  /**
+   * Instantiates a new JSON event sink and opens the array of events.
+   *
+   * @param timer the timer of the simulation producing the events
+   * @param out   the stream the JSON is written to, closed with this sink
+   */
+  public JsonEventSink(Timer timer, OutputStream out) {
+    super(timer);
+    this.out = new AsyncByteWriter(out, BUFFER_SIZE, NUM_BUFFERS, "json-event-writer");
+    this.write('[');
+  }
+
+  @Override
+  protected void writeAddNode(long timestamp, int nodeId, int regionId) {
+    this.write(ADD_NODE);
+    this.write(timestamp);
+    this.write(NODE_ID);
+    this.write(nodeId);
+    this.write(REGION_ID);
+    this.write(regionId);
+    this.write(EVENT_END);
+  }
+
+  @Override
+  protected void writeAddLink(long timestamp, int beginNodeId, int endNodeId) {
+    this.write(ADD_LINK);
+    this.write(timestamp);
+    this.write(BEGIN_NODE_ID);
+    this.write(beginNodeId);
+    this.write(END_NODE_ID);
+    this.write(endNodeId);
+    this.write(EVENT_END);
+  }
+
+  @Override
+  protected void writeRemoveLink(long timestamp, int beginNodeId, int endNodeId) {
+    this.write(REMOVE_LINK);
+    this.write(timestamp);
+    this.write(BEGIN_NODE_ID);
+    this.write(beginNodeId);
+    this.write(END_NODE_ID);
+    this.write(endNodeId);
+    this.write(EVENT_END);
+  }
+
+  @Override
+  protected void writeFlowBlock(long transmissionTimestamp, long receptionTimestamp,
+                                int beginNodeId, int endNodeId, int blockId) {
+    this.write(FLOW_BLOCK);
+    this.write(transmissionTimestamp);
+    this.write(RECEPTION_TIMESTAMP);
+    this.write(receptionTimestamp);
+    this.write(BEGIN_NODE_ID);
+    this.write(beginNodeId);
+    this.write(END_NODE_ID);
+    this.write(endNodeId);
+    this.write(BLOCK_ID);
+    this.write(blockId);
+    this.write(EVENT_END);
+  }
+
+  @Override
+  protected void writeAddBlock(long timestamp, int nodeId, int blockId) {
+    this.write(ADD_BLOCK);
+    this.write(timestamp);
+    this.write(NODE_ID);
+    this.write(nodeId);
+    this.write(BLOCK_ID);
+    this.write(blockId);
+    this.write(EVENT_END);
+  }
+
+  @Override
+  public void simulationEnd(long timestamp) {
+    this.write(SIMULATION_END);
+    this.write(timestamp);
+    this.write(LAST_EVENT_END);
+  }
+
+  /**
+   * Closes the array of events and writes them.
+   */
+  @Override
+  public void close() {
+    this.write(']');
+    try {
+      this.out.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot write the events", e);
+    }
+  }
+
+  /**
+   * Writes a character.
+   *
+   * @param c - the ASCII character
+   */
+  private void write(char c) {
+    try {
+      this.out.write(c);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot write the events", e);
+    }
+  }
+
+  /**
+   * Writes encoded text.
+   *
+   * @param bytes - the ASCII bytes
+   */
+  private void write(byte[] bytes) {
+    try {
+      this.out.write(bytes, 0, bytes.length);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot write the events", e);
+    }
+  }
+
+  /**
+   * Writes a number in decimal.
+   *
+   * @param value - the number
+   */
+  private void write(long value) {
+    if (value == Long.MIN_VALUE) {
+      this.write(ascii(Long.toString(value)));
+      return;
+    }
+    if (value < 0) {
+      this.write('-');
+      value = -value;
+    }
+    int length = 0;
+    do {
+      this.digits[length++] = (byte) ('0' + value % 10);
+      value /= 10;
+    } while (value != 0);
+    // Reverse the digits in place
+    for (int i = 0, j = length - 1; i < j; i++, j--) {
+      byte digit = this.digits[i];
+      this.digits[i] = this.digits[j];
+      this.digits[j] = digit;
+    }
+    try {
+      this.out.write(this.digits, 0, length);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot write the events", e);
+    }
+  }
+
+  /**
+   * Opens a file for writing.
+   *
+   * @param uri - the file
+   * @return the stream
+   */
+  private static OutputStream open(URI uri) {
+    try {
+      return new FileOutputStream(new File(uri));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open " + uri, e);
+    }
+  }
+
+  /**
+   * Encodes text as ASCII.
+   *
+   * @param text - the text
+   * @return the bytes
+   */
+  private static byte[] ascii(String text) {
+    return text.getBytes(StandardCharsets.US_ASCII);
+  }
+}
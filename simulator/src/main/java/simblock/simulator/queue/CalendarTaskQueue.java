@@ -0,0 +1,300 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator.queue;
+
+import java.util.ArrayList;
+import java.util.function.IntPredicate;
+
+/**
+ * The implementation of the {@link TaskQueue} as a calendar queue (R. Brown, "Calendar queues: a
+ * fast O(1) priority queue implementation for the simulation event set problem", 1988).
+ *
+ * <p>Scheduled tasks are hashed by their scheduled time into an array of buckets, each bucket
+ * covering a time slot of fixed width. One pass over all buckets is one "year". Dequeueing scans
+ * forward from the bucket of the last dequeued task, so both enqueue and dequeue take amortized
+ * O(1) time as long as the bucket width matches the average separation of scheduled times. The
+ * number of buckets and the bucket width are recalculated whenever the queue grows or shrinks by
+ * a factor of two.
+ */
+@SuppressWarnings("unused")
+public class CalendarTaskQueue implements TaskQueue {
+  /**
+   * The minimum number of buckets.
+   */
+  private static final int MIN_BUCKETS = 2;
+
+  /**
+   * The number of tasks sampled from the head of the queue to estimate the bucket width.
+   */
+  private static final int SAMPLE_SIZE = 25;
+
+  /**
+   * The buckets, each sorted in descending order so that the earliest task is the last element.
+   */
+  private ArrayList<ScheduledTask>[] buckets;
+
+  /**
+   * The width of the time slot covered by a bucket in milliseconds.
+   */
+  private long width;
+
+  /**
+   * The number of scheduled tasks in the queue.
+   */
+  private int size = 0;
+
+  /**
+   * The index of the bucket the dequeue scan starts from.
+   */
+  private int currentBucket;
+
+  /**
+   * The end, exclusive, of the time slot of the current bucket. Every task in the queue is
+   * scheduled at or after <em>bucketTop - width</em>.
+   */
+  private long bucketTop;
+
+  /**
+   * Whether the queue may be resized. Disabled while resizing.
+   */
+  private boolean resizeEnabled = true;
+
+  /**
+   * Instantiates a new empty calendar queue.
+   */
+  public CalendarTaskQueue() {
+    this.init(MIN_BUCKETS, 1, 0);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void init(int numBuckets, long width, long startTime) {
+    this.buckets = (ArrayList<ScheduledTask>[]) new ArrayList<?>[numBuckets];
+    for (int i = 0; i < numBuckets; i++) {
+      this.buckets[i] = new ArrayList<>();
+    }
+    this.width = width;
+    this.size = 0;
+    this.setCurrent(startTime);
+  }
+
+  private int bucketOf(long time) {
+    return (int) (Math.floorDiv(time, this.width) & (this.buckets.length - 1));
+  }
+
+  private void setCurrent(long time) {
+    this.currentBucket = this.bucketOf(time);
+    this.bucketTop = (Math.floorDiv(time, this.width) + 1) * this.width;
+  }
+
+  @Override
+  public void add(long time, long sequence, int handle) {
+    this.add(new ScheduledTask(time, sequence, handle));
+  }
+
+  private void add(ScheduledTask scheduledTask) {
+    long time = scheduledTask.getScheduledTime();
+    this.insert(scheduledTask);
+    this.size++;
+    // A task scheduled before the current time slot moves the scan back
+    if (time < this.bucketTop - this.width) {
+      this.setCurrent(time);
+    }
+    if (this.size > 2 * this.buckets.length) {
+      this.resize(this.buckets.length * 2);
+    }
+  }
+
+  private void insert(ScheduledTask scheduledTask) {
+    ArrayList<ScheduledTask> bucket = this.buckets[this.bucketOf(scheduledTask.getScheduledTime())];
+    // Binary search for the insertion point keeping the bucket in descending order
+    int low = 0;
+    int high = bucket.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (bucket.get(mid).compareTo(scheduledTask) > 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    bucket.add(low, scheduledTask);
+  }
+
+  /**
+   * Finds the bucket holding the earliest scheduled task and moves the scan to it.
+   *
+   * @return the index of the bucket or -1 if the queue is empty
+   */
+  private int locate() {
+    if (this.size == 0) {
+      return -1;
+    }
+    int mask = this.buckets.length - 1;
+    int index = this.currentBucket;
+    long top = this.bucketTop;
+    // Scan one year starting from the current bucket
+    for (int n = 0; n < this.buckets.length; n++) {
+      ArrayList<ScheduledTask> bucket = this.buckets[index];
+      if (!bucket.isEmpty() && bucket.get(bucket.size() - 1).getScheduledTime() < top) {
+        this.currentBucket = index;
+        this.bucketTop = top;
+        return index;
+      }
+      index = (index + 1) & mask;
+      top += this.width;
+    }
+    // Nothing in the current year, fall back to a direct search of the bucket heads
+    ScheduledTask earliest = null;
+    int earliestBucket = -1;
+    for (int i = 0; i < this.buckets.length; i++) {
+      ArrayList<ScheduledTask> bucket = this.buckets[i];
+      if (!bucket.isEmpty()) {
+        ScheduledTask head = bucket.get(bucket.size() - 1);
+        if (earliest == null || head.compareTo(earliest) < 0) {
+          earliest = head;
+          earliestBucket = i;
+        }
+      }
+    }
+    this.setCurrent(earliest.getScheduledTime());
+    return earliestBucket;
+  }
+
+  @Override
+  public int peek() {
+    int index = this.locate();
+    if (index < 0) {
+      return -1;
+    }
+    ArrayList<ScheduledTask> bucket = this.buckets[index];
+    return bucket.get(bucket.size() - 1).getHandle();
+  }
+
+  @Override
+  public long peekTime() {
+    ArrayList<ScheduledTask> bucket = this.buckets[this.locate()];
+    return bucket.get(bucket.size() - 1).getScheduledTime();
+  }
+
+  @Override
+  public long peekSequence() {
+    ArrayList<ScheduledTask> bucket = this.buckets[this.locate()];
+    return bucket.get(bucket.size() - 1).getSequence();
+  }
+
+  @Override
+  public int poll() {
+    ScheduledTask scheduledTask = this.pollScheduledTask();
+    return scheduledTask == null ? -1 : scheduledTask.getHandle();
+  }
+
+  private ScheduledTask pollScheduledTask() {
+    int index = this.locate();
+    if (index < 0) {
+      return null;
+    }
+    ArrayList<ScheduledTask> bucket = this.buckets[index];
+    ScheduledTask scheduledTask = bucket.remove(bucket.size() - 1);
+    this.size--;
+    this.shrinkIfSparse();
+    return scheduledTask;
+  }
+
+  @Override
+  public void removeIf(IntPredicate filter) {
+    int removed = 0;
+    for (ArrayList<ScheduledTask> bucket : this.buckets) {
+      int before = bucket.size();
+      bucket.removeIf(scheduledTask -> filter.test(scheduledTask.getHandle()));
+      removed += before - bucket.size();
+    }
+    this.size -= removed;
+    while (this.buckets.length > MIN_BUCKETS && this.size < this.buckets.length / 2) {
+      this.resize(this.buckets.length / 2);
+    }
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  private void shrinkIfSparse() {
+    if (this.buckets.length > MIN_BUCKETS && this.size < this.buckets.length / 2) {
+      this.resize(this.buckets.length / 2);
+    }
+  }
+
+  /**
+   * Rebuilds the calendar with the provided number of buckets and a newly estimated width.
+   *
+   * @param numBuckets the number of buckets, a power of two
+   */
+  private void resize(int numBuckets) {
+    if (!this.resizeEnabled) {
+      return;
+    }
+    this.resizeEnabled = false;
+    long newWidth = this.estimateWidth();
+    long start = this.bucketTop - this.width;
+    ArrayList<ScheduledTask>[] oldBuckets = this.buckets;
+    int oldSize = this.size;
+    this.init(numBuckets, newWidth, start);
+    for (ArrayList<ScheduledTask> bucket : oldBuckets) {
+      for (ScheduledTask scheduledTask : bucket) {
+        this.insert(scheduledTask);
+      }
+    }
+    this.size = oldSize;
+    this.resizeEnabled = true;
+  }
+
+  /**
+   * Estimates the bucket width as three times the average separation of the tasks at the head of
+   * the queue, ignoring separations larger than twice the average.
+   *
+   * @return the width in milliseconds
+   */
+  private long estimateWidth() {
+    int samples = Math.min(SAMPLE_SIZE, this.size);
+    if (samples < 2) {
+      return this.width;
+    }
+    ScheduledTask[] head = new ScheduledTask[samples];
+    for (int i = 0; i < samples; i++) {
+      head[i] = this.pollScheduledTask();
+    }
+    for (ScheduledTask scheduledTask : head) {
+      this.add(scheduledTask);
+    }
+    double average = (double) (head[samples - 1].getScheduledTime() - head[0].getScheduledTime())
+        / (samples - 1);
+    long total = 0;
+    int count = 0;
+    for (int i = 1; i < samples; i++) {
+      long separation = head[i].getScheduledTime() - head[i - 1].getScheduledTime();
+      if (separation <= 2 * average) {
+        total += separation;
+        count++;
+      }
+    }
+    if (count == 0 || total == 0) {
+      return Math.max(1, (long) (3 * average));
+    }
+    return Math.max(1, 3 * total / count);
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator.queue;
+
+import java.util.PriorityQueue;
+import java.util.function.IntPredicate;
+
+/**
+ * The implementation of the {@link TaskQueue} backed by a binary heap. Enqueue and dequeue take
+ * O(log n) time.
+ */
+@SuppressWarnings("unused")
+public class HeapTaskQueue implements TaskQueue {
+  /**
+   * A sorted queue of scheduled tasks.
+   */
+  private final PriorityQueue<ScheduledTask> taskQueue = new PriorityQueue<>();
+
+  @Override
+  public void add(long time, long sequence, int handle) {
+    this.taskQueue.add(new ScheduledTask(time, sequence, handle));
+  }
+
+  @Override
+  public int peek() {
+    ScheduledTask scheduledTask = this.taskQueue.peek();
+    return scheduledTask == null ? -1 : scheduledTask.getHandle();
+  }
+
+  @Override
+  public long peekTime() {
+    return this.taskQueue.element().getScheduledTime();
+  }
+
+  @Override
+  public long peekSequence() {
+    return this.taskQueue.element().getSequence();
+  }
+
+  @Override
+  public int poll() {
+    ScheduledTask scheduledTask = this.taskQueue.poll();
+    return scheduledTask == null ? -1 : scheduledTask.getHandle();
+  }
+
+  @Override
+  public void removeIf(IntPredicate filter) {
+    this.taskQueue.removeIf(scheduledTask -> filter.test(scheduledTask.getHandle()));
+  }
+
+  @Override
+  public int size() {
+    return this.taskQueue.size();
+  }
+}
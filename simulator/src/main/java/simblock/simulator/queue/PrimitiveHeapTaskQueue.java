@@ -0,0 +1,162 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator.queue;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * The implementation of the {@link TaskQueue} as a binary heap over parallel primitive arrays.
+ * Scheduled times, sequence numbers and task handles are stored in a <em>long[]</em>, a
+ * <em>long[]</em> and an <em>int[]</em> respectively, so enqueueing and dequeueing do not
+ * allocate and the heap is sifted without dereferencing any object.
+ */
+@SuppressWarnings("unused")
+public class PrimitiveHeapTaskQueue implements TaskQueue {
+  /**
+   * The initial capacity of the heap arrays.
+   */
+  private static final int INITIAL_CAPACITY = 1024;
+
+  /**
+   * The scheduled times in heap order.
+   */
+  private long[] times = new long[INITIAL_CAPACITY];
+
+  /**
+   * The sequence numbers in heap order.
+   */
+  private long[] sequences = new long[INITIAL_CAPACITY];
+
+  /**
+   * The task handles in heap order.
+   */
+  private int[] handles = new int[INITIAL_CAPACITY];
+
+  /**
+   * The number of task handles in the heap.
+   */
+  private int size = 0;
+
+  private static boolean isBefore(long time, long sequence, long otherTime, long otherSequence) {
+    return time < otherTime || (time == otherTime && sequence < otherSequence);
+  }
+
+  @Override
+  public void add(long time, long sequence, int handle) {
+    if (this.size == this.times.length) {
+      int capacity = this.times.length * 2;
+      this.times = Arrays.copyOf(this.times, capacity);
+      this.sequences = Arrays.copyOf(this.sequences, capacity);
+      this.handles = Arrays.copyOf(this.handles, capacity);
+    }
+    this.siftUp(this.size++, time, sequence, handle);
+  }
+
+  @Override
+  public int peek() {
+    return this.size == 0 ? -1 : this.handles[0];
+  }
+
+  @Override
+  public long peekTime() {
+    return this.times[0];
+  }
+
+  @Override
+  public long peekSequence() {
+    return this.sequences[0];
+  }
+
+  @Override
+  public int poll() {
+    if (this.size == 0) {
+      return -1;
+    }
+    int handle = this.handles[0];
+    int last = --this.size;
+    if (last > 0) {
+      this.siftDown(0, this.times[last], this.sequences[last], this.handles[last]);
+    }
+    return handle;
+  }
+
+  @Override
+  public void removeIf(IntPredicate filter) {
+    int kept = 0;
+    for (int i = 0; i < this.size; i++) {
+      if (!filter.test(this.handles[i])) {
+        this.times[kept] = this.times[i];
+        this.sequences[kept] = this.sequences[i];
+        this.handles[kept] = this.handles[i];
+        kept++;
+      }
+    }
+    this.size = kept;
+    // Restore the heap property bottom-up
+    for (int i = (this.size >>> 1) - 1; i >= 0; i--) {
+      this.siftDown(i, this.times[i], this.sequences[i], this.handles[i]);
+    }
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  private void siftUp(int index, long time, long sequence, int handle) {
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (!isBefore(time, sequence, this.times[parent], this.sequences[parent])) {
+        break;
+      }
+      this.move(parent, index);
+      index = parent;
+    }
+    this.set(index, time, sequence, handle);
+  }
+
+  private void siftDown(int index, long time, long sequence, int handle) {
+    int half = this.size >>> 1;
+    while (index < half) {
+      int child = 2 * index + 1;
+      int right = child + 1;
+      if (right < this.size && isBefore(
+          this.times[right], this.sequences[right], this.times[child], this.sequences[child])) {
+        child = right;
+      }
+      if (!isBefore(this.times[child], this.sequences[child], time, sequence)) {
+        break;
+      }
+      this.move(child, index);
+      index = child;
+    }
+    this.set(index, time, sequence, handle);
+  }
+
+  private void move(int from, int to) {
+    this.times[to] = this.times[from];
+    this.sequences[to] = this.sequences[from];
+    this.handles[to] = this.handles[from];
+  }
+
+  private void set(int index, long time, long sequence, int handle) {
+    this.times[index] = time;
+    this.sequences[index] = sequence;
+    this.handles[index] = handle;
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator.queue;
+
+/**
+ * Represents a task handle that is scheduled to be executed, used by the object based queue
+ * implementations.
+ */
+class ScheduledTask implements Comparable<ScheduledTask> {
+  private final long scheduledTime;
+  private final long sequence;
+  private final int handle;
+
+  /**
+   * Instantiates a new ScheduledTask.
+   *
+   * @param scheduledTime - the simulation time at which the task is to be executed
+   * @param sequence      - the sequence number breaking ties
+   * @param handle        - the task handle
+   */
+  ScheduledTask(long scheduledTime, long sequence, int handle) {
+    this.scheduledTime = scheduledTime;
+    this.sequence = sequence;
+    this.handle = handle;
+  }
+
+  /**
+   * Gets the scheduled time at which the task is to be executed.
+   *
+   * @return the scheduled time
+   */
+  long getScheduledTime() {
+    return this.scheduledTime;
+  }
+
+  /**
+   * Gets the sequence number.
+   *
+   * @return the sequence number
+   */
+  long getSequence() {
+    return this.sequence;
+  }
+
+  /**
+   * Gets the task handle.
+   *
+   * @return the handle
+   */
+  int getHandle() {
+    return this.handle;
+  }
+
+  /**
+   * Compares the two scheduled tasks.
+   *
+   * @param o other task
+   * @return 1 if self is executed later, 0 if concurrent and -1 if self is to be executed before.
+   */
+  public int compareTo(ScheduledTask o) {
+    int order = Long.compare(this.scheduledTime, o.scheduledTime);
+    if (order != 0) {
+      return order;
+    }
+    return Long.compare(this.sequence, o.sequence);
+  }
+}
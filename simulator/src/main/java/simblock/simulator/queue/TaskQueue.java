@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator.queue;
+
+import java.util.function.IntPredicate;
+
+/**
+ * The interface TaskQueue is the Future Event List (FEL) backing the
+ * {@link simblock.simulator.Timer}. A queue holds task handles, each with the time it is
+ * scheduled at and a sequence number, and must return them ordered by time and then by sequence
+ * number. The task instances themselves are kept by the Timer.
+ */
+public interface TaskQueue {
+  /**
+   * Adds a task handle to the queue.
+   *
+   * @param time     the simulation time at which the task is to be executed
+   * @param sequence the sequence number breaking ties between tasks scheduled at the same time
+   * @param handle   the task handle
+   */
+  void add(long time, long sequence, int handle);
+
+  /**
+   * Gets, but does not remove, the handle of the task to be executed next.
+   *
+   * @return the handle or -1 if the queue is empty
+   */
+  int peek();
+
+  /**
+   * Gets the time of the task to be executed next. The queue must not be empty.
+   *
+   * @return the scheduled time
+   */
+  long peekTime();
+
+  /**
+   * Gets the sequence number of the task to be executed next. The queue must not be empty.
+   *
+   * @return the sequence number
+   */
+  long peekSequence();
+
+  /**
+   * Gets and removes the handle of the task to be executed next.
+   *
+   * @return the handle or -1 if the queue is empty
+   */
+  int poll();
+
+  /**
+   * Removes all task handles matching the provided predicate from the queue.
+   *
+   * @param filter the predicate returning true for handles to be removed
+   */
+  void removeIf(IntPredicate filter);
+
+  /**
+   * Gets the number of task handles in the queue.
+   *
+   * @return the size
+   */
+  int size();
+}
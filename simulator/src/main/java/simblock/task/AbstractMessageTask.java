@@ -23,7 +23,7 @@ import simblock.node.Node;
 /**
  * The type Abstract message task.
  */
-public abstract class AbstractMessageTask implements Task {
+public abstract class AbstractMessageTask extends AbstractTask {
   /**
    * The sending entity.
    */
@@ -62,18 +62,36 @@ public abstract class AbstractMessageTask implements Task {
     return this.to;
   }
 
+  /**
+   * Gets the receiving node, which handles the message.
+   *
+   * @return the <em>to</em> node
+   */
+  @Override
+  public Node getNode() {
+    return this.to;
+  }
+
   /**
    * Get the message delay with regards to respective regions.
    *
    * @return the message sending interval
    */
   public long getInterval() {
-    long latency = getLatency(this.from.getRegion(), this.to.getRegion());
+    long latency = getLatency(
+        this.from.getRegion(), this.to.getRegion(), this.from.getRandom());
     // Add 10 milliseconds here, why?
     //TODO
     return latency + 10;
   }
 
+  /**
+   * Passes the message to the method of its type of a handler.
+   *
+   * @param handler the handler
+   */
+  public abstract void dispatch(MessageHandler handler);
+
   /**
    * Receive message at the <em>to</em> side.
    */
@@ -22,7 +22,7 @@ import simblock.node.Node;
 /**
  * The type Abstract minting task represents .
  */
-public abstract class AbstractMintingTask implements Task {
+public abstract class AbstractMintingTask extends AbstractTask {
   /**
    * The node to mint the block.
    */
@@ -58,6 +58,11 @@ public abstract class AbstractMintingTask implements Task {
     return minter;
   }
 
+  @Override
+  public Node getNode() {
+    return this.minter;
+  }
+
   /**
    * Gets the minted blocks parent.
    *
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.task;
+
+/**
+ * The type Abstract task holds the handle the {@link simblock.simulator.Timer} assigns to a task
+ * when it is scheduled.
+ */
+public abstract class AbstractTask implements Task {
+  /**
+   * The handle of the pending scheduled execution of this task, -1 if the task is not scheduled.
+   */
+  private int handle = -1;
+
+  @Override
+  public int getHandle() {
+    return this.handle;
+  }
+
+  @Override
+  public void setHandle(int handle) {
+    this.handle = handle;
+  }
+}
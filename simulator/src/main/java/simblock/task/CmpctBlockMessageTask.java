@@ -16,9 +16,7 @@
 
 package simblock.task;
 
-import static simblock.simulator.Main.OUT_JSON_FILE;
 import static simblock.simulator.Network.getLatency;
-import static simblock.simulator.Timer.getCurrentTime;
 
 import simblock.block.Block;
 import simblock.node.Node;
@@ -49,7 +47,8 @@ public class CmpctBlockMessageTask extends AbstractMessageTask {
   public CmpctBlockMessageTask(Node from, Node to, Block block, long delay) {
     super(from, to);
     this.block = block;
-    this.interval = getLatency(this.getFrom().getRegion(), this.getTo().getRegion()) + delay;
+    this.interval = getLatency(
+        this.getFrom().getRegion(), this.getTo().getRegion(), this.getFrom().getRandom()) + delay;
   }
 
 
@@ -59,24 +58,14 @@ public class CmpctBlockMessageTask extends AbstractMessageTask {
   }
 
   /**
-   * Sends a new compact block message from the sender to the receiver and logs the event.
+   * Logs the reception of the compact block message and handles it at the receiver. The message
+   * is sent by the upload scheduler of the sender, and its interval spans the upload.
    */
   @Override
   public void run() {
-
-    this.getFrom().sendNextBlockMessage();
-
-    OUT_JSON_FILE.print("{");
-    OUT_JSON_FILE.print("\"kind\":\"flow-block\",");
-    OUT_JSON_FILE.print("\"content\":{");
-    OUT_JSON_FILE.print("\"transmission-timestamp\":" + (getCurrentTime() - this.interval) + ",");
-    OUT_JSON_FILE.print("\"reception-timestamp\":" + getCurrentTime() + ",");
-    OUT_JSON_FILE.print("\"begin-node-id\":" + getFrom().getNodeID() + ",");
-    OUT_JSON_FILE.print("\"end-node-id\":" + getTo().getNodeID() + ",");
-    OUT_JSON_FILE.print("\"block-id\":" + block.getId());
-    OUT_JSON_FILE.print("}");
-    OUT_JSON_FILE.print("},");
-    OUT_JSON_FILE.flush();
+    long currentTime = this.getTo().getContext().getTimer().getCurrentTime();
+    this.getTo().getContext().getEventSink().flowBlock(currentTime - this.interval, currentTime,
+        getFrom().getNodeID(), getTo().getNodeID(), block.getId());
 
     super.run();
   }
@@ -89,4 +78,9 @@ public class CmpctBlockMessageTask extends AbstractMessageTask {
   public Block getBlock() {
     return this.block;
   }
-}
\ No newline at end of file
+
+  @Override
+  public void dispatch(MessageHandler handler) {
+    handler.handleCmpctBlock(this);
+  }
+}
@@ -29,9 +29,28 @@ public class GetBlockTxnMessageTask extends AbstractMessageTask {
      */
 	private Block block;
 
+	/**
+	 * The number of transactions missing to reconstruct the block, -1 if transactions are not
+	 * simulated.
+	 */
+	private final int numOfMissingTransactions;
+
 	public GetBlockTxnMessageTask(Node from, Node to, Block block) {
+		this(from, to, block, -1);
+	}
+
+	/**
+	 * Instantiates a new GetBlockTxn message task requesting the missing transactions.
+	 *
+	 * @param from                     the requesting node
+	 * @param to                       the node that sent the compact block
+	 * @param block                    the block
+	 * @param numOfMissingTransactions the number of missing transactions
+	 */
+	public GetBlockTxnMessageTask(Node from, Node to, Block block, int numOfMissingTransactions) {
 		super(from, to);
 		this.block = block;
+		this.numOfMissingTransactions = numOfMissingTransactions;
 	}
     
     /**
@@ -42,4 +61,18 @@ public class GetBlockTxnMessageTask extends AbstractMessageTask {
 	public Block getBlock(){
 		return this.block;
 	}	
-}
\ No newline at end of file
+
+	/**
+	 * Gets the number of transactions missing to reconstruct the block.
+	 *
+	 * @return the number of transactions, -1 if transactions are not simulated
+	 */
+	public int getNumOfMissingTransactions() {
+		return this.numOfMissingTransactions;
+	}
+
+	@Override
+	public void dispatch(MessageHandler handler) {
+		handler.handleGetBlockTxn(this);
+	}
+}
@@ -51,4 +51,8 @@ public class InvMessageTask extends AbstractMessageTask {
     return this.block;
   }
 
+  @Override
+  public void dispatch(MessageHandler handler) {
+    handler.handleInv(this);
+  }
 }
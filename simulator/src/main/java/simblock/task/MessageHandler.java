@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.task;
+
+/**
+ * The interface MessageHandler handles the messages a node receives, with one method per type of
+ * message. Each {@link AbstractMessageTask} calls the method of its own type in
+ * {@link AbstractMessageTask#dispatch(MessageHandler)}, so a message reaches its handler with a
+ * single virtual call instead of a chain of type tests.
+ *
+ * <p>A new type of message adds a method here with a default implementation, so that existing
+ * handlers do not need to change unless they receive it. The default implementations throw an
+ * {@link UnsupportedOperationException}, so that a message reaching a handler that does not
+ * support it fails loudly instead of being dropped.
+ */
+public interface MessageHandler {
+  /**
+   * Handles an inv message.
+   *
+   * @param message the message
+   */
+  default void handleInv(InvMessageTask message) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Handles a rec message.
+   *
+   * @param message the message
+   */
+  default void handleRec(RecMessageTask message) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Handles a GetBlockTxn message.
+   *
+   * @param message the message
+   */
+  default void handleGetBlockTxn(GetBlockTxnMessageTask message) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Handles a compact block message.
+   *
+   * @param message the message
+   */
+  default void handleCmpctBlock(CmpctBlockMessageTask message) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Handles a block message.
+   *
+   * @param message the message
+   */
+  default void handleBlock(BlockMessageTask message) {
+    throw new UnsupportedOperationException();
+  }
+}
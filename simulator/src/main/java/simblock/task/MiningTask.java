@@ -16,9 +16,7 @@
 
 package simblock.task;
 
-import static simblock.simulator.Timer.getCurrentTime;
-
-import java.math.BigInteger;
+import simblock.block.Difficulty;
 import simblock.block.ProofOfWorkBlock;
 import simblock.node.Node;
 
@@ -26,7 +24,7 @@ import simblock.node.Node;
  * The type Mining task.
  */
 public class MiningTask extends AbstractMintingTask {
-  private final BigInteger difficulty;
+  private final Difficulty difficulty;
 
   /**
    * Instantiates a new Mining task.
@@ -36,7 +34,7 @@ public class MiningTask extends AbstractMintingTask {
    * @param difficulty the difficulty
    */
   //TODO how is the difficulty expressed and used here?
-  public MiningTask(Node minter, long interval, BigInteger difficulty) {
+  public MiningTask(Node minter, long interval, Difficulty difficulty) {
     super(minter, interval);
     this.difficulty = difficulty;
   }
@@ -44,7 +42,8 @@ public class MiningTask extends AbstractMintingTask {
   @Override
   public void run() {
     ProofOfWorkBlock createdBlock = new ProofOfWorkBlock(
-        (ProofOfWorkBlock) this.getParent(), this.getMinter(), getCurrentTime(),
+        (ProofOfWorkBlock) this.getParent(), this.getMinter(),
+        this.getMinter().getContext().getTimer().getCurrentTime(),
         this.difficulty
     );
     this.getMinter().receiveBlock(createdBlock);
@@ -51,4 +51,8 @@ public class RecMessageTask extends AbstractMessageTask {
     return this.block;
   }
 
+  @Override
+  public void dispatch(MessageHandler handler) {
+    handler.handleRec(this);
+  }
 }
@@ -16,16 +16,14 @@
 
 package simblock.task;
 
-import static simblock.simulator.Timer.getCurrentTime;
-
-import java.math.BigInteger;
+import simblock.block.Difficulty;
 import simblock.block.SamplePoSBlock;
 import simblock.node.Node;
 
 public class SampleStakingTask extends AbstractMintingTask {
-  private final BigInteger difficulty;
+  private final Difficulty difficulty;
 
-  public SampleStakingTask(Node minter, long interval, BigInteger difficulty) {
+  public SampleStakingTask(Node minter, long interval, Difficulty difficulty) {
     super(minter, interval);
     this.difficulty = difficulty;
   }
@@ -33,7 +31,8 @@ public class SampleStakingTask extends AbstractMintingTask {
   @Override
   public void run() {
     SamplePoSBlock createdBlock = new SamplePoSBlock(
-        (SamplePoSBlock) this.getParent(), this.getMinter(), getCurrentTime(),
+        (SamplePoSBlock) this.getParent(), this.getMinter(),
+        this.getMinter().getContext().getTimer().getCurrentTime(),
         this.difficulty
     );
     this.getMinter().receiveBlock(createdBlock);
@@ -16,6 +16,8 @@
 
 package simblock.task;
 
+import simblock.node.Node;
+
 /**
  * The interface Task. A task can be run and has its execution duration.
  */
@@ -32,4 +34,27 @@ public interface Task {
    * Run the task.
    */
   void run();
+
+  /**
+   * Gets the node whose state the task acts upon. The task is executed by the logical process the
+   * node belongs to.
+   *
+   * @return the node
+   */
+  Node getNode();
+
+  /**
+   * Gets the handle the {@link simblock.simulator.Timer} assigned to the pending scheduled
+   * execution of the task.
+   *
+   * @return the handle or -1 if the task is not scheduled
+   */
+  int getHandle();
+
+  /**
+   * Sets the handle of the pending scheduled execution of the task.
+   *
+   * @param handle the handle or -1 if the task is not scheduled
+   */
+  void setHandle(int handle);
 }
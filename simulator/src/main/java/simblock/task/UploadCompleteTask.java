@@ -0,0 +1,65 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simblock.task;
+
+import simblock.node.Node;
+
+/**
+ * The type Upload complete task marks the next change of the uploads of a sending node: an upload
+ * finishing sending its block, after which the node sends the message, or an upload freeing its
+ * slot, after which the node starts uploading the next queued block request. It is moved whenever
+ * the uploads of the node share its bandwidth differently.
+ */
+public class UploadCompleteTask extends AbstractTask {
+  /**
+   * The sending node.
+   */
+  private final Node node;
+
+  /**
+   * The time until the next change in milliseconds.
+   */
+  private final long interval;
+
+  /**
+   * Instantiates a new Upload complete task.
+   *
+   * @param node     the sending node
+   * @param interval the time until the next change
+   */
+  public UploadCompleteTask(Node node, long interval) {
+    this.node = node;
+    this.interval = interval;
+  }
+
+  @Override
+  public long getInterval() {
+    return this.interval;
+  }
+
+  @Override
+  public Node getNode() {
+    return this.node;
+  }
+
+  /**
+   * Brings the uploads of the node up to date.
+   */
+  @Override
+  public void run() {
+    this.node.completeUploads();
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simblock.task;
+
+import simblock.block.Block;
+import simblock.node.Node;
+
+/**
+ * The type Validation task marks the end of the validation of a received block by one of the
+ * verification cores of a node, which then handles the block and starts validating the next
+ * queued one.
+ */
+public class ValidationTask extends AbstractTask {
+  /**
+   * The validating node.
+   */
+  private final Node node;
+
+  /**
+   * The block being validated.
+   */
+  private final Block block;
+
+  /**
+   * The validation time of the block in milliseconds.
+   */
+  private final long interval;
+
+  /**
+   * Instantiates a new Validation task.
+   *
+   * @param node     the validating node
+   * @param block    the block being validated
+   * @param interval the validation time of the block
+   */
+  public ValidationTask(Node node, Block block, long interval) {
+    this.node = node;
+    this.block = block;
+    this.interval = interval;
+  }
+
+  @Override
+  public long getInterval() {
+    return this.interval;
+  }
+
+  @Override
+  public Node getNode() {
+    return this.node;
+  }
+
+  /**
+   * Gets the block being validated.
+   *
+   * @return the block
+   */
+  public Block getBlock() {
+    return this.block;
+  }
+
+  /**
+   * Ends the validation of the block.
+   */
+  @Override
+  public void run() {
+    this.node.completeValidation(this.block);
+  }
+}
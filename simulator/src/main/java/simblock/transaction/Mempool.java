@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simblock.transaction;
+
+import java.util.Arrays;
+import simblock.block.Block;
+import simblock.block.BlockRegistry;
+import simblock.block.BlockTree;
+import simblock.node.Node;
+
+/**
+ * The type Mempool holds the short IDs of the transactions a node has received and that are not
+ * confirmed on its chain. Its content is a function of the time and of the current block of the
+ * node: {@link #sync(long, Block)} brings it up to date incrementally, forward or backward, from
+ * the transactions arriving or confirmed since the last call. An engine undoing the tasks of the
+ * node thus does not need to save it, the next call undoes the changes.
+ */
+public class Mempool {
+  /**
+   * The node holding the mempool.
+   */
+  private final Node node;
+
+  /**
+   * The transactions of the simulation.
+   */
+  private final TransactionLog log;
+
+  /**
+   * The short IDs of the transactions in the mempool.
+   */
+  private final ShortIdSet shortIds = new ShortIdSet();
+
+  /**
+   * The time the mempool is up to date with, before any transaction is issued.
+   */
+  private long time = -1;
+
+  /**
+   * The block the mempool is up to date with, null before the genesis block.
+   */
+  private Block tip = null;
+
+  /**
+   * An index below which no transaction is in the mempool.
+   */
+  private int firstIndex = 0;
+
+  /**
+   * Instantiates a new empty mempool.
+   *
+   * @param node the node holding the mempool
+   * @param log  the transactions of the simulation
+   */
+  public Mempool(Node node, TransactionLog log) {
+    this.node = node;
+    this.log = log;
+  }
+
+  /**
+   * Gets the number of transactions in the mempool.
+   *
+   * @return the number of transactions
+   */
+  public int size() {
+    return this.shortIds.size();
+  }
+
+  /**
+   * Brings the mempool up to date with a time and a current block.
+   *
+   * @param time the time
+   * @param tip  the current block of the node, may be null
+   */
+  public void sync(long time, Block tip) {
+    if (time > this.time) {
+      // Add the transactions arriving in (this.time, time]
+      for (int index = this.log.indexAfter(this.time - this.log.getMaxDelay()),
+           end = this.log.indexAfter(time); index < end; index++) {
+        long arrival = this.log.getArrivalTime(index, this.node);
+        if (arrival > this.time && arrival <= time && !this.log.isConfirmed(index, this.tip)) {
+          this.add(index);
+        }
+      }
+    } else if (time < this.time) {
+      // Remove the transactions arriving in (time, this.time]
+      for (int index = this.log.indexAfter(time - this.log.getMaxDelay()),
+           end = this.log.indexAfter(this.time); index < end; index++) {
+        long arrival = this.log.getArrivalTime(index, this.node);
+        if (arrival > time && arrival <= this.time) {
+          this.shortIds.remove(this.log.getShortId(index));
+        }
+      }
+    }
+    this.time = time;
+
+    if (tip == null ? this.tip != null : !tip.isSameBlockAs(this.tip)) {
+      BlockTree blockTree = this.node.getContext().getBlockTree();
+      BlockRegistry registry = this.node.getContext().getBlockRegistry();
+      Block forkPoint = blockTree.getCommonAncestor(this.tip, tip);
+      // The transactions of the new branch are confirmed
+      for (Block block : blockTree.getBranch(tip, forkPoint)) {
+        for (int index : registry.getTransactions(block.getId())) {
+          this.shortIds.remove(this.log.getShortId(index));
+        }
+      }
+      // Those of the abandoned branch are back unless the new branch confirms them
+      for (Block block : blockTree.getBranch(this.tip, forkPoint)) {
+        for (int index : registry.getTransactions(block.getId())) {
+          if (this.log.getArrivalTime(index, this.node) <= time
+              && !this.log.isConfirmed(index, tip)) {
+            this.add(index);
+          }
+        }
+      }
+      this.tip = tip;
+    }
+  }
+
+  /**
+   * Selects the oldest transactions of the mempool, as of the last call to
+   * {@link #sync(long, Block)}.
+   *
+   * @param max the maximum number of transactions
+   * @return the indexes of the transactions, in the order they were issued
+   */
+  public int[] select(int max) {
+    int[] selected = new int[Math.min(max, this.shortIds.size())];
+    int count = 0;
+    int end = this.log.indexAfter(this.time);
+    for (int index = this.firstIndex; index < end && count < selected.length; index++) {
+      if (this.shortIds.contains(this.log.getShortId(index))) {
+        selected[count++] = index;
+      } else if (count == 0) {
+        this.firstIndex = index + 1;
+      }
+    }
+    return count == selected.length ? selected : Arrays.copyOf(selected, count);
+  }
+
+  /**
+   * Counts the transactions of a block the node has neither in the mempool nor on its chain, as
+   * of the last call to {@link #sync(long, Block)}.
+   *
+   * @param block the block
+   * @return the number of transactions the node does not have
+   */
+  public int countMissing(Block block) {
+    int missing = 0;
+    for (int index : this.node.getContext().getBlockRegistry().getTransactions(block.getId())) {
+      if (!this.shortIds.contains(this.log.getShortId(index))
+          && !this.log.isConfirmed(index, this.tip)) {
+        missing++;
+      }
+    }
+    return missing;
+  }
+
+  /**
+   * Adds a transaction to the mempool.
+   *
+   * @param index - the index of the transaction
+   */
+  private void add(int index) {
+    this.shortIds.add(this.log.getShortId(index));
+    this.firstIndex = Math.min(this.firstIndex, index);
+  }
+}
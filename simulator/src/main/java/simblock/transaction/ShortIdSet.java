@@ -0,0 +1,153 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simblock.transaction;
+
+/**
+ * The type ShortIdSet is a set of 48-bit transaction short IDs, as used by compact block relay,
+ * stored unboxed in a single open-addressing table with linear probing. Short IDs are non-zero,
+ * so 0 marks an empty slot. The table is kept between one eighth and three quarters full, so a
+ * set of a few thousand transactions takes tens of kilobytes.
+ */
+public class ShortIdSet {
+  /**
+   * The initial number of slots, a power of two.
+   */
+  private static final int INITIAL_CAPACITY = 64;
+
+  /**
+   * The odd multiplier spreading the short IDs over the table.
+   */
+  private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+  /**
+   * The slots, 0 if empty.
+   */
+  private long[] slots = new long[INITIAL_CAPACITY];
+
+  /**
+   * The number of short IDs in the set.
+   */
+  private int size = 0;
+
+  /**
+   * Gets the number of short IDs in the set.
+   *
+   * @return the number of short IDs
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Tests if the set contains a short ID.
+   *
+   * @param shortId the non-zero short ID
+   * @return true if the set contains it
+   */
+  public boolean contains(long shortId) {
+    int mask = this.slots.length - 1;
+    for (int slot = this.slot(shortId); this.slots[slot] != 0; slot = (slot + 1) & mask) {
+      if (this.slots[slot] == shortId) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Adds a short ID to the set.
+   *
+   * @param shortId the non-zero short ID
+   * @return true if the set did not contain it
+   */
+  public boolean add(long shortId) {
+    int mask = this.slots.length - 1;
+    int slot = this.slot(shortId);
+    for (; this.slots[slot] != 0; slot = (slot + 1) & mask) {
+      if (this.slots[slot] == shortId) {
+        return false;
+      }
+    }
+    this.slots[slot] = shortId;
+    this.size++;
+    if (this.size * 4L > this.slots.length * 3L) {
+      this.resize(this.slots.length * 2);
+    }
+    return true;
+  }
+
+  /**
+   * Removes a short ID from the set.
+   *
+   * @param shortId the non-zero short ID
+   * @return true if the set contained it
+   */
+  public boolean remove(long shortId) {
+    int mask = this.slots.length - 1;
+    int slot = this.slot(shortId);
+    for (; this.slots[slot] != shortId; slot = (slot + 1) & mask) {
+      if (this.slots[slot] == 0) {
+        return false;
+      }
+    }
+    // Shift back the following short IDs that could not use the freed slot
+    int free = slot;
+    for (int next = (free + 1) & mask; this.slots[next] != 0; next = (next + 1) & mask) {
+      int home = this.slot(this.slots[next]);
+      if (((next - home) & mask) >= ((next - free) & mask)) {
+        this.slots[free] = this.slots[next];
+        free = next;
+      }
+    }
+    this.slots[free] = 0;
+    this.size--;
+    if (this.slots.length > INITIAL_CAPACITY && this.size * 8L < this.slots.length) {
+      this.resize(this.slots.length / 2);
+    }
+    return true;
+  }
+
+  /**
+   * Gets the home slot of a short ID.
+   *
+   * @param shortId - the short ID
+   * @return the slot
+   */
+  private int slot(long shortId) {
+    return (int) ((shortId * MULTIPLIER) >>> (Long.SIZE - Integer.numberOfTrailingZeros(
+        this.slots.length)));
+  }
+
+  /**
+   * Rehashes the short IDs into a table with another number of slots.
+   *
+   * @param capacity - the new number of slots, a power of two
+   */
+  private void resize(int capacity) {
+    long[] oldSlots = this.slots;
+    this.slots = new long[capacity];
+    int mask = capacity - 1;
+    for (long shortId : oldSlots) {
+      if (shortId != 0) {
+        int slot = this.slot(shortId);
+        while (this.slots[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        this.slots[slot] = shortId;
+      }
+    }
+  }
+}
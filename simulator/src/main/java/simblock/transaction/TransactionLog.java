@@ -0,0 +1,371 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simblock.transaction;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import simblock.block.Block;
+import simblock.node.Node;
+import simblock.simulator.Network;
+import simblock.simulator.SimulationContext;
+
+/**
+ * The type TransactionLog holds the transactions of a simulation, indexed in the order they are
+ * issued. Transactions are issued by random nodes at TRANSACTION_RATE per second, each with a
+ * random 48-bit short ID, and stored in primitive arrays, generated on demand as time advances.
+ *
+ * <p>Transactions are not sent as tasks: a transaction reaches a node after the minimum latency
+ * from the region of its issuer plus a relay delay of up to TRANSACTION_RELAY_DELAY, derived
+ * from its short ID and the node ID. The time a node sees a transaction is thus a function of
+ * the transaction and the node alone, the same whatever the engine and the order of the tasks.
+ *
+ * <p>The log is extended by whichever logical process first needs a later transaction, under a
+ * lock, and the extension is published through a volatile field, so transactions can be read
+ * from any thread. Inclusions in blocks are recorded by minting tasks, which run alone.
+ */
+public class TransactionLog {
+  /**
+   * The mask of the 48 bits of a short ID.
+   */
+  private static final long SHORT_ID_MASK = (1L << 48) - 1;
+
+  /**
+   * The initial number of transactions the arrays can hold.
+   */
+  private static final int INITIAL_CAPACITY = 1024;
+
+  /**
+   * The context of the simulation.
+   */
+  private final SimulationContext context;
+
+  /**
+   * The random number generator issuing transactions, separate from the other draws so that
+   * they do not depend on when the log is extended.
+   */
+  private final Random random;
+
+  /**
+   * The mean time between two transactions in milliseconds.
+   */
+  private final double meanInterval;
+
+  /**
+   * The maximum relay delay in milliseconds.
+   */
+  private final long relayDelay;
+
+  /**
+   * The maximum delay between the issuing of a transaction and its arrival at any node.
+   */
+  private final long maxDelay;
+
+  /**
+   * The columns published to readers.
+   */
+  private volatile Columns columns;
+
+  /**
+   * The ids of the second and later blocks including a transaction, by transaction index.
+   */
+  private final Map<Integer, int[]> moreBlockIds = new HashMap<>();
+
+  /**
+   * Instantiates a new transaction log.
+   *
+   * @param context the context of the simulation
+   */
+  public TransactionLog(SimulationContext context) {
+    this.context = context;
+    this.random = new Random(context.getRandom().nextLong());
+    this.meanInterval = 1000 / context.getParameters().getTransactionRate();
+    this.relayDelay = context.getParameters().getTransactionRelayDelay();
+    long maxLatency = 0;
+    for (int from = 0; from < Network.getRegionList().size(); from++) {
+      for (int to = 0; to < Network.getRegionList().size(); to++) {
+        maxLatency = Math.max(maxLatency, Network.getMinimumLatency(from, to));
+      }
+    }
+    this.maxDelay = maxLatency + this.relayDelay;
+    this.columns = new Columns(INITIAL_CAPACITY, 0, this.nextInterval());
+  }
+
+  /**
+   * Gets the maximum delay between the issuing of a transaction and its arrival at any node.
+   *
+   * @return the delay in milliseconds
+   */
+  public long getMaxDelay() {
+    return this.maxDelay;
+  }
+
+  /**
+   * Gets the number of transactions issued up to a time, generating them if needed.
+   *
+   * @param time the time
+   * @return the index of the first transaction issued after the time
+   */
+  public int indexAfter(long time) {
+    Columns columns = this.columns;
+    if (time >= (long) columns.nextTime) {
+      columns = this.generate(time);
+    }
+    int low = 0;
+    int high = columns.size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (columns.times[middle] <= time) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Gets the short ID of a transaction.
+   *
+   * @param index the index of the transaction
+   * @return the short ID
+   */
+  public long getShortId(int index) {
+    return this.columns.shortIds[index];
+  }
+
+  /**
+   * Gets the time a transaction was issued.
+   *
+   * @param index the index of the transaction
+   * @return the time
+   */
+  public long getTime(int index) {
+    return this.columns.times[index];
+  }
+
+  /**
+   * Gets the time a transaction reaches a node.
+   *
+   * @param index the index of the transaction
+   * @param node  the node
+   * @return the time
+   */
+  public long getArrivalTime(int index, Node node) {
+    Columns columns = this.columns;
+    if (columns.issuerIds[index] == node.getNodeID()) {
+      return columns.times[index];
+    }
+    // A hash of the short ID and the node ID, uniform in [0, 1)
+    long hash = (columns.shortIds[index] ^ node.getNodeID() * 0xC2B2AE3D27D4EB4FL)
+        * 0x9E3779B97F4A7C15L;
+    hash ^= hash >>> 29;
+    double uniform = (hash >>> 11) * 0x1.0p-53;
+    return columns.times[index]
+        + Network.getMinimumLatency(columns.issuerRegions[index], node.getRegion())
+        + (long) (uniform * this.relayDelay);
+  }
+
+  /**
+   * Records that a block includes a transaction.
+   *
+   * @param index   the index of the transaction
+   * @param blockId the id of the block
+   */
+  public void include(int index, int blockId) {
+    Columns columns = this.columns;
+    if (columns.blockIds[index] < 0) {
+      columns.blockIds[index] = blockId;
+    } else {
+      int[] more = this.moreBlockIds.getOrDefault(index, new int[0]);
+      more = Arrays.copyOf(more, more.length + 1);
+      more[more.length - 1] = blockId;
+      this.moreBlockIds.put(index, more);
+    }
+  }
+
+  /**
+   * Tests if a transaction is included in a block of the chain ending with a block.
+   *
+   * @param index the index of the transaction
+   * @param tip   the last block of the chain, may be null
+   * @return true if the transaction is confirmed on the chain
+   */
+  public boolean isConfirmed(int index, Block tip) {
+    int blockId = this.columns.blockIds[index];
+    if (blockId < 0 || tip == null) {
+      return false;
+    } else if (this.isOnChain(blockId, tip)) {
+      return true;
+    }
+    for (int moreBlockId : this.moreBlockIds.getOrDefault(index, new int[0])) {
+      if (this.isOnChain(moreBlockId, tip)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Tests if a block is on the chain ending with another block.
+   *
+   * @param blockId - the id of the block
+   * @param tip     - the last block of the chain
+   * @return true if the block is on the chain
+   */
+  private boolean isOnChain(int blockId, Block tip) {
+    int height = this.context.getBlockRegistry().getHeight(blockId);
+    Block block = tip.getBlockWithHeight(height);
+    return block != null && block.getId() == blockId;
+  }
+
+  /**
+   * Draws the time to the next transaction, exponentially distributed.
+   *
+   * @return the time in milliseconds
+   */
+  private double nextInterval() {
+    return -Math.log(1 - this.random.nextDouble()) * this.meanInterval;
+  }
+
+  /**
+   * Generates the transactions issued up to a time.
+   *
+   * @param time - the time
+   * @return the published columns
+   */
+  private synchronized Columns generate(long time) {
+    Columns columns = this.columns;
+    if (time < (long) columns.nextTime) {
+      // Another thread has generated them
+      return columns;
+    }
+    List<Node> nodes = this.context.getSimulator().getSimulatedNodes();
+    int size = columns.size;
+    double nextTime = columns.nextTime;
+    while ((long) nextTime <= time) {
+      if (size == columns.times.length) {
+        columns = columns.grow(size);
+      }
+      long shortId;
+      do {
+        shortId = this.random.nextLong() & SHORT_ID_MASK;
+      } while (shortId == 0);
+      Node issuer = nodes.get(this.random.nextInt(nodes.size()));
+      columns.shortIds[size] = shortId;
+      columns.times[size] = (long) nextTime;
+      columns.issuerIds[size] = issuer.getNodeID();
+      columns.issuerRegions[size] = issuer.getRegion();
+      columns.blockIds[size] = -1;
+      size++;
+      nextTime += this.nextInterval();
+    }
+    this.columns = new Columns(columns, size, nextTime);
+    return this.columns;
+  }
+
+  /**
+   * The arrays of the transactions and the number of transactions published.
+   */
+  private static final class Columns {
+    /**
+     * The short IDs.
+     */
+    private final long[] shortIds;
+
+    /**
+     * The issuing times.
+     */
+    private final long[] times;
+
+    /**
+     * The node IDs of the issuers.
+     */
+    private final int[] issuerIds;
+
+    /**
+     * The regions of the issuers.
+     */
+    private final int[] issuerRegions;
+
+    /**
+     * The ids of the first blocks including the transactions, -1 if none.
+     */
+    private final int[] blockIds;
+
+    /**
+     * The number of transactions.
+     */
+    private final int size;
+
+    /**
+     * The issuing time of the next transaction, which has not been generated yet.
+     */
+    private final double nextTime;
+
+    /**
+     * Instantiates new empty columns.
+     *
+     * @param capacity - the number of transactions the arrays can hold
+     * @param size     - the number of transactions
+     * @param nextTime - the issuing time of the next transaction
+     */
+    private Columns(int capacity, int size, double nextTime) {
+      this.shortIds = new long[capacity];
+      this.times = new long[capacity];
+      this.issuerIds = new int[capacity];
+      this.issuerRegions = new int[capacity];
+      this.blockIds = new int[capacity];
+      this.size = size;
+      this.nextTime = nextTime;
+    }
+
+    /**
+     * Instantiates columns sharing the arrays of other columns.
+     *
+     * @param columns  - the columns
+     * @param size     - the number of transactions
+     * @param nextTime - the issuing time of the next transaction
+     */
+    private Columns(Columns columns, int size, double nextTime) {
+      this.shortIds = columns.shortIds;
+      this.times = columns.times;
+      this.issuerIds = columns.issuerIds;
+      this.issuerRegions = columns.issuerRegions;
+      this.blockIds = columns.blockIds;
+      this.size = size;
+      this.nextTime = nextTime;
+    }
+
+    /**
+     * Copies the columns into arrays twice as large, not yet published.
+     *
+     * @param size - the number of transactions written to the arrays
+     * @return the copy
+     */
+    private Columns grow(int size) {
+      Columns columns = new Columns(this.times.length * 2, this.size, this.nextTime);
+      System.arraycopy(this.shortIds, 0, columns.shortIds, 0, size);
+      System.arraycopy(this.times, 0, columns.times, 0, size);
+      System.arraycopy(this.issuerIds, 0, columns.issuerIds, 0, size);
+      System.arraycopy(this.issuerRegions, 0, columns.issuerRegions, 0, size);
+      System.arraycopy(this.blockIds, 0, columns.blockIds, 0, size);
+      return columns;
+    }
+  }
+}